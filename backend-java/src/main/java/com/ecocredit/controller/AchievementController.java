@@ -0,0 +1,202 @@
+package com.ecocredit.controller;
+
+import com.ecocredit.model.AchievementBackfillJob;
+import com.ecocredit.service.AchievementBackfillService;
+import com.ecocredit.service.AchievementService;
+import com.ecocredit.service.AuthenticationService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:8080", "http://localhost:8081"})
+public class AchievementController {
+    
+    private final AchievementService achievementService;
+    private final AchievementBackfillService achievementBackfillService;
+    private final AuthenticationService authenticationService;
+    
+    public AchievementController(AchievementService achievementService,
+                                 AchievementBackfillService achievementBackfillService,
+                                 AuthenticationService authenticationService) {
+        this.achievementService = achievementService;
+        this.achievementBackfillService = achievementBackfillService;
+        this.authenticationService = authenticationService;
+    }
+    
+    /**
+     * Get progress towards every achievement the current user hasn't unlocked yet
+     * (read from stored per-user counters, cheap enough to poll)
+     */
+    @GetMapping("/achievements/progress")
+    public ResponseEntity<?> getProgress() {
+        try {
+            Long userId = authenticationService.getCurrentUserId();
+            if (userId == null) {
+                return createAuthError();
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("progress", achievementService.getProgress(userId).stream()
+                .map(AchievementService.Progress::toMap)
+                .toList());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Failed to get achievement progress");
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
+    /**
+     * Grant achievement types to every existing user who already qualifies, e.g. after adding a badge
+     * (one-off maintenance for admins, runs in the background). Body: {"types": ["credit_saver", ...]}
+     */
+    @PostMapping("/achievements/backfill")
+    public ResponseEntity<?> startBackfill(@RequestBody Map<String, Object> request) {
+        try {
+            if (authenticationService.getCurrentUserId() == null) {
+                return createAuthError();
+            }
+            if (!authenticationService.isCurrentUserAdmin()) {
+                return createAdminError();
+            }
+            
+            Object types = request.get("types");
+            if (!(types instanceof List<?> list) || list.isEmpty()) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "types must be a non-empty list");
+                return ResponseEntity.badRequest().body(error);
+            }
+            
+            AchievementBackfillJob job = achievementBackfillService.start(list.stream().map(String::valueOf).toList());
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("job", createJobResponse(job));
+            
+            return ResponseEntity.accepted().body(response);
+            
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Failed to start achievement backfill");
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
+    /**
+     * Get an achievement backfill job's progress (admins only)
+     */
+    @GetMapping("/achievements/backfill/{jobId}")
+    public ResponseEntity<?> getBackfill(@PathVariable Long jobId) {
+        try {
+            if (authenticationService.getCurrentUserId() == null) {
+                return createAuthError();
+            }
+            if (!authenticationService.isCurrentUserAdmin()) {
+                return createAdminError();
+            }
+            
+            Optional<AchievementBackfillJob> job = achievementBackfillService.getJob(jobId);
+            if (job.isEmpty()) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Backfill job not found");
+                return ResponseEntity.status(404).body(error);
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("job", createJobResponse(job.get()));
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Failed to get achievement backfill");
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
+    /**
+     * Re-run the unfinished chunks of a failed achievement backfill job (admins only)
+     */
+    @PostMapping("/achievements/backfill/{jobId}/resume")
+    public ResponseEntity<?> resumeBackfill(@PathVariable Long jobId) {
+        try {
+            if (authenticationService.getCurrentUserId() == null) {
+                return createAuthError();
+            }
+            if (!authenticationService.isCurrentUserAdmin()) {
+                return createAdminError();
+            }
+            
+            AchievementBackfillJob job = achievementBackfillService.resume(jobId);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("job", createJobResponse(job));
+            
+            return ResponseEntity.accepted().body(response);
+            
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Failed to resume achievement backfill");
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
+    private Map<String, Object> createJobResponse(AchievementBackfillJob job) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("id", job.getId());
+        response.put("types", List.of(job.getTypes().split(",")));
+        response.put("status", job.getStatus());
+        response.put("totalChunks", job.getTotalChunks());
+        response.put("completedChunks", job.getCompletedChunks());
+        response.put("progress", job.getTotalChunks() > 0
+            ? Math.round(job.getCompletedChunks() * 1000.0 / job.getTotalChunks()) / 10.0
+            : 100.0);
+        response.put("unlocked", job.getUnlocked());
+        response.put("error", job.getError());
+        response.put("createdAt", job.getCreatedAt());
+        response.put("completedAt", job.getCompletedAt());
+        return response;
+    }
+    
+    private ResponseEntity<?> createAuthError() {
+        Map<String, Object> error = new HashMap<>();
+        error.put("success", false);
+        error.put("error", "Authentication required");
+        return ResponseEntity.status(401).body(error);
+    }
+    
+    private ResponseEntity<?> createAdminError() {
+        Map<String, Object> error = new HashMap<>();
+        error.put("success", false);
+        error.put("error", "Admin access required");
+        return ResponseEntity.status(403).body(error);
+    }
+}
@@ -1,24 +1,41 @@
 package com.ecocredit.controller;
 
 import com.ecocredit.model.User;
-import com.ecocredit.model.Step;
-import com.ecocredit.model.Credit;
+import com.ecocredit.model.UserStats;
+import com.ecocredit.model.StepPeriod;
 import com.ecocredit.model.Achievement;
 import com.ecocredit.service.CreditService;
+import com.ecocredit.service.CreditRollupService;
+import com.ecocredit.service.DeviceStepService;
+import com.ecocredit.service.LedgerArchiveService;
+import com.ecocredit.service.StepConversionService;
+import com.ecocredit.service.StepImportService;
+import com.ecocredit.service.StepIngestService;
+import com.ecocredit.service.StepTimeSeriesStore;
+import com.ecocredit.service.StepLeaderboardService;
+import com.ecocredit.service.StepRollupService;
+import com.ecocredit.service.StepWriteBuffer;
+import com.ecocredit.service.UserStatsService;
 import com.ecocredit.service.AchievementService;
 import com.ecocredit.service.AuthenticationService;
 import com.ecocredit.repository.UserRepository;
-import com.ecocredit.repository.StepRepository;
 import lombok.RequiredArgsConstructor;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.TreeMap;
 import java.util.UUID;
 import com.ecocredit.service.FileUploadService;
 import com.ecocredit.service.NotificationService;
@@ -29,10 +46,22 @@ import com.ecocredit.service.GoogleOAuthService;
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:8080", "http://localhost:8081"})
 public class EcoCreditController {
     
+    private static final int MAX_BATCH_DAYS = 366;
+    
     private final UserRepository userRepository;
-    private final StepRepository stepRepository;
     private final CreditService creditService;
+    private final CreditRollupService creditRollupService;
+    private final LedgerArchiveService ledgerArchiveService;
     private final AchievementService achievementService;
+    private final StepConversionService stepConversionService;
+    private final StepIngestService stepIngestService;
+    private final StepImportService stepImportService;
+    private final StepWriteBuffer stepWriteBuffer;
+    private final DeviceStepService deviceStepService;
+    private final StepTimeSeriesStore stepTimeSeriesStore;
+    private final UserStatsService userStatsService;
+    private final StepRollupService stepRollupService;
+    private final StepLeaderboardService stepLeaderboardService;
     private final FileUploadService fileUploadService;
     private final NotificationService notificationService;
     private final GoogleOAuthService googleOAuthService;
@@ -40,17 +69,37 @@ public class EcoCreditController {
     
     // Constructor injection
     public EcoCreditController(UserRepository userRepository, 
-                             StepRepository stepRepository,
                              CreditService creditService,
+                             CreditRollupService creditRollupService,
+                             LedgerArchiveService ledgerArchiveService,
                              AchievementService achievementService,
+                             StepConversionService stepConversionService,
+                             StepIngestService stepIngestService,
+                             StepImportService stepImportService,
+                             StepWriteBuffer stepWriteBuffer,
+                             DeviceStepService deviceStepService,
+                             StepTimeSeriesStore stepTimeSeriesStore,
+                             UserStatsService userStatsService,
+                             StepRollupService stepRollupService,
+                             StepLeaderboardService stepLeaderboardService,
                              FileUploadService fileUploadService,
                              NotificationService notificationService,
                              GoogleOAuthService googleOAuthService,
                              AuthenticationService authenticationService) {
         this.userRepository = userRepository;
-        this.stepRepository = stepRepository;
         this.creditService = creditService;
+        this.creditRollupService = creditRollupService;
+        this.ledgerArchiveService = ledgerArchiveService;
         this.achievementService = achievementService;
+        this.stepConversionService = stepConversionService;
+        this.stepIngestService = stepIngestService;
+        this.stepImportService = stepImportService;
+        this.stepWriteBuffer = stepWriteBuffer;
+        this.deviceStepService = deviceStepService;
+        this.stepTimeSeriesStore = stepTimeSeriesStore;
+        this.userStatsService = userStatsService;
+        this.stepRollupService = stepRollupService;
+        this.stepLeaderboardService = stepLeaderboardService;
         this.fileUploadService = fileUploadService;
         this.notificationService = notificationService;
         this.googleOAuthService = googleOAuthService;
@@ -184,28 +233,24 @@ public class EcoCreditController {
             
             LocalDate date = dateStr != null ? LocalDate.parse(dateStr) : LocalDate.now();
             
-            // For testing, create a guest user
-            String guestEmail = "test-guest@stepcredit.com";
-            String guestName = "Test Guest";
-            User user = userRepository.findByEmail(guestEmail)
-                .orElseGet(() -> {
-                    User newUser = new User(guestEmail, guestName, true);
-                    return userRepository.save(newUser);
-                });
+            // The caller's own days only: the token resolves to an id without loading the user
+            Long userId = authenticationService.getCurrentUserId();
+            if (userId == null) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(401).body(error);
+            }
             
-            // Save or update steps for the day
-            Step stepRecord = stepRepository.findByUserAndDate(user, date)
-                .orElse(new Step(user, steps, date));
-            // Create new step record with updated steps
-            stepRecord = new Step(user, steps, date);
-            stepRepository.save(stepRecord);
+            // Save or update steps for the day (coalesced with other pushes for the day, written shortly)
+            stepWriteBuffer.put(userId, date, steps);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("data", Map.of(
                 "steps", steps,
                 "date", date.toString(),
-                "userId", user.getId() != null ? user.getId() : "unknown"
+                "userId", userId
             ));
             
             return ResponseEntity.ok(response);
@@ -219,42 +264,333 @@ public class EcoCreditController {
     }
     
     /**
-     * Convert steps to credits endpoint (equivalent to POST /api/credits/convert in Node.js)
+     * Get daily step totals for a date range (defaults to the last 7 days), newest first.
+     * Totals still waiting in the write-behind buffer are merged in, so the newest push is visible.
      */
-    @PostMapping("/credits/convert")
-    public ResponseEntity<?> convertStepsToCredits(@RequestBody Map<String, Object> request) {
+    @GetMapping("/steps")
+    public ResponseEntity<?> getSteps(@RequestParam(required = false) String from,
+                                      @RequestParam(required = false) String to) {
         try {
-            Integer steps = (Integer) request.get("steps");
+            Long userId = authenticationService.getCurrentUserId();
+            if (userId == null) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(401).body(error);
+            }
             
-            if (steps == null || steps < 0) {
+            LocalDate toDate = to != null ? LocalDate.parse(to) : LocalDate.now();
+            LocalDate fromDate = from != null ? LocalDate.parse(from) : toDate.minusDays(6);
+            if (fromDate.isAfter(toDate) || fromDate.isBefore(toDate.minusDays(MAX_BATCH_DAYS))) {
                 Map<String, Object> error = new HashMap<>();
                 error.put("success", false);
-                error.put("error", "Invalid steps count");
+                error.put("error", "Invalid date range");
                 return ResponseEntity.badRequest().body(error);
             }
             
-            // For testing, use the same guest user
-            String guestEmail = "test-guest@stepcredit.com";
-            User user = userRepository.findByEmail(guestEmail)
-                .orElseGet(() -> {
-                    User newUser = new User(guestEmail, "Test Guest", true);
-                    return userRepository.save(newUser);
-                });
+            Map<LocalDate, Integer> stepsByDate = new TreeMap<>(Comparator.reverseOrder());
+            int[] stored = stepTimeSeriesStore.getDailySteps(userId, fromDate, toDate);
+            for (int i = 0; i < stored.length; i++) {
+                if (stored[i] >= 0) {
+                    stepsByDate.put(fromDate.plusDays(i), stored[i]);
+                }
+            }
+            stepWriteBuffer.getPending(userId).forEach((date, steps) -> {
+                if (!date.isBefore(fromDate) && !date.isAfter(toDate)) {
+                    stepsByDate.put(date, steps);
+                }
+            });
+            
+            List<Map<String, Object>> days = new ArrayList<>();
+            stepsByDate.forEach((date, steps) -> days.add(Map.of("date", date.toString(), "steps", steps)));
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("days", days);
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (DateTimeParseException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Invalid date: " + e.getParsedString());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Database error: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
+    /**
+     * Get weekly, monthly or yearly step aggregates (sum, average and best day per bucket) for the stats screen.
+     * Served from the step rollups, so a year is 12 month rows or 53 week rows.
+     */
+    @GetMapping("/steps/aggregates")
+    public ResponseEntity<?> getStepAggregates(@RequestParam(defaultValue = "week") String period,
+                                               @RequestParam(required = false) String from,
+                                               @RequestParam(required = false) String to) {
+        try {
+            User user = authenticationService.getCurrentUser();
+            if (user == null) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(401).body(error);
+            }
+            
+            StepPeriod bucket = StepPeriod.valueOf(period.toUpperCase());
+            LocalDate toDate = to != null ? LocalDate.parse(to) : LocalDate.now();
+            LocalDate fromDate = from != null ? LocalDate.parse(from)
+                : bucket == StepPeriod.WEEK ? toDate.minusWeeks(11)
+                : bucket == StepPeriod.MONTH ? toDate.minusMonths(11) : toDate.minusYears(4);
+            
+            // Keep a single response bounded: at most two years of weeks, ten of months or fifty of years
+            LocalDate limit = bucket == StepPeriod.WEEK ? toDate.minusYears(2)
+                : bucket == StepPeriod.MONTH ? toDate.minusYears(10) : toDate.minusYears(50);
+            if (fromDate.isAfter(toDate) || fromDate.isBefore(limit)) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Invalid aggregate range");
+                return ResponseEntity.badRequest().body(error);
+            }
+            
+            // Buffered step totals must be written (and so rolled up) before reading
+            stepWriteBuffer.flushUser(user.getId());
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("period", bucket.name().toLowerCase());
+            response.put("series", stepRollupService.getAggregates(user.getId(), bucket, fromDate, toDate));
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Invalid period or date");
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Database error");
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
+    /**
+     * Rebuild the week/month/year step rollups from the daily step totals (one-off maintenance, admins only).
+     * Run it while step writes are paused: buckets are deleted and rebuilt, not locked.
+     */
+    @PostMapping("/steps/rollups/backfill")
+    public ResponseEntity<?> backfillStepRollups() {
+        try {
+            User user = authenticationService.getCurrentUser();
+            if (user == null) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(401).body(error);
+            }
+            if (!authenticationService.isCurrentUserAdmin()) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Admin access required");
+                return ResponseEntity.status(403).body(error);
+            }
+            
+            int buckets = stepRollupService.backfill();
+            // Weekly and all-time boards were loaded from the old rollups
+            stepLeaderboardService.clear();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("buckets", buckets);
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Failed to backfill step rollups");
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
+    /**
+     * Submit many days of steps in one call (e.g. catch-up sync after a week offline).
+     * Body: {"days": [{"date": "2024-01-31", "steps": 8200}, ...]}; each day is upserted on (user, date).
+     */
+    @PostMapping("/steps/batch")
+    public ResponseEntity<?> submitStepsBatch(@RequestBody Map<String, Object> request) {
+        try {
+            Object daysValue = request.get("days");
+            if (!(daysValue instanceof List<?> days) || days.isEmpty() || days.size() > MAX_BATCH_DAYS) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "days must be a non-empty list of at most " + MAX_BATCH_DAYS + " entries");
+                return ResponseEntity.badRequest().body(error);
+            }
+            
+            Long userId = authenticationService.getCurrentUserId();
+            if (userId == null) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(401).body(error);
+            }
+            
+            List<StepIngestService.StepEntry> entries = new ArrayList<>(days.size());
+            for (Object dayValue : days) {
+                if (!(dayValue instanceof Map<?, ?> day) || !(day.get("steps") instanceof Integer steps)
+                        || steps < 0 || !(day.get("date") instanceof String dateStr)) {
+                    Map<String, Object> error = new HashMap<>();
+                    error.put("success", false);
+                    error.put("error", "Each day needs a date and a non-negative steps count");
+                    return ResponseEntity.badRequest().body(error);
+                }
+                entries.add(new StepIngestService.StepEntry(userId, LocalDate.parse(dateStr), steps));
+            }
+            
+            // Written directly; older buffered totals for the same days must not overwrite them later
+            stepWriteBuffer.discard(entries);
+            int upserted = stepIngestService.upsertSteps(entries);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", Map.of(
+                "days", upserted,
+                "userId", userId
+            ));
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (DateTimeParseException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Invalid date: " + e.getParsedString());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Database error: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
+    /**
+     * Sync one device's step counts (phone, watch, ...).
+     * Body: {"deviceId": "watch-1", "days": [{"date": "2024-01-31", "steps": 8200}, ...]}.
+     * The server keeps each device's highest count per day and the day's total is the highest count of
+     * any device, so resent or out-of-order reports change nothing; devices just send their latest count.
+     */
+    @PostMapping("/steps/devices/sync")
+    public ResponseEntity<?> syncDeviceSteps(@RequestBody Map<String, Object> request) {
+        try {
+            Long userId = authenticationService.getCurrentUserId();
+            if (userId == null) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(401).body(error);
+            }
+            
+            Object daysValue = request.get("days");
+            if (!(request.get("deviceId") instanceof String deviceId) || !(daysValue instanceof List<?> days)
+                    || days.isEmpty() || days.size() > MAX_BATCH_DAYS) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "deviceId and a non-empty list of at most " + MAX_BATCH_DAYS + " days are required");
+                return ResponseEntity.badRequest().body(error);
+            }
+            
+            Map<LocalDate, Integer> counts = new HashMap<>();
+            for (Object dayValue : days) {
+                if (!(dayValue instanceof Map<?, ?> day) || !(day.get("steps") instanceof Integer steps)
+                        || steps < 0 || !(day.get("date") instanceof String dateStr)) {
+                    Map<String, Object> error = new HashMap<>();
+                    error.put("success", false);
+                    error.put("error", "Each day needs a date and a non-negative steps count");
+                    return ResponseEntity.badRequest().body(error);
+                }
+                // A day repeated in one report merges like separate reports: the higher count wins
+                counts.merge(LocalDate.parse(dateStr), steps, Math::max);
+            }
+            
+            // Written directly; older buffered totals for the same days must not overwrite them later
+            List<StepIngestService.StepEntry> reported = new ArrayList<>(counts.size());
+            counts.forEach((date, steps) -> reported.add(new StepIngestService.StepEntry(userId, date, steps)));
+            stepWriteBuffer.discard(reported);
+            Map<LocalDate, Integer> merged = deviceStepService.sync(userId, deviceId, counts);
+            
+            List<Map<String, Object>> totals = new ArrayList<>();
+            merged.forEach((date, steps) -> totals.add(Map.of("date", date.toString(), "steps", steps)));
             
-            // Calculate eco-credits
-            CreditService.CreditCalculationResult calculation = creditService.calculateEcoCredits(steps);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("deviceId", deviceId);
+            response.put("days", totals);
             
-            // Award credits to user
-            creditService.awardCredits(user, calculation.totalCredits, 
-                String.format("Converted %d steps of sustainable transportation", steps));
+            return ResponseEntity.ok(response);
+            
+        } catch (DateTimeParseException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Invalid date: " + e.getParsedString());
+            return ResponseEntity.badRequest().body(error);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Database error: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
+    /**
+     * Import a device sync or partner export as newline-delimited JSON, one {"date", "steps"} record
+     * per line. The body is streamed, never buffered; the response is an NDJSON report with one line
+     * per rejected record and a final summary line.
+     */
+    @PostMapping(value = "/steps/import", consumes = {"application/x-ndjson", "text/plain"})
+    public void importSteps(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Long userId = authenticationService.getCurrentUserId();
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        if (userId == null) {
+            response.setStatus(401);
+            response.getWriter().println("{\"success\":false,\"error\":\"Authentication required\"}");
+            return;
+        }
+        stepImportService.importSteps(userId, request.getInputStream(), response.getWriter());
+    }
+    
+    /**
+     * Convert steps to credits endpoint (equivalent to POST /api/credits/convert in Node.js).
+     * Credits come from the stored Step rows, and only steps not converted before earn credits.
+     */
+    @PostMapping("/credits/convert")
+    public ResponseEntity<?> convertStepsToCredits() {
+        try {
+            User user = authenticationService.getCurrentUser();
+            if (user == null) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(401).body(error);
+            }
             
-            // Check for new achievements
-            List<Achievement> newAchievements = achievementService.checkAndUnlockAchievements(
-                user, steps, calculation.totalCredits);
+            // Convert the stored steps not yet turned into credits (achievements are checked in the background)
+            StepConversionService.ConversionResult conversion = stepConversionService.convertPendingSteps(user);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("data", calculation.toMap());
+            response.put("data", conversion.toMap());
             
             return ResponseEntity.ok(response);
             
@@ -289,6 +625,170 @@ public class EcoCreditController {
         }
     }
     
+    /**
+     * Get credit history endpoint (keyset paginated, newest first)
+     * @param after Cursor returned as nextCursor by the previous page; omit for the first page
+     * @param limit Page size (max 100)
+     */
+    @GetMapping("/credits/history")
+    public ResponseEntity<?> getCreditHistory(@RequestParam(required = false) String after,
+                                              @RequestParam(defaultValue = "20") int limit) {
+        try {
+            User user = authenticationService.getCurrentUser();
+            if (user == null) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(401).body(error);
+            }
+            
+            CreditService.CreditHistoryPage page = creditService.getCreditHistory(user, after, limit);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("history", page.toMap());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Database error");
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
+    /**
+     * Get credit chart endpoint, served from the daily/monthly rollups
+     * @param granularity "day" (default, last 30 days) or "month" (default, last 12 months)
+     * @param from First day to include (yyyy-MM-dd), optional
+     * @param to Last day to include (yyyy-MM-dd), optional, defaults to today
+     */
+    @GetMapping("/credits/chart")
+    public ResponseEntity<?> getCreditChart(@RequestParam(defaultValue = "day") String granularity,
+                                            @RequestParam(required = false) String from,
+                                            @RequestParam(required = false) String to) {
+        try {
+            User user = authenticationService.getCurrentUser();
+            if (user == null) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(401).body(error);
+            }
+            
+            CreditRollupService.Granularity bucket = CreditRollupService.Granularity.valueOf(granularity.toUpperCase());
+            LocalDate toDate = to != null ? LocalDate.parse(to) : LocalDate.now();
+            LocalDate fromDate = from != null ? LocalDate.parse(from)
+                : bucket == CreditRollupService.Granularity.DAY ? toDate.minusDays(29) : toDate.minusMonths(11);
+            
+            // Keep a single response bounded: at most a year of days or ten years of months
+            LocalDate limit = bucket == CreditRollupService.Granularity.DAY ? toDate.minusDays(365) : toDate.minusYears(10);
+            if (fromDate.isAfter(toDate) || fromDate.isBefore(limit)) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Invalid chart range");
+                return ResponseEntity.badRequest().body(error);
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("granularity", bucket.name().toLowerCase());
+            response.put("series", creditRollupService.getChart(user.getId(), bucket, fromDate, toDate));
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Invalid granularity or date");
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Database error");
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
+    /**
+     * Rebuild the credit_daily/credit_monthly rollups from the credits ledger (one-off maintenance, admins only).
+     * Run it while credit writes are paused: buckets are deleted and rebuilt, not locked.
+     */
+    @PostMapping("/credits/rollups/backfill")
+    public ResponseEntity<?> backfillCreditRollups() {
+        try {
+            User user = authenticationService.getCurrentUser();
+            if (user == null) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(401).body(error);
+            }
+            if (!authenticationService.isCurrentUserAdmin()) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Admin access required");
+                return ResponseEntity.status(403).body(error);
+            }
+            
+            int dailyBuckets = creditRollupService.backfill();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("dailyBuckets", dailyBuckets);
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Failed to backfill credit rollups");
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
+    /**
+     * Move ledger rows older than the archive horizon to the compressed archive (one-off maintenance, admins only)
+     */
+    @PostMapping("/credits/archive")
+    public ResponseEntity<?> archiveLedger() {
+        try {
+            User user = authenticationService.getCurrentUser();
+            if (user == null) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(401).body(error);
+            }
+            if (!authenticationService.isCurrentUserAdmin()) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Admin access required");
+                return ResponseEntity.status(403).body(error);
+            }
+            
+            LedgerArchiveService.ArchiveResult result = ledgerArchiveService.archiveBefore(ledgerArchiveService.getCutoff());
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("archived", result.toMap());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Failed to archive ledger");
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
     /**
      * Get user profile endpoint (equivalent to GET /api/user/profile in Node.js)
      */
@@ -296,8 +796,10 @@ public class EcoCreditController {
     public ResponseEntity<?> getUserProfile() {
         try {
             User user = authenticationService.getCurrentUser();
-            // Get user stats
-            UserRepository.UserStatsProjection stats = userRepository.getUserStats(user);
+            // Buffered step totals must be written (and so counted) before reading stats
+            stepWriteBuffer.flushUser(user.getId());
+            // Get user stats (one row, kept current by step writes)
+            UserStats stats = userStatsService.getStats(user.getId());
             
             // Get total credits
             Integer totalCredits = creditService.getCreditBalance(user).earned;
@@ -307,6 +809,10 @@ public class EcoCreditController {
                 "totalSteps", stats.getTotalSteps(),
                 "daysTracked", stats.getDaysTracked(),
                 "maxDailySteps", stats.getMaxDailySteps(),
+                "currentStreak", stats.getCurrentStreak(LocalDate.now()),
+                "goalStreak", stats.getGoalStreak(LocalDate.now()),
+                "longestGoalStreak", stats.getLongestGoalStreak(),
+                "lastActiveDate", stats.getLastActiveDate() != null ? stats.getLastActiveDate().toString() : "",
                 "totalCredits", totalCredits
             ));
             
@@ -0,0 +1,217 @@
+package com.ecocredit.controller;
+
+import com.ecocredit.model.StepChallenge;
+import com.ecocredit.model.User;
+import com.ecocredit.repository.UserRepository;
+import com.ecocredit.service.AuthenticationService;
+import com.ecocredit.service.StepChallengeService;
+import com.ecocredit.service.StepLeaderboardService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:8080", "http://localhost:8081"})
+public class LeaderboardController {
+    
+    private static final int MAX_LIMIT = 100;
+    
+    private final StepLeaderboardService stepLeaderboardService;
+    private final StepChallengeService stepChallengeService;
+    private final UserRepository userRepository;
+    private final AuthenticationService authenticationService;
+    
+    public LeaderboardController(StepLeaderboardService stepLeaderboardService,
+                                 StepChallengeService stepChallengeService,
+                                 UserRepository userRepository,
+                                 AuthenticationService authenticationService) {
+        this.stepLeaderboardService = stepLeaderboardService;
+        this.stepChallengeService = stepChallengeService;
+        this.userRepository = userRepository;
+        this.authenticationService = authenticationService;
+    }
+    
+    /**
+     * Get a step leaderboard: board=daily|weekly|all-time, date picks the day or week (default today).
+     * Includes the caller's own rank when authenticated.
+     */
+    @GetMapping("/leaderboards/steps")
+    public ResponseEntity<?> getStepLeaderboard(@RequestParam(defaultValue = "daily") String board,
+                                                @RequestParam(required = false) String date,
+                                                @RequestParam(defaultValue = "10") int limit) {
+        try {
+            LocalDate day = date != null ? LocalDate.parse(date) : LocalDate.now();
+            String key;
+            switch (board) {
+                case "daily":
+                    key = StepLeaderboardService.dailyKey(day);
+                    break;
+                case "weekly":
+                    key = StepLeaderboardService.weeklyKey(day);
+                    break;
+                case "all-time":
+                    key = StepLeaderboardService.allTimeKey();
+                    break;
+                default:
+                    Map<String, Object> error = new HashMap<>();
+                    error.put("success", false);
+                    error.put("error", "Invalid board: " + board);
+                    return ResponseEntity.badRequest().body(error);
+            }
+            
+            Map<String, Object> response = createLeaderboardResponse(key, limit);
+            response.put("board", board);
+            if (!board.equals("all-time")) {
+                response.put("date", day.toString());
+            }
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (DateTimeParseException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Invalid date: " + e.getParsedString());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Failed to get leaderboard: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
+    /**
+     * Get open partner-sponsored step challenges
+     */
+    @GetMapping("/challenges")
+    public ResponseEntity<?> getChallenges() {
+        try {
+            User user = authenticationService.getCurrentUser();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("challenges", stepChallengeService.getOpenChallenges(user != null ? user.getId() : null));
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Failed to get challenges: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
+    /**
+     * Join a step challenge
+     */
+    @PostMapping("/challenges/{challengeId}/join")
+    public ResponseEntity<?> joinChallenge(@PathVariable Long challengeId) {
+        try {
+            User user = authenticationService.getCurrentUser();
+            if (user == null) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Authentication required");
+                return ResponseEntity.status(401).body(error);
+            }
+            
+            boolean joined = stepChallengeService.join(challengeId, user.getId());
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", joined ? "Joined challenge" : "Already joined");
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Failed to join challenge: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
+    /**
+     * Get a step challenge's leaderboard (steps in the challenge window)
+     */
+    @GetMapping("/challenges/{challengeId}/leaderboard")
+    public ResponseEntity<?> getChallengeLeaderboard(@PathVariable Long challengeId,
+                                                     @RequestParam(defaultValue = "10") int limit) {
+        try {
+            Optional<StepChallenge> challenge = stepChallengeService.getChallenge(challengeId);
+            if (challenge.isEmpty()) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("error", "Challenge not found");
+                return ResponseEntity.status(404).body(error);
+            }
+            
+            Map<String, Object> response =
+                createLeaderboardResponse(StepLeaderboardService.challengeKey(challengeId), limit);
+            response.put("challengeId", challengeId);
+            response.put("startDate", challenge.get().getStartDate().toString());
+            response.put("endDate", challenge.get().getEndDate().toString());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Failed to get challenge leaderboard: " + e.getMessage());
+            return ResponseEntity.status(500).body(error);
+        }
+    }
+    
+    // Helper method: top entries (with names) plus the caller's own standing
+    private Map<String, Object> createLeaderboardResponse(String key, int limit) {
+        List<StepLeaderboardService.Standing> top =
+            stepLeaderboardService.getTop(key, Math.max(1, Math.min(MAX_LIMIT, limit)));
+            
+        Map<Long, User> users = new HashMap<>();
+        userRepository.findAllById(top.stream().map(standing -> standing.userId).toList())
+            .forEach(user -> users.put(user.getId(), user));
+            
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (StepLeaderboardService.Standing standing : top) {
+            Map<String, Object> entry = createStandingResponse(standing);
+            User user = users.get(standing.userId);
+            entry.put("name", user != null && user.getName() != null ? user.getName() : "Unknown User");
+            entry.put("picture", user != null ? user.getAvatarUrl() : null);
+            entries.add(entry);
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("entries", entries);
+        response.put("participants", stepLeaderboardService.getSize(key));
+        
+        User user = authenticationService.getCurrentUser();
+        if (user != null) {
+            StepLeaderboardService.Standing me = stepLeaderboardService.getStanding(key, user.getId());
+            response.put("me", me != null ? createStandingResponse(me) : null);
+        }
+        return response;
+    }
+    
+    private Map<String, Object> createStandingResponse(StepLeaderboardService.Standing standing) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("rank", standing.rank);
+        entry.put("userId", standing.userId);
+        entry.put("steps", standing.score);
+        return entry;
+    }
+}
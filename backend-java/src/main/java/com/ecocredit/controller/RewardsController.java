@@ -18,13 +18,16 @@ public class RewardsController {
     private final RewardsService rewardsService;
     private final RedemptionService redemptionService;
     private final AuthenticationService authenticationService;
+    private final BalanceService balanceService;
     
     public RewardsController(RewardsService rewardsService, 
                            RedemptionService redemptionService,
-                           AuthenticationService authenticationService) {
+                           AuthenticationService authenticationService,
+                           BalanceService balanceService) {
         this.rewardsService = rewardsService;
         this.redemptionService = redemptionService;
         this.authenticationService = authenticationService;
+        this.balanceService = balanceService;
     }
     
     /**
@@ -140,7 +143,7 @@ public class RewardsController {
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("recommendations", rewardResponses);
-            response.put("userCredits", user.getTotalCredits());
+            response.put("userCredits", balanceService.getAvailableCredits(user));
             
             return ResponseEntity.ok(response);
             
@@ -177,7 +180,7 @@ public class RewardsController {
                     rewardsService.checkRedemptionEligibility(user, rewardId);
                 rewardResponse.put("eligible", eligibility.isEligible());
                 rewardResponse.put("eligibilityMessage", eligibility.getMessage());
-                rewardResponse.put("userCredits", user.getTotalCredits());
+                rewardResponse.put("userCredits", balanceService.getAvailableCredits(user));
             }
             
             Map<String, Object> response = new HashMap<>();
@@ -216,7 +219,7 @@ public class RewardsController {
             
             if (result.isSuccess() && result.getRedemption() != null) {
                 response.put("redemption", createRedemptionResponse(result.getRedemption()));
-                response.put("newCreditBalance", user.getTotalCredits());
+                response.put("newCreditBalance", balanceService.getAvailableCredits(user));
             }
             
             return ResponseEntity.ok(response);
@@ -0,0 +1,89 @@
+package com.ecocredit.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * One user id range [fromUserId, toUserId] of an achievement backfill job. A chunk is marked done
+ * in the transaction that wrote its unlocks, so a restarted job redoes exactly the unfinished ones.
+ */
+@Entity
+@Table(name = "achievement_backfill_chunks")
+@IdClass(AchievementBackfillChunk.Key.class)
+public class AchievementBackfillChunk {
+    
+    @Id
+    @Column(name = "job_id")
+    private Long jobId;
+    
+    @Id
+    @Column(name = "chunk_index")
+    private Integer chunkIndex;
+    
+    @Column(name = "from_user_id", nullable = false)
+    private Long fromUserId;
+    
+    @Column(name = "to_user_id", nullable = false)
+    private Long toUserId;
+    
+    @Column(name = "done", nullable = false)
+    private Boolean done = false;
+    
+    // Default constructor
+    public AchievementBackfillChunk() {}
+    
+    // Constructor
+    public AchievementBackfillChunk(Long jobId, Integer chunkIndex, Long fromUserId, Long toUserId) {
+        this.jobId = jobId;
+        this.chunkIndex = chunkIndex;
+        this.fromUserId = fromUserId;
+        this.toUserId = toUserId;
+    }
+    
+    // Getters and Setters
+    public Long getJobId() { return jobId; }
+    public void setJobId(Long jobId) { this.jobId = jobId; }
+    
+    public Integer getChunkIndex() { return chunkIndex; }
+    public void setChunkIndex(Integer chunkIndex) { this.chunkIndex = chunkIndex; }
+    
+    public Long getFromUserId() { return fromUserId; }
+    public void setFromUserId(Long fromUserId) { this.fromUserId = fromUserId; }
+    
+    public Long getToUserId() { return toUserId; }
+    public void setToUserId(Long toUserId) { this.toUserId = toUserId; }
+    
+    public Boolean getDone() { return done; }
+    public void setDone(Boolean done) { this.done = done; }
+    
+    // Composite primary key (job_id, chunk_index)
+    public static class Key implements Serializable {
+        private Long jobId;
+        private Integer chunkIndex;
+        
+        public Key() {}
+        
+        public Key(Long jobId, Integer chunkIndex) {
+            this.jobId = jobId;
+            this.chunkIndex = chunkIndex;
+        }
+        
+        public Long getJobId() { return jobId; }
+        public Integer getChunkIndex() { return chunkIndex; }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(jobId, key.jobId) && Objects.equals(chunkIndex, key.chunkIndex);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(jobId, chunkIndex);
+        }
+    }
+}
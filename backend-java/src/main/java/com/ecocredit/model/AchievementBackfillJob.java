@@ -0,0 +1,94 @@
+package com.ecocredit.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A run granting achievement types to every user who already qualifies for them (e.g. after a
+ * badge was added). The user id space is split into AchievementBackfillChunk rows; counters are
+ * advanced by each chunk's transaction, so they always match the chunks marked done.
+ */
+@Entity
+@Table(name = "achievement_backfill_jobs")
+public class AchievementBackfillJob {
+    
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "types", nullable = false, length = 1000)
+    private String types; // Comma-separated achievement types being granted
+    
+    @Column(name = "status", nullable = false)
+    private String status = RUNNING;
+    
+    @Column(name = "total_chunks", nullable = false)
+    private Integer totalChunks = 0;
+    
+    @Column(name = "completed_chunks", nullable = false)
+    private Integer completedChunks = 0;
+    
+    @Column(name = "unlocked", nullable = false)
+    private Long unlocked = 0L;
+    
+    @Column(name = "error", length = 1000)
+    private String error;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+    
+    // Default constructor
+    public AchievementBackfillJob() {}
+    
+    // Constructor
+    public AchievementBackfillJob(String types, int totalChunks) {
+        this.types = types;
+        this.totalChunks = totalChunks;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getTypes() { return types; }
+    public void setTypes(String types) { this.types = types; }
+    
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    
+    public Integer getTotalChunks() { return totalChunks; }
+    public void setTotalChunks(Integer totalChunks) { this.totalChunks = totalChunks; }
+    
+    public Integer getCompletedChunks() { return completedChunks; }
+    public void setCompletedChunks(Integer completedChunks) { this.completedChunks = completedChunks; }
+    
+    public Long getUnlocked() { return unlocked; }
+    public void setUnlocked(Long unlocked) { this.unlocked = unlocked; }
+    
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
@@ -0,0 +1,79 @@
+package com.ecocredit.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Totals of a user's redemptions moved to the archive files by LedgerArchiveService.
+ * Redemption counts and statistics add these to what is still in the redemptions table,
+ * so archiving never changes them (the redemption counterpart of the credit carry-forward rows).
+ */
+@Entity
+@Table(name = "archived_redemptions")
+public class ArchivedRedemptions {
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(name = "redemptions", nullable = false)
+    private Integer redemptions = 0; // Every archived redemption, whatever its status
+    
+    @Column(name = "completed", nullable = false)
+    private Integer completed = 0;
+    
+    @Column(name = "used", nullable = false)
+    private Integer used = 0;
+    
+    @Column(name = "credits_spent", nullable = false)
+    private Integer creditsSpent = 0;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Default constructor
+    public ArchivedRedemptions() {}
+    
+    // Constructor
+    public ArchivedRedemptions(Long userId) {
+        this.userId = userId;
+    }
+    
+    // Business Logic Methods
+    public void add(Redemption redemption) {
+        redemptions++;
+        creditsSpent += redemption.getCreditCost();
+        if (redemption.getStatus() == Redemption.RedemptionStatus.COMPLETED) {
+            completed++;
+        } else if (redemption.getStatus() == Redemption.RedemptionStatus.USED) {
+            used++;
+        }
+    }
+    
+    // Successful redemptions (voucher issued), as counted by RedemptionRepository.countSuccessfulByUserId
+    public int getSuccessful() {
+        return completed + used;
+    }
+    
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public Integer getRedemptions() { return redemptions; }
+    public void setRedemptions(Integer redemptions) { this.redemptions = redemptions; }
+    
+    public Integer getCompleted() { return completed; }
+    public void setCompleted(Integer completed) { this.completed = completed; }
+    
+    public Integer getUsed() { return used; }
+    public void setUsed(Integer used) { this.used = used; }
+    
+    public Integer getCreditsSpent() { return creditsSpent; }
+    public void setCreditsSpent(Integer creditsSpent) { this.creditsSpent = creditsSpent; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,78 @@
+package com.ecocredit.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * A user enrolled in a step challenge
+ */
+@Entity
+@Table(name = "challenge_participants",
+       indexes = @Index(name = "idx_challenge_participants_user", columnList = "user_id"))
+@IdClass(ChallengeParticipant.Key.class)
+public class ChallengeParticipant {
+    
+    @Id
+    @Column(name = "challenge_id")
+    private Long challengeId;
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @CreationTimestamp
+    @Column(name = "joined_at", nullable = false, updatable = false)
+    private LocalDateTime joinedAt;
+    
+    // Default constructor
+    public ChallengeParticipant() {}
+    
+    // Constructor
+    public ChallengeParticipant(Long challengeId, Long userId) {
+        this.challengeId = challengeId;
+        this.userId = userId;
+    }
+    
+    // Getters and Setters
+    public Long getChallengeId() { return challengeId; }
+    public void setChallengeId(Long challengeId) { this.challengeId = challengeId; }
+    
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public LocalDateTime getJoinedAt() { return joinedAt; }
+    public void setJoinedAt(LocalDateTime joinedAt) { this.joinedAt = joinedAt; }
+    
+    // Composite primary key (challenge_id, user_id)
+    public static class Key implements Serializable {
+        private Long challengeId;
+        private Long userId;
+        
+        public Key() {}
+        
+        public Key(Long challengeId, Long userId) {
+            this.challengeId = challengeId;
+            this.userId = userId;
+        }
+        
+        public Long getChallengeId() { return challengeId; }
+        public Long getUserId() { return userId; }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(challengeId, key.challengeId) && Objects.equals(userId, key.userId);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(challengeId, userId);
+        }
+    }
+}
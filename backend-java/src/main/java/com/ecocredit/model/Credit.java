@@ -9,14 +9,20 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "credits")
+@Table(name = "credits",
+       indexes = {
+           @Index(name = "idx_credits_user_type", columnList = "user_id, type"),
+           @Index(name = "idx_credits_user_created", columnList = "user_id, created_at, id") // history keyset
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Credit {
     
+    // Pooled sequence ids (not IDENTITY) so Hibernate can batch ledger inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "credits_seq")
+    @SequenceGenerator(name = "credits_seq", sequenceName = "credits_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -26,8 +32,9 @@ public class Credit {
     @Column(name = "amount", nullable = false)
     private Integer amount;
     
+    @Convert(converter = CreditTypeConverter.class)
     @Column(name = "type", nullable = false)
-    private String type; // 'earned' or 'spent'
+    private CreditType type; // Stored as a SMALLINT code
     
     @Column(name = "source")
     private String source; // Description of how credits were earned/spent
@@ -37,7 +44,7 @@ public class Credit {
     private LocalDateTime createdAt;
     
     // Constructor
-    public Credit(User user, Integer amount, String type, String source) {
+    public Credit(User user, Integer amount, CreditType type, String source) {
         this.user = user;
         this.amount = amount;
         this.type = type;
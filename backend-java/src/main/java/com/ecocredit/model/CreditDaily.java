@@ -0,0 +1,93 @@
+package com.ecocredit.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Earned/spent credits per user per calendar day, kept incrementally by CreditRollupService
+ * as ledger rows are written. Charts and statements read these rows instead of scanning credits.
+ */
+@Entity
+@Table(name = "credit_daily")
+@IdClass(CreditDaily.Key.class)
+public class CreditDaily {
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Id
+    @Column(name = "rollup_day")
+    private LocalDate day; // Calendar day
+    
+    @Column(name = "earned", nullable = false)
+    private Integer earned = 0;
+    
+    @Column(name = "spent", nullable = false)
+    private Integer spent = 0;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Default constructor
+    public CreditDaily() {}
+    
+    // Constructor
+    public CreditDaily(Long userId, LocalDate day, Integer earned, Integer spent) {
+        this.userId = userId;
+        this.day = day;
+        this.earned = earned;
+        this.spent = spent;
+    }
+    
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public LocalDate getDay() { return day; }
+    public void setDay(LocalDate day) { this.day = day; }
+    
+    public Integer getEarned() { return earned; }
+    public void setEarned(Integer earned) { this.earned = earned; }
+    
+    public Integer getSpent() { return spent; }
+    public void setSpent(Integer spent) { this.spent = spent; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    // Composite primary key (user_id, rollup_day)
+    public static class Key implements Serializable {
+        private Long userId;
+        private LocalDate day;
+        
+        public Key() {}
+        
+        public Key(Long userId, LocalDate day) {
+            this.userId = userId;
+            this.day = day;
+        }
+        
+        public Long getUserId() { return userId; }
+        public LocalDate getDay() { return day; }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(userId, key.userId) && Objects.equals(day, key.day);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, day);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.ecocredit.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Earned/spent credits per user per calendar month, kept incrementally by CreditRollupService
+ * as ledger rows are written. Charts and statements read these rows instead of scanning credits.
+ */
+@Entity
+@Table(name = "credit_monthly")
+@IdClass(CreditMonthly.Key.class)
+public class CreditMonthly {
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Id
+    @Column(name = "rollup_month")
+    private LocalDate month; // Calendar month (stored as the first day of the month)
+    
+    @Column(name = "earned", nullable = false)
+    private Integer earned = 0;
+    
+    @Column(name = "spent", nullable = false)
+    private Integer spent = 0;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Default constructor
+    public CreditMonthly() {}
+    
+    // Constructor
+    public CreditMonthly(Long userId, LocalDate month, Integer earned, Integer spent) {
+        this.userId = userId;
+        this.month = month;
+        this.earned = earned;
+        this.spent = spent;
+    }
+    
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public LocalDate getMonth() { return month; }
+    public void setMonth(LocalDate month) { this.month = month; }
+    
+    public Integer getEarned() { return earned; }
+    public void setEarned(Integer earned) { this.earned = earned; }
+    
+    public Integer getSpent() { return spent; }
+    public void setSpent(Integer spent) { this.spent = spent; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    // Composite primary key (user_id, rollup_month)
+    public static class Key implements Serializable {
+        private Long userId;
+        private LocalDate month;
+        
+        public Key() {}
+        
+        public Key(Long userId, LocalDate month) {
+            this.userId = userId;
+            this.month = month;
+        }
+        
+        public Long getUserId() { return userId; }
+        public LocalDate getMonth() { return month; }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(userId, key.userId) && Objects.equals(month, key.month);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, month);
+        }
+    }
+}
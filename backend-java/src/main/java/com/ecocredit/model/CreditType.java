@@ -0,0 +1,59 @@
+package com.ecocredit.model;
+
+/**
+ * Kind of credit ledger row, stored as a small integer code (see CreditTypeConverter).
+ * Codes are persisted, so never renumber an existing constant.
+ */
+public enum CreditType {
+    EARNED(1),      // Credits awarded (step conversion, campaigns); amount is positive
+    SPENT(2),       // Credits spent; amount is positive
+    REDEMPTION(3),  // Reward redemption deduction; amount is negative
+    REFUND(4),      // Refund of a failed redemption; amount is positive
+    CARRY_FORWARD_EARNED(5), // Earned credits of rows moved to the archive (see LedgerArchiveService)
+    CARRY_FORWARD_SPENT(6);  // Spent credits of rows moved to the archive
+    
+    private final short code;
+    
+    CreditType(int code) {
+        this.code = (short) code;
+    }
+    
+    public short getCode() {
+        return code;
+    }
+    
+    public static CreditType fromCode(short code) {
+        for (CreditType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown credit type code: " + code);
+    }
+    
+    /**
+     * Whether rows of this type summarize archived rows rather than record a real credit movement
+     */
+    public boolean isCarryForward() {
+        return this == CARRY_FORWARD_EARNED || this == CARRY_FORWARD_SPENT;
+    }
+    
+    /**
+     * How a row of this type with the given amount changes the user's earned credits
+     */
+    public int earnedDelta(int amount) {
+        return this == EARNED || this == CARRY_FORWARD_EARNED ? amount : 0;
+    }
+    
+    /**
+     * How a row of this type with the given amount changes the user's spent credits
+     * (REDEMPTION rows are negative and REFUND rows reverse them)
+     */
+    public int spentDelta(int amount) {
+        return switch (this) {
+            case SPENT, CARRY_FORWARD_SPENT -> amount;
+            case REDEMPTION, REFUND -> -amount;
+            default -> 0;
+        };
+    }
+}
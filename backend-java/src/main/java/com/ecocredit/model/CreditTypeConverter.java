@@ -0,0 +1,18 @@
+package com.ecocredit.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter(autoApply = true)
+public class CreditTypeConverter implements AttributeConverter<CreditType, Short> {
+    
+    @Override
+    public Short convertToDatabaseColumn(CreditType type) {
+        return type != null ? type.getCode() : null;
+    }
+    
+    @Override
+    public CreditType convertToEntityAttribute(Short code) {
+        return code != null ? CreditType.fromCode(code) : null;
+    }
+}
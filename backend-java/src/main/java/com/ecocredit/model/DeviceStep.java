@@ -0,0 +1,87 @@
+package com.ecocredit.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Highest step count one device has reported for a user's day. Counts only ever go up, so a
+ * resent or out-of-order report never lowers it; the day's Step total is merged from these rows
+ * (see DeviceStepService).
+ */
+@Entity
+@Table(name = "device_steps")
+@IdClass(DeviceStep.Key.class)
+public class DeviceStep {
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Id
+    @Column(name = "device_id", length = 64)
+    private String deviceId;
+    
+    @Id
+    @Column(name = "date")
+    private LocalDate date;
+    
+    @Column(name = "steps", nullable = false)
+    private Integer steps;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Default constructor
+    public DeviceStep() {}
+    
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public String getDeviceId() { return deviceId; }
+    public void setDeviceId(String deviceId) { this.deviceId = deviceId; }
+    
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+    
+    public Integer getSteps() { return steps; }
+    public void setSteps(Integer steps) { this.steps = steps; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    // Composite primary key (user_id, device_id, date)
+    public static class Key implements Serializable {
+        private Long userId;
+        private String deviceId;
+        private LocalDate date;
+        
+        public Key() {}
+        
+        public Key(Long userId, String deviceId, LocalDate date) {
+            this.userId = userId;
+            this.deviceId = deviceId;
+            this.date = date;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(userId, key.userId) && Objects.equals(deviceId, key.deviceId)
+                && Objects.equals(date, key.date);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, deviceId, date);
+        }
+    }
+}
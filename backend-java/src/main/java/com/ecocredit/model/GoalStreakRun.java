@@ -0,0 +1,62 @@
+package com.ecocredit.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * A maximal run of consecutive days on which a user met the daily step goal.
+ * Runs are merged and split by StreakService as days are written, so a streak never has to be
+ * found by walking the day history.
+ */
+@Entity
+@Table(name = "goal_streak_runs",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "start_date"}),
+       indexes = @Index(name = "idx_goal_streak_runs_user_end", columnList = "user_id, end_date"))
+public class GoalStreakRun {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+    
+    @Column(name = "end_date", nullable = false)
+    private LocalDate endDate; // Inclusive
+    
+    @Column(name = "days", nullable = false)
+    private Integer days; // endDate - startDate + 1
+    
+    // Default constructor
+    public GoalStreakRun() {}
+    
+    // Constructor
+    public GoalStreakRun(Long userId, LocalDate startDate, LocalDate endDate) {
+        this.userId = userId;
+        setRange(startDate, endDate);
+    }
+    
+    // Helper methods
+    public void setRange(LocalDate startDate, LocalDate endDate) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.days = (int) (endDate.toEpochDay() - startDate.toEpochDay()) + 1;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public LocalDate getStartDate() { return startDate; }
+    
+    public LocalDate getEndDate() { return endDate; }
+    
+    public Integer getDays() { return days; }
+}
@@ -103,9 +103,9 @@ public class RewardCatalog {
         return true;
     }
     
-    public boolean canUserRedeem(User user, int userDailyRedemptions, int userTotalRedemptions) {
+    public boolean canUserRedeem(int userCredits, int userDailyRedemptions, int userTotalRedemptions) {
         if (!isCurrentlyAvailable()) return false;
-        if (minCreditBalance != null && user.getTotalCredits() < minCreditBalance) return false;
+        if (minCreditBalance != null && userCredits < minCreditBalance) return false;
         if (dailyLimit != null && userDailyRedemptions >= dailyLimit) return false;
         if (totalLimit != null && userTotalRedemptions >= totalLimit) return false;
         
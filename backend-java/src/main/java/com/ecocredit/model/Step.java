@@ -2,13 +2,17 @@ package com.ecocredit.model;
 
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "steps", 
-       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "date"}))
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "date"}),
+       indexes = {@Index(name = "idx_steps_user_updated", columnList = "user_id, updated_at"),
+                  @Index(name = "idx_steps_date", columnList = "date"),
+                  @Index(name = "idx_steps_updated", columnList = "updated_at")})
 public class Step {
     
     @Id
@@ -25,10 +29,17 @@ public class Step {
     @Column(name = "date", nullable = false)
     private LocalDate date;
     
+    @Column(name = "converted_steps", nullable = false)
+    private Integer convertedSteps = 0; // Steps of this day already turned into credits
+    
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt; // Drives incremental conversion (see StepConversionService)
+    
     // Default constructor
     public Step() {}
     
@@ -52,6 +63,12 @@ public class Step {
     public LocalDate getDate() { return date; }
     public void setDate(LocalDate date) { this.date = date; }
     
+    public Integer getConvertedSteps() { return convertedSteps; }
+    public void setConvertedSteps(Integer convertedSteps) { this.convertedSteps = convertedSteps; }
+    
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
 } 
\ No newline at end of file
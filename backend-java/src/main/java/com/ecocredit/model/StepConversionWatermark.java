@@ -0,0 +1,46 @@
+package com.ecocredit.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Per-user position of the step-to-credit conversion: Step rows last changed before
+ * convertedThrough have been fully turned into credits, so a conversion run only reads
+ * rows changed after it. The row is also the per-user lock that serializes conversions.
+ */
+@Entity
+@Table(name = "step_conversion_watermarks")
+public class StepConversionWatermark {
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(name = "converted_through", nullable = false)
+    private LocalDateTime convertedThrough;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Default constructor
+    public StepConversionWatermark() {}
+    
+    // Constructor
+    public StepConversionWatermark(Long userId, LocalDateTime convertedThrough) {
+        this.userId = userId;
+        this.convertedThrough = convertedThrough;
+    }
+    
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public LocalDateTime getConvertedThrough() { return convertedThrough; }
+    public void setConvertedThrough(LocalDateTime convertedThrough) { this.convertedThrough = convertedThrough; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
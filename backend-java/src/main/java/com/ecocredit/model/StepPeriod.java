@@ -0,0 +1,58 @@
+package com.ecocredit.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Bucket size of the step rollups (see StepRollup). Stored by name.
+ */
+public enum StepPeriod {
+    WEEK,   // ISO week, starting Monday
+    MONTH,
+    YEAR;
+    
+    /**
+     * First day of the bucket containing the given day
+     */
+    public LocalDate start(LocalDate day) {
+        switch (this) {
+            case WEEK:
+                return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH:
+                return day.withDayOfMonth(1);
+            default:
+                return day.withDayOfYear(1);
+        }
+    }
+    
+    /**
+     * First day of the bucket after the one starting at the given day
+     */
+    public LocalDate next(LocalDate start) {
+        switch (this) {
+            case WEEK:
+                return start.plusWeeks(1);
+            case MONTH:
+                return start.plusMonths(1);
+            default:
+                return start.plusYears(1);
+        }
+    }
+    
+    /**
+     * Display label of the bucket starting at the given day: 2024-W07, 2024-02 or 2024
+     */
+    public String label(LocalDate start) {
+        switch (this) {
+            case WEEK:
+                return String.format("%d-W%02d", start.get(IsoFields.WEEK_BASED_YEAR),
+                                     start.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            case MONTH:
+                return String.format("%d-%02d", start.getYear(), start.getMonthValue());
+            default:
+                return String.valueOf(start.getYear());
+        }
+    }
+}
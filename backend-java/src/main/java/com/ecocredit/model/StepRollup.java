@@ -0,0 +1,114 @@
+package com.ecocredit.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Step totals per user per week, month and year, kept incrementally by StepRollupService as
+ * daily step totals are written. Stats charts read these rows instead of the daily steps.
+ */
+@Entity
+@Table(name = "step_rollups")
+@IdClass(StepRollup.Key.class)
+public class StepRollup {
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "period", length = 8)
+    private StepPeriod period;
+    
+    @Id
+    @Column(name = "period_start")
+    private LocalDate periodStart; // First day of the week, month or year
+    
+    @Column(name = "total_steps", nullable = false)
+    private Long totalSteps = 0L;
+    
+    @Column(name = "days_tracked", nullable = false)
+    private Integer daysTracked = 0;
+    
+    @Column(name = "best_day_steps", nullable = false)
+    private Integer bestDaySteps = 0;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Default constructor
+    public StepRollup() {}
+    
+    // Constructor
+    public StepRollup(Long userId, StepPeriod period, LocalDate periodStart,
+                      Long totalSteps, Integer daysTracked, Integer bestDaySteps) {
+        this.userId = userId;
+        this.period = period;
+        this.periodStart = periodStart;
+        this.totalSteps = totalSteps;
+        this.daysTracked = daysTracked;
+        this.bestDaySteps = bestDaySteps;
+    }
+    
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public StepPeriod getPeriod() { return period; }
+    public void setPeriod(StepPeriod period) { this.period = period; }
+    
+    public LocalDate getPeriodStart() { return periodStart; }
+    public void setPeriodStart(LocalDate periodStart) { this.periodStart = periodStart; }
+    
+    public Long getTotalSteps() { return totalSteps; }
+    public void setTotalSteps(Long totalSteps) { this.totalSteps = totalSteps; }
+    
+    public Integer getDaysTracked() { return daysTracked; }
+    public void setDaysTracked(Integer daysTracked) { this.daysTracked = daysTracked; }
+    
+    public Integer getBestDaySteps() { return bestDaySteps; }
+    public void setBestDaySteps(Integer bestDaySteps) { this.bestDaySteps = bestDaySteps; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    // Composite primary key (user_id, period, period_start)
+    public static class Key implements Serializable {
+        private Long userId;
+        private StepPeriod period;
+        private LocalDate periodStart;
+        
+        public Key() {}
+        
+        public Key(Long userId, StepPeriod period, LocalDate periodStart) {
+            this.userId = userId;
+            this.period = period;
+            this.periodStart = periodStart;
+        }
+        
+        public Long getUserId() { return userId; }
+        public StepPeriod getPeriod() { return period; }
+        public LocalDate getPeriodStart() { return periodStart; }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(userId, key.userId) && period == key.period
+                && Objects.equals(periodStart, key.periodStart);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, period, periodStart);
+        }
+    }
+}
@@ -101,13 +101,5 @@ public class User {
     public List<Achievement> getAchievements() { return achievements; }
     public void setAchievements(List<Achievement> achievements) { this.achievements = achievements; }
     
-    // Business Logic Methods
-    public Integer getTotalCredits() {
-        if (credits == null || credits.isEmpty()) {
-            return 0;
-        }
-        return credits.stream()
-                .mapToInt(credit -> credit.getAmount())
-                .sum();
-    }
+    // Credit balances are served by BalanceService; don't derive them from the lazy credits collection
 } 
\ No newline at end of file
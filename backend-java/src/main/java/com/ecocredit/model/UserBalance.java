@@ -0,0 +1,58 @@
+package com.ecocredit.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Materialized credit balance per user, kept in step with the credits ledger.
+ * Every Credit insert adjusts this row in the same transaction, so balance
+ * reads are a primary-key lookup instead of a SUM over the ledger.
+ */
+@Entity
+@Table(name = "user_balances")
+public class UserBalance {
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(name = "earned", nullable = false)
+    private Integer earned = 0;
+    
+    @Column(name = "spent", nullable = false)
+    private Integer spent = 0;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Default constructor
+    public UserBalance() {}
+    
+    // Constructor
+    public UserBalance(Long userId, Integer earned, Integer spent) {
+        this.userId = userId;
+        this.earned = earned;
+        this.spent = spent;
+    }
+    
+    // Business Logic Methods
+    public int getAvailable() {
+        return earned - spent;
+    }
+    
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public Integer getEarned() { return earned; }
+    public void setEarned(Integer earned) { this.earned = earned; }
+    
+    public Integer getSpent() { return spent; }
+    public void setSpent(Integer spent) { this.spent = spent; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
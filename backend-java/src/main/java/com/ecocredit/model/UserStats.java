@@ -0,0 +1,127 @@
+package com.ecocredit.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Per-user step aggregates, kept current by every step upsert (see UserStatsService) so the
+ * profile reads one row instead of aggregating the steps table. Also counts successful reward
+ * redemptions, so achievement progress reads every metric it needs from here or user_balances. The row is also the per-user
+ * lock that serializes step writes while their deltas are applied.
+ */
+@Entity
+@Table(name = "user_stats")
+public class UserStats {
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(name = "total_steps", nullable = false)
+    private Long totalSteps = 0L;
+    
+    @Column(name = "days_tracked", nullable = false)
+    private Integer daysTracked = 0;
+    
+    @Column(name = "max_daily_steps", nullable = false)
+    private Integer maxDailySteps = 0;
+    
+    @Column(name = "current_streak", nullable = false)
+    private Integer currentStreak = 0; // Consecutive active days ending at lastActiveDate
+    
+    @Column(name = "last_active_date")
+    private LocalDate lastActiveDate; // Latest day with steps > 0
+    
+    @Column(name = "goal_streak", nullable = false)
+    private Integer goalStreak = 0; // Length of the latest run of days meeting the step goal
+    
+    @Column(name = "goal_streak_end")
+    private LocalDate goalStreakEnd; // Last day of that run
+    
+    @Column(name = "longest_goal_streak", nullable = false)
+    private Integer longestGoalStreak = 0;
+    
+    @Column(name = "streak_milestone", nullable = false)
+    private Integer streakMilestone = 0; // Highest streak milestone already awarded
+    
+    @Column(name = "goal_streaks_built")
+    private Boolean goalStreaksBuilt = false; // Runs exist for the history before the first incremental update
+    
+    @Column(name = "redemptions")
+    private Integer redemptions = 0; // Successful reward redemptions (null on rows created before the counter)
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Default constructor
+    public UserStats() {}
+    
+    // Constructor
+    public UserStats(Long userId) {
+        this.userId = userId;
+    }
+    
+    /**
+     * Streak as seen on a given day: it is still current if the last active day is that day or the one before
+     */
+    public int getCurrentStreak(LocalDate today) {
+        if (lastActiveDate == null || lastActiveDate.isBefore(today.minusDays(1))) {
+            return 0;
+        }
+        return currentStreak;
+    }
+    
+    /**
+     * Goal streak as seen on a given day: it is still current if its last day is that day or the one before
+     */
+    public int getGoalStreak(LocalDate today) {
+        if (goalStreakEnd == null || goalStreakEnd.isBefore(today.minusDays(1))) {
+            return 0;
+        }
+        return goalStreak;
+    }
+    
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public Long getTotalSteps() { return totalSteps; }
+    public void setTotalSteps(Long totalSteps) { this.totalSteps = totalSteps; }
+    
+    public Integer getDaysTracked() { return daysTracked; }
+    public void setDaysTracked(Integer daysTracked) { this.daysTracked = daysTracked; }
+    
+    public Integer getMaxDailySteps() { return maxDailySteps; }
+    public void setMaxDailySteps(Integer maxDailySteps) { this.maxDailySteps = maxDailySteps; }
+    
+    public Integer getCurrentStreak() { return currentStreak; }
+    public void setCurrentStreak(Integer currentStreak) { this.currentStreak = currentStreak; }
+    
+    public LocalDate getLastActiveDate() { return lastActiveDate; }
+    public void setLastActiveDate(LocalDate lastActiveDate) { this.lastActiveDate = lastActiveDate; }
+    
+    public Integer getGoalStreak() { return goalStreak; }
+    public void setGoalStreak(Integer goalStreak) { this.goalStreak = goalStreak; }
+    
+    public LocalDate getGoalStreakEnd() { return goalStreakEnd; }
+    public void setGoalStreakEnd(LocalDate goalStreakEnd) { this.goalStreakEnd = goalStreakEnd; }
+    
+    public Integer getLongestGoalStreak() { return longestGoalStreak; }
+    public void setLongestGoalStreak(Integer longestGoalStreak) { this.longestGoalStreak = longestGoalStreak; }
+    
+    public Integer getStreakMilestone() { return streakMilestone; }
+    public void setStreakMilestone(Integer streakMilestone) { this.streakMilestone = streakMilestone; }
+    
+    public Boolean getGoalStreaksBuilt() { return goalStreaksBuilt; }
+    public void setGoalStreaksBuilt(Boolean goalStreaksBuilt) { this.goalStreaksBuilt = goalStreaksBuilt; }
+    
+    public Integer getRedemptions() { return redemptions; }
+    public void setRedemptions(Integer redemptions) { this.redemptions = redemptions; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,25 @@
+package com.ecocredit.repository;
+
+import com.ecocredit.model.AchievementBackfillChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AchievementBackfillChunkRepository extends JpaRepository<AchievementBackfillChunk, AchievementBackfillChunk.Key> {
+    
+    // Chunks of a job still to process
+    List<AchievementBackfillChunk> findByJobIdAndDoneFalseOrderByChunkIndexAsc(Long jobId);
+    
+    long countByJobIdAndDoneFalse(Long jobId);
+    
+    // Mark a chunk done (returns 0 if it already was)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE AchievementBackfillChunk c SET c.done = true " +
+           "WHERE c.jobId = :jobId AND c.chunkIndex = :chunkIndex AND c.done = false")
+    int markDone(@Param("jobId") Long jobId, @Param("chunkIndex") Integer chunkIndex);
+}
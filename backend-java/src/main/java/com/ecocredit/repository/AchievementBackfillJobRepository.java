@@ -0,0 +1,23 @@
+package com.ecocredit.repository;
+
+import com.ecocredit.model.AchievementBackfillJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AchievementBackfillJobRepository extends JpaRepository<AchievementBackfillJob, Long> {
+    
+    // Jobs in a status (e.g. RUNNING jobs to resume after a restart)
+    List<AchievementBackfillJob> findByStatusOrderByIdAsc(String status);
+    
+    // Count a finished chunk (in the chunk's transaction)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE AchievementBackfillJob j SET j.completedChunks = j.completedChunks + 1, " +
+           "j.unlocked = j.unlocked + :unlocked, j.updatedAt = CURRENT_TIMESTAMP WHERE j.id = :jobId")
+    int addProgress(@Param("jobId") Long jobId, @Param("unlocked") long unlocked);
+}
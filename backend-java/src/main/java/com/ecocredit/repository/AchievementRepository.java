@@ -3,8 +3,11 @@ package com.ecocredit.repository;
 import com.ecocredit.model.Achievement;
 import com.ecocredit.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -21,4 +24,13 @@ public interface AchievementRepository extends JpaRepository<Achievement, Long>
     
     // Find achievement by user and type
     Achievement findByUserAndType(User user, String type);
+    
+    // Types users have unlocked, without loading the rows
+    @Query("SELECT a.user.id AS userId, a.type AS type FROM Achievement a WHERE a.user.id IN :userIds")
+    List<UserType> findTypesByUserIds(@Param("userIds") Collection<Long> userIds);
+    
+    interface UserType {
+        Long getUserId();
+        String getType();
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.ecocredit.repository;
+
+import com.ecocredit.model.ArchivedRedemptions;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ArchivedRedemptionsRepository extends JpaRepository<ArchivedRedemptions, Long> {
+}
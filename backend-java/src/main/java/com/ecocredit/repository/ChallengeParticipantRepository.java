@@ -0,0 +1,33 @@
+package com.ecocredit.repository;
+
+import com.ecocredit.model.ChallengeParticipant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ChallengeParticipantRepository extends JpaRepository<ChallengeParticipant, ChallengeParticipant.Key> {
+    
+    // Count participants of a challenge
+    long countByChallengeId(Long challengeId);
+    
+    // Enrollments of some users in challenges whose window overlaps [from, to]
+    @Query("SELECT p.challengeId AS challengeId, p.userId AS userId, c.startDate AS startDate, c.endDate AS endDate " +
+           "FROM ChallengeParticipant p, StepChallenge c WHERE c.id = p.challengeId AND p.userId IN :userIds " +
+           "AND c.startDate <= :to AND c.endDate >= :from")
+    List<Enrollment> findEnrollments(@Param("userIds") Collection<Long> userIds,
+                                     @Param("from") LocalDate from, @Param("to") LocalDate to);
+    
+    // Interface for an enrollment with its challenge window
+    interface Enrollment {
+        Long getChallengeId();
+        Long getUserId();
+        LocalDate getStartDate();
+        LocalDate getEndDate();
+    }
+}
@@ -0,0 +1,15 @@
+package com.ecocredit.repository;
+
+import com.ecocredit.model.CreditDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface CreditDailyRepository extends JpaRepository<CreditDaily, CreditDaily.Key> {
+    
+    // Buckets for a user in [from, to], oldest first
+    List<CreditDaily> findByUserIdAndDayBetweenOrderByDay(Long userId, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,15 @@
+package com.ecocredit.repository;
+
+import com.ecocredit.model.CreditMonthly;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface CreditMonthlyRepository extends JpaRepository<CreditMonthly, CreditMonthly.Key> {
+    
+    // Buckets for a user in [from, to], oldest first
+    List<CreditMonthly> findByUserIdAndMonthBetweenOrderByMonth(Long userId, LocalDate from, LocalDate to);
+}
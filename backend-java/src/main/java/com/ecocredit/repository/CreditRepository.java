@@ -1,28 +1,121 @@
 package com.ecocredit.repository;
 
 import com.ecocredit.model.Credit;
+import com.ecocredit.model.CreditType;
 import com.ecocredit.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CreditRepository extends JpaRepository<Credit, Long> {
     
-    // Find all credits for a user
-    List<Credit> findByUserOrderByCreatedAtDesc(User user);
+    // First page of a user's credit history, newest first (bounded by the page size).
+    // Carry-forward rows are left out: the rows they summarize are served from the archive instead.
+    @Query("SELECT c.id AS id, c.amount AS amount, c.type AS type, c.source AS source, c.createdAt AS createdAt " +
+           "FROM Credit c WHERE c.user.id = :userId " +
+           "AND c.type NOT IN (com.ecocredit.model.CreditType.CARRY_FORWARD_EARNED, " +
+           "com.ecocredit.model.CreditType.CARRY_FORWARD_SPENT) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CreditHistoryEntry> findHistory(@Param("userId") Long userId, Pageable page);
+    
+    // Next page of credit history: keyset seek past (createdAt, id) of the last row already returned
+    @Query("SELECT c.id AS id, c.amount AS amount, c.type AS type, c.source AS source, c.createdAt AS createdAt " +
+           "FROM Credit c WHERE c.user.id = :userId " +
+           "AND c.type NOT IN (com.ecocredit.model.CreditType.CARRY_FORWARD_EARNED, " +
+           "com.ecocredit.model.CreditType.CARRY_FORWARD_SPENT) " +
+           "AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CreditHistoryEntry> findHistoryAfter(@Param("userId") Long userId,
+                                              @Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") Long id,
+                                              Pageable page);
+    
+    // Whether a user has carry-forward rows, i.e. credits moved to the archive (seek on user_id, type)
+    @Query("SELECT COUNT(c) > 0 FROM Credit c WHERE c.user.id = :userId " +
+           "AND c.type IN (com.ecocredit.model.CreditType.CARRY_FORWARD_EARNED, " +
+           "com.ecocredit.model.CreditType.CARRY_FORWARD_SPENT)")
+    boolean hasCarryForward(@Param("userId") Long userId);
     
     // Find credits by user and type
-    List<Credit> findByUserAndType(User user, String type);
+    List<Credit> findByUserAndType(User user, CreditType type);
     
-    // Sum credits by user and type (for balance calculation)
+    // Sum credits by user and type
     @Query("SELECT COALESCE(SUM(c.amount), 0) FROM Credit c WHERE c.user = :user AND c.type = :type")
-    Integer sumCreditsByUserAndType(@Param("user") User user, @Param("type") String type);
+    Integer sumCreditsByUserAndType(@Param("user") User user, @Param("type") CreditType type);
     
     // Get total credits earned by user
-    @Query("SELECT COALESCE(SUM(c.amount), 0) FROM Credit c WHERE c.user = :user AND c.type = 'earned'")
+    @Query("SELECT COALESCE(SUM(c.amount), 0) FROM Credit c WHERE c.user = :user " +
+           "AND c.type = com.ecocredit.model.CreditType.EARNED")
     Integer getTotalCreditsEarned(@Param("user") User user);
+    
+    // Sum every credit type for one user in a single grouped pass (for balance calculation)
+    @Query("SELECT c.type AS type, COALESCE(SUM(c.amount), 0) AS total FROM Credit c " +
+           "WHERE c.user.id = :userId GROUP BY c.type")
+    List<CreditTypeTotal> sumCreditsByType(@Param("userId") Long userId);
+    
+    // Sum credits per user and type for the users in an id range (used by balance reconciliation)
+    @Query("SELECT c.user.id AS userId, c.type AS type, COALESCE(SUM(c.amount), 0) AS total FROM Credit c " +
+           "WHERE c.user.id BETWEEN :fromUserId AND :toUserId GROUP BY c.user.id, c.type")
+    List<UserCreditTypeTotal> sumCreditsByUserAndTypeBetween(@Param("fromUserId") Long fromUserId,
+                                                             @Param("toUserId") Long toUserId);
+    
+    // Sum credits per user, calendar day and type (used to backfill the daily/monthly rollups)
+    @Query("SELECT c.user.id AS userId, CAST(c.createdAt AS LocalDate) AS day, c.type AS type, " +
+           "COALESCE(SUM(c.amount), 0) AS total FROM Credit c " +
+           "GROUP BY c.user.id, CAST(c.createdAt AS LocalDate), c.type")
+    List<UserDayCreditTypeTotal> sumCreditsByUserDayAndType();
+    
+    // Oldest ledger rows created before the cutoff, with their owner id (archiver batches)
+    @Query("SELECT c.id AS id, c.user.id AS userId, c.amount AS amount, c.type AS type, c.source AS source, " +
+           "c.createdAt AS createdAt FROM Credit c WHERE c.createdAt < :cutoff ORDER BY c.id")
+    List<ArchivableCredit> findArchivable(@Param("cutoff") LocalDateTime cutoff, Pageable page);
+    
+    // Ledger rows after an id, in id order, with their owner id (event ledger catch-up batches)
+    @Query("SELECT c.id AS id, c.user.id AS userId, c.amount AS amount, c.type AS type, c.source AS source, " +
+           "c.createdAt AS createdAt FROM Credit c WHERE c.id > :afterId ORDER BY c.id")
+    List<ArchivableCredit> findAfterId(@Param("afterId") Long afterId, Pageable page);
+    
+    // Delete ledger rows by id (after they were written to the archive)
+    @Modifying
+    @Query("DELETE FROM Credit c WHERE c.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Interface for credit history projection (plain columns only, no User association)
+    interface CreditHistoryEntry {
+        Long getId();
+        Integer getAmount();
+        CreditType getType();
+        String getSource();
+        LocalDateTime getCreatedAt();
+    }
+    
+    // Interface for a ledger row with its owner id (archiving, event ledger catch-up)
+    interface ArchivableCredit extends CreditHistoryEntry {
+        Long getUserId();
+    }
+    
+    // Interface for per-type totals projection
+    interface CreditTypeTotal {
+        CreditType getType();
+        Long getTotal();
+    }
+    
+    // Interface for per-user, per-type totals projection
+    interface UserCreditTypeTotal extends CreditTypeTotal {
+        Long getUserId();
+    }
+    
+    // Interface for per-user, per-day, per-type totals projection
+    interface UserDayCreditTypeTotal extends UserCreditTypeTotal {
+        LocalDate getDay();
+    }
 } 
\ No newline at end of file
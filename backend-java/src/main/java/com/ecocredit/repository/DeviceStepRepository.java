@@ -0,0 +1,24 @@
+package com.ecocredit.repository;
+
+import com.ecocredit.model.DeviceStep;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DeviceStepRepository extends JpaRepository<DeviceStep, DeviceStep.Key> {
+    
+    // Merged total of some days of a user: the highest count any device reported
+    @Query("SELECT d.date AS date, MAX(d.steps) AS steps FROM DeviceStep d " +
+           "WHERE d.userId = :userId AND d.date IN :dates GROUP BY d.date")
+    List<StepRepository.DailySteps> findMergedSteps(@Param("userId") Long userId,
+                                                    @Param("dates") Collection<LocalDate> dates);
+    
+    // Per-device counts of a user's day
+    List<DeviceStep> findByUserIdAndDateOrderByDeviceId(Long userId, LocalDate date);
+}
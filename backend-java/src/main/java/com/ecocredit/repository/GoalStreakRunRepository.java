@@ -0,0 +1,36 @@
+package com.ecocredit.repository;
+
+import com.ecocredit.model.GoalStreakRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Repository
+public interface GoalStreakRunRepository extends JpaRepository<GoalStreakRun, Long> {
+    
+    // Run of a user ending on a day
+    Optional<GoalStreakRun> findByUserIdAndEndDate(Long userId, LocalDate endDate);
+    
+    // Run of a user starting on a day
+    Optional<GoalStreakRun> findByUserIdAndStartDate(Long userId, LocalDate startDate);
+    
+    // Latest run of a user starting on or before a day (the one containing it, if any)
+    Optional<GoalStreakRun> findFirstByUserIdAndStartDateLessThanEqualOrderByStartDateDesc(Long userId, LocalDate day);
+    
+    // Latest run of a user
+    Optional<GoalStreakRun> findFirstByUserIdOrderByEndDateDesc(Long userId);
+    
+    // Longest run of a user
+    @Query("SELECT COALESCE(MAX(r.days), 0) FROM GoalStreakRun r WHERE r.userId = :userId")
+    Integer findLongestDays(@Param("userId") Long userId);
+    
+    // Drop all runs of a user (before rebuilding them)
+    @Modifying
+    @Query("DELETE FROM GoalStreakRun r WHERE r.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
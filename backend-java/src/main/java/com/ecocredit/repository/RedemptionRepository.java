@@ -3,6 +3,7 @@ package com.ecocredit.repository;
 import com.ecocredit.model.Redemption;
 import com.ecocredit.model.User;
 import com.ecocredit.model.RewardCatalog;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -56,6 +57,25 @@ public interface RedemptionRepository extends JpaRepository<Redemption, Long> {
     // Find redemptions that need processing
     List<Redemption> findByStatusOrderByRedeemedAtAsc(Redemption.RedemptionStatus status);
     
+    // Count user's successful redemptions (voucher issued, whether used yet or not), archived ones included
+    @Query("SELECT COUNT(r) + COALESCE((SELECT CAST(a.completed + a.used AS Long) FROM ArchivedRedemptions a " +
+           "WHERE a.userId = :userId), 0) " +
+           "FROM Redemption r WHERE r.user.id = :userId " +
+           "AND r.status IN ('COMPLETED', 'USED')")
+    long countSuccessfulByUserId(@Param("userId") Long userId);
+    
+    // Count successful redemptions per user in an id range, archived ones included (achievement backfill)
+    @Query("SELECT t.userId AS userId, SUM(t.successful) AS value FROM (" +
+           "SELECT r.user.id AS userId, COUNT(r) AS successful FROM Redemption r " +
+           "WHERE r.user.id BETWEEN :fromUserId AND :toUserId AND r.status IN ('COMPLETED', 'USED') " +
+           "GROUP BY r.user.id " +
+           "UNION ALL " +
+           "SELECT a.userId AS userId, CAST(a.completed + a.used AS Long) AS successful FROM ArchivedRedemptions a " +
+           "WHERE a.userId BETWEEN :fromUserId AND :toUserId AND a.completed + a.used > 0" +
+           ") t GROUP BY t.userId")
+    List<UserStatsRepository.UserMetric> countSuccessfulBetween(@Param("fromUserId") Long fromUserId,
+                                                                @Param("toUserId") Long toUserId);
+    
     // Get user's total redeemed credits
     @Query("SELECT COALESCE(SUM(r.creditCost), 0) FROM Redemption r WHERE r.user = :user")
     Integer getTotalRedeemedCreditsByUser(@Param("user") User user);
@@ -92,6 +112,17 @@ public interface RedemptionRepository extends JpaRepository<Redemption, Long> {
     List<Redemption> findRecentRedemptions(@Param("user") User user, 
                                          @Param("thirtyDaysAgo") LocalDateTime thirtyDaysAgo);
     
+    // Settled redemptions older than the cutoff (archiver batches). Redemptions of rewards with a
+    // lifetime limit stay hot because countByUserAndReward enforces that limit.
+    @Query("SELECT r FROM Redemption r WHERE r.redeemedAt < :cutoff " +
+           "AND r.reward.totalLimit IS NULL " +
+           "AND (r.status IN ('USED', 'EXPIRED', 'FAILED', 'CANCELLED') " +
+           "OR (r.status = 'COMPLETED' AND r.expiryDate IS NOT NULL AND r.expiryDate < :now)) " +
+           "ORDER BY r.id")
+    List<Redemption> findArchivable(@Param("cutoff") LocalDateTime cutoff,
+                                    @Param("now") LocalDateTime now,
+                                    Pageable page);
+    
     // Interface for user redemption statistics projection
     interface UserRedemptionStats {
         Long getTotalRedemptions();
@@ -0,0 +1,19 @@
+package com.ecocredit.repository;
+
+import com.ecocredit.model.StepChallenge;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface StepChallengeRepository extends JpaRepository<StepChallenge, Long> {
+    
+    // Active challenges that haven't ended by the given day, with their partners, soonest first
+    @Query("SELECT c FROM StepChallenge c JOIN FETCH c.partner WHERE c.isActive = true AND c.endDate >= :day " +
+           "ORDER BY c.startDate")
+    List<StepChallenge> findOpenChallenges(@Param("day") LocalDate day);
+}
@@ -0,0 +1,20 @@
+package com.ecocredit.repository;
+
+import com.ecocredit.model.StepConversionWatermark;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface StepConversionWatermarkRepository extends JpaRepository<StepConversionWatermark, Long> {
+    
+    // Load a user's watermark with a row lock held until the transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM StepConversionWatermark w WHERE w.userId = :userId")
+    Optional<StepConversionWatermark> findForUpdate(@Param("userId") Long userId);
+}
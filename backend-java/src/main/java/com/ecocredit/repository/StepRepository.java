@@ -2,12 +2,16 @@ package com.ecocredit.repository;
 
 import com.ecocredit.model.Step;
 import com.ecocredit.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,4 +30,96 @@ public interface StepRepository extends JpaRepository<Step, Long> {
     
     // Get steps for a date range
     List<Step> findByUserAndDateBetweenOrderByDateDesc(User user, LocalDate startDate, LocalDate endDate);
-} 
\ No newline at end of file
+    
+    // Every tracked day of a user as (date, steps) pairs, for loading StepTimeSeriesStore
+    @Query("SELECT s.date AS date, s.steps AS steps FROM Step s WHERE s.user.id = :userId")
+    List<DailySteps> findDailyStepsByUserId(@Param("userId") Long userId);
+    
+    // Stored totals of some days of a user (the values an upsert is about to replace)
+    @Query("SELECT s.date AS date, s.steps AS steps FROM Step s WHERE s.user.id = :userId AND s.date IN :dates")
+    List<DailySteps> findDailyStepsByUserIdAndDateIn(@Param("userId") Long userId,
+                                                     @Param("dates") Collection<LocalDate> dates);
+    
+    // Highest daily total of a user
+    @Query("SELECT COALESCE(MAX(s.steps), 0) FROM Step s WHERE s.user.id = :userId")
+    Integer findMaxDailySteps(@Param("userId") Long userId);
+    
+    // Users in an id range with stored steps but no stats row with built streak runs (achievement backfill)
+    @Query("SELECT DISTINCT s.user.id FROM Step s WHERE s.user.id BETWEEN :fromUserId AND :toUserId " +
+           "AND NOT EXISTS (SELECT u.userId FROM UserStats u WHERE u.userId = s.user.id AND u.goalStreaksBuilt = true)")
+    List<Long> findUserIdsWithoutBuiltStatsBetween(@Param("fromUserId") Long fromUserId,
+                                                   @Param("toUserId") Long toUserId);
+    
+    // Highest daily total of a user in [from, to]
+    @Query("SELECT COALESCE(MAX(s.steps), 0) FROM Step s WHERE s.user.id = :userId AND s.date BETWEEN :from AND :to")
+    Integer findMaxDailyStepsBetween(@Param("userId") Long userId, @Param("from") LocalDate from,
+                                     @Param("to") LocalDate to);
+    
+    // Every stored day of every user, for rebuilding rollups
+    @Query("SELECT s.user.id AS userId, s.date AS date, s.steps AS steps FROM Step s")
+    List<UserDailySteps> findAllDailySteps();
+    
+    // Step total of a user in [from, to]
+    @Query("SELECT COALESCE(SUM(s.steps), 0) FROM Step s WHERE s.user.id = :userId AND s.date BETWEEN :from AND :to")
+    Long sumStepsBetween(@Param("userId") Long userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+    
+    // Users with steps on a day, with that day's total
+    @Query("SELECT s.user.id AS userId, s.steps AS steps FROM Step s WHERE s.date = :date AND s.steps > 0")
+    List<UserTotal> findUserTotalsOn(@Param("date") LocalDate date);
+    
+    // Some users' totals on a day
+    @Query("SELECT s.user.id AS userId, s.steps AS steps FROM Step s WHERE s.date = :date AND s.user.id IN :userIds")
+    List<UserTotal> findUserTotalsOn(@Param("date") LocalDate date, @Param("userIds") Collection<Long> userIds);
+    
+    // Step totals of a challenge's participants in [from, to]
+    @Query("SELECT s.user.id AS userId, SUM(s.steps) AS steps FROM Step s, ChallengeParticipant p " +
+           "WHERE p.challengeId = :challengeId AND s.user.id = p.userId AND s.date BETWEEN :from AND :to " +
+           "GROUP BY s.user.id")
+    List<UserTotal> sumChallengeSteps(@Param("challengeId") Long challengeId,
+                                      @Param("from") LocalDate from, @Param("to") LocalDate to);
+    
+    // Step totals of some of a challenge's participants in [from, to]
+    @Query("SELECT s.user.id AS userId, SUM(s.steps) AS steps FROM Step s, ChallengeParticipant p " +
+           "WHERE p.challengeId = :challengeId AND s.user.id = p.userId AND s.date BETWEEN :from AND :to " +
+           "AND p.userId IN :userIds GROUP BY s.user.id")
+    List<UserTotal> sumChallengeSteps(@Param("challengeId") Long challengeId,
+                                      @Param("from") LocalDate from, @Param("to") LocalDate to,
+                                      @Param("userIds") Collection<Long> userIds);
+    
+    // Users with a day written since the given instant
+    @Query("SELECT DISTINCT s.user.id FROM Step s WHERE s.updatedAt >= :since")
+    List<Long> findUserIdsChangedSince(@Param("since") LocalDateTime since);
+    
+    // Active days (steps > 0) of a user up to a date, newest first
+    @Query("SELECT s.date FROM Step s WHERE s.user.id = :userId AND s.steps > 0 AND s.date <= :through " +
+           "ORDER BY s.date DESC")
+    List<LocalDate> findActiveDatesThrough(@Param("userId") Long userId, @Param("through") LocalDate through,
+                                           Pageable pageable);
+    
+    // Days changed since the given instant that still hold steps not turned into credits
+    @Query("SELECT s FROM Step s WHERE s.user.id = :userId AND s.updatedAt >= :since " +
+           "AND s.steps > s.convertedSteps ORDER BY s.date")
+    List<Step> findUnconvertedSince(@Param("userId") Long userId, @Param("since") LocalDateTime since);
+    
+    // Record how many steps of a day have been converted (bulk update, so updated_at is left alone)
+    @Modifying
+    @Query("UPDATE Step s SET s.convertedSteps = :convertedSteps WHERE s.id = :id")
+    int markConverted(@Param("id") Long id, @Param("convertedSteps") int convertedSteps);
+    
+    // Interface for daily steps projection
+    interface DailySteps {
+        LocalDate getDate();
+        Integer getSteps();
+    }
+    
+    // Interface for daily steps of any user
+    interface UserDailySteps extends DailySteps {
+        Long getUserId();
+    }
+    
+    // Interface for a per-user step total (a day or a sum)
+    interface UserTotal {
+        Long getUserId();
+        Number getSteps();
+    }
+}
@@ -0,0 +1,41 @@
+package com.ecocredit.repository;
+
+import com.ecocredit.model.StepPeriod;
+import com.ecocredit.model.StepRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StepRollupRepository extends JpaRepository<StepRollup, StepRollup.Key> {
+    
+    // Buckets of one size for a user starting in [from, to], oldest first
+    List<StepRollup> findByUserIdAndPeriodAndPeriodStartBetweenOrderByPeriodStart(Long userId, StepPeriod period,
+                                                                                  LocalDate from, LocalDate to);
+    
+    // Every user's bucket starting on a day
+    @Query("SELECT r.userId AS userId, r.totalSteps AS steps FROM StepRollup r " +
+           "WHERE r.period = :period AND r.periodStart = :start AND r.totalSteps > 0")
+    List<StepRepository.UserTotal> findUserTotals(@Param("period") StepPeriod period, @Param("start") LocalDate start);
+    
+    // Some users' buckets starting on a day
+    @Query("SELECT r.userId AS userId, r.totalSteps AS steps FROM StepRollup r " +
+           "WHERE r.period = :period AND r.periodStart = :start AND r.userId IN :userIds")
+    List<StepRepository.UserTotal> findUserTotals(@Param("period") StepPeriod period, @Param("start") LocalDate start,
+                                                  @Param("userIds") Collection<Long> userIds);
+    
+    // All-time step total of every user, summed over their year buckets
+    @Query("SELECT r.userId AS userId, SUM(r.totalSteps) AS steps FROM StepRollup r " +
+           "WHERE r.period = com.ecocredit.model.StepPeriod.YEAR GROUP BY r.userId")
+    List<StepRepository.UserTotal> sumAllTimeTotals();
+    
+    // All-time step totals of some users
+    @Query("SELECT r.userId AS userId, SUM(r.totalSteps) AS steps FROM StepRollup r " +
+           "WHERE r.period = com.ecocredit.model.StepPeriod.YEAR AND r.userId IN :userIds GROUP BY r.userId")
+    List<StepRepository.UserTotal> sumAllTimeTotals(@Param("userIds") Collection<Long> userIds);
+}
@@ -0,0 +1,33 @@
+package com.ecocredit.repository;
+
+import com.ecocredit.model.UserBalance;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface UserBalanceRepository extends JpaRepository<UserBalance, Long> {
+    
+    // Apply a ledger delta in place (returns 0 when the user has no projection row yet)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserBalance b SET b.earned = b.earned + :earned, b.spent = b.spent + :spent, " +
+           "b.updatedAt = CURRENT_TIMESTAMP WHERE b.userId = :userId")
+    int applyDelta(@Param("userId") Long userId, @Param("earned") int earned, @Param("spent") int spent);
+    
+    // Load the projection rows of an id range with row locks held until the transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM UserBalance b WHERE b.userId BETWEEN :fromUserId AND :toUserId")
+    List<UserBalance> findForUpdateBetween(@Param("fromUserId") Long fromUserId, @Param("toUserId") Long toUserId);
+    
+    // Lifetime earned credits of the users in an id range (achievement backfill)
+    @Query("SELECT b.userId AS userId, b.earned AS value FROM UserBalance b " +
+           "WHERE b.userId BETWEEN :fromUserId AND :toUserId AND b.earned > 0")
+    List<UserStatsRepository.UserMetric> findEarnedBetween(@Param("fromUserId") Long fromUserId,
+                                                           @Param("toUserId") Long toUserId);
+}
@@ -23,6 +23,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Check if user exists by Google ID
     boolean existsByGoogleId(String googleId);
     
+    // Highest user id (0 without users), the end of the id space batch jobs split into chunks
+    @Query("SELECT COALESCE(MAX(u.id), 0) FROM User u")
+    Long findMaxUserId();
+    
     // Get user stats (equivalent to Node.js profile queries)
     @Query("SELECT " +
            "COALESCE(SUM(s.steps), 0) as totalSteps, " +
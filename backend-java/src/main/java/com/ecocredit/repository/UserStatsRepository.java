@@ -0,0 +1,37 @@
+package com.ecocredit.repository;
+
+import com.ecocredit.model.UserStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserStatsRepository extends JpaRepository<UserStats, Long> {
+    
+    // Load a user's stats with a row lock held until the transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UserStats s WHERE s.userId = :userId")
+    Optional<UserStats> findForUpdate(@Param("userId") Long userId);
+    
+    // Best single-day steps of the users in an id range (achievement backfill)
+    @Query("SELECT s.userId AS userId, s.maxDailySteps AS value FROM UserStats s " +
+           "WHERE s.userId BETWEEN :fromUserId AND :toUserId AND s.maxDailySteps > 0")
+    List<UserMetric> findMaxDailyStepsBetween(@Param("fromUserId") Long fromUserId, @Param("toUserId") Long toUserId);
+    
+    // Longest goal streaks of the users in an id range whose streak runs are built (achievement backfill)
+    @Query("SELECT s.userId AS userId, s.longestGoalStreak AS value FROM UserStats s " +
+           "WHERE s.userId BETWEEN :fromUserId AND :toUserId AND s.goalStreaksBuilt = true AND s.longestGoalStreak > 0")
+    List<UserMetric> findLongestGoalStreaksBetween(@Param("fromUserId") Long fromUserId, @Param("toUserId") Long toUserId);
+    
+    // Interface for a per-user metric value
+    interface UserMetric {
+        Long getUserId();
+        Number getValue();
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +21,9 @@ public interface VoucherCodeRepository extends JpaRepository<VoucherCode, Long>
     // Find voucher codes by redemption
     List<VoucherCode> findByRedemption(Redemption redemption);
     
+    // Find voucher codes of several redemptions at once
+    List<VoucherCode> findByRedemptionIdIn(Collection<Long> redemptionIds);
+    
     // Find unused voucher codes
     List<VoucherCode> findByIsUsedFalse();
     
@@ -0,0 +1,300 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.AchievementBackfillChunk;
+import com.ecocredit.model.AchievementBackfillJob;
+import com.ecocredit.repository.AchievementBackfillChunkRepository;
+import com.ecocredit.repository.AchievementBackfillJobRepository;
+import com.ecocredit.repository.RedemptionRepository;
+import com.ecocredit.repository.StepRepository;
+import com.ecocredit.repository.UserBalanceRepository;
+import com.ecocredit.repository.UserRepository;
+import com.ecocredit.repository.UserStatsRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Grants achievement types to existing users who already qualify for them. Checks only run when a
+ * metric changes, so without this a newly added badge would never reach users whose qualifying
+ * steps, credits, streak or redemptions happened before it existed.
+ *
+ * A job splits the user id space [1, max id] into ranges of ecocredit.achievements.backfill.chunk-size
+ * ids, stored as AchievementBackfillChunk rows, and processes them in parallel on a fork-join pool
+ * (ecocredit.achievements.backfill.parallelism). Each chunk reads the stored per-user values of the
+ * metrics its rules depend on (user_stats, user_balances, redemptions) with one range query per
+ * metric, then writes unlocks in one insert-if-absent batch (see AchievementService.grant). In the
+ * same transaction it marks itself done and advances the job's counters. Jobs left RUNNING by a
+ * crash resume at startup with the chunks not marked done, and a re-run chunk can't duplicate a row.
+ *
+ * user_stats rows are created on a user's first step write and streak runs built on the next one, so
+ * for step and streak rules a chunk first creates and builds them for its users with stored steps
+ * that lack them; users whose history predates the badge and who haven't written since are covered too.
+ */
+@Service
+public class AchievementBackfillService {
+    
+    private final AchievementBackfillJobRepository jobRepository;
+    private final AchievementBackfillChunkRepository chunkRepository;
+    private final UserRepository userRepository;
+    private final UserStatsRepository userStatsRepository;
+    private final UserBalanceRepository userBalanceRepository;
+    private final RedemptionRepository redemptionRepository;
+    private final StepRepository stepRepository;
+    private final UserStatsService userStatsService;
+    private final StreakService streakService;
+    private final AchievementService achievementService;
+    private final AchievementRuleEngine ruleEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+    
+    // Jobs being processed by this instance
+    private final Set<Long> active = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopping;
+    
+    public AchievementBackfillService(AchievementBackfillJobRepository jobRepository,
+                                      AchievementBackfillChunkRepository chunkRepository,
+                                      UserRepository userRepository,
+                                      UserStatsRepository userStatsRepository,
+                                      UserBalanceRepository userBalanceRepository,
+                                      RedemptionRepository redemptionRepository,
+                                      StepRepository stepRepository,
+                                      UserStatsService userStatsService,
+                                      StreakService streakService,
+                                      AchievementService achievementService,
+                                      AchievementRuleEngine ruleEngine,
+                                      TransactionTemplate transactionTemplate,
+                                      @Value("${ecocredit.achievements.backfill.chunk-size:1000}") int chunkSize,
+                                      @Value("${ecocredit.achievements.backfill.parallelism:4}") int parallelism) {
+        this.jobRepository = jobRepository;
+        this.chunkRepository = chunkRepository;
+        this.userRepository = userRepository;
+        this.userStatsRepository = userStatsRepository;
+        this.userBalanceRepository = userBalanceRepository;
+        this.redemptionRepository = redemptionRepository;
+        this.stepRepository = stepRepository;
+        this.userStatsService = userStatsService;
+        this.streakService = streakService;
+        this.achievementService = achievementService;
+        this.ruleEngine = ruleEngine;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+    
+    /**
+     * Resume jobs a previous run of the application left unfinished
+     */
+    @PostConstruct
+    public void resumeUnfinished() {
+        for (AchievementBackfillJob job : jobRepository.findByStatusOrderByIdAsc(AchievementBackfillJob.RUNNING)) {
+            System.out.printf("🏅 Resuming achievement backfill job %d (%d/%d chunks done)%n",
+                              job.getId(), job.getCompletedChunks(), job.getTotalChunks());
+            submit(job.getId());
+        }
+    }
+    
+    /**
+     * Start granting achievement types to every user who already qualifies (runs in the background)
+     * @param types Achievement types defined by the rules (see AchievementRuleEngine)
+     * @return The new job, to poll with getJob
+     */
+    public AchievementBackfillJob start(Collection<String> types) {
+        Set<String> distinct = new LinkedHashSet<>(types);
+        if (distinct.isEmpty()) {
+            throw new IllegalArgumentException("No achievement types given");
+        }
+        for (String type : distinct) {
+            if (ruleEngine.bitOf(type) == 0) {
+                throw new IllegalArgumentException("Unknown achievement type: " + type);
+            }
+        }
+        
+        AchievementBackfillJob job = transactionTemplate.execute(status -> {
+            if (!jobRepository.findByStatusOrderByIdAsc(AchievementBackfillJob.RUNNING).isEmpty()) {
+                throw new IllegalStateException("An achievement backfill job is already running");
+            }
+            long maxUserId = userRepository.findMaxUserId();
+            int chunks = (int) ((maxUserId + chunkSize - 1) / chunkSize);
+            AchievementBackfillJob created = jobRepository.save(new AchievementBackfillJob(String.join(",", distinct), chunks));
+            
+            List<AchievementBackfillChunk> ranges = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                long from = (long) i * chunkSize + 1;
+                ranges.add(new AchievementBackfillChunk(created.getId(), i, from, Math.min(maxUserId, from + chunkSize - 1)));
+            }
+            chunkRepository.saveAll(ranges);
+            return created;
+        });
+        
+        submit(job.getId());
+        return job;
+    }
+    
+    /**
+     * Re-run the unfinished chunks of a failed (or interrupted) job
+     * @param jobId Job to resume
+     * @return The job
+     */
+    public AchievementBackfillJob resume(Long jobId) {
+        AchievementBackfillJob job = transactionTemplate.execute(status -> {
+            AchievementBackfillJob found = jobRepository.findById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("Backfill job not found"));
+            if (AchievementBackfillJob.COMPLETED.equals(found.getStatus())) {
+                throw new IllegalStateException("Backfill job already completed");
+            }
+            found.setStatus(AchievementBackfillJob.RUNNING);
+            found.setError(null);
+            return jobRepository.save(found);
+        });
+        
+        submit(jobId);
+        return job;
+    }
+    
+    /**
+     * Get a job with its progress
+     */
+    public Optional<AchievementBackfillJob> getJob(Long jobId) {
+        return jobRepository.findById(jobId);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        // Unfinished chunks stay pending and their jobs RUNNING, so they resume on the next start
+        stopping = true;
+        pool.shutdownNow();
+    }
+    
+    private void submit(Long jobId) {
+        if (!active.add(jobId)) {
+            return;
+        }
+        pool.execute(() -> {
+            try {
+                run(jobId);
+            } finally {
+                active.remove(jobId);
+            }
+        });
+    }
+    
+    private void run(Long jobId) {
+        long started = System.nanoTime();
+        AchievementBackfillJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        long mask = 0;
+        for (String type : job.getTypes().split(",")) {
+            mask |= ruleEngine.bitOf(type);
+        }
+        if (mask == 0) {
+            finish(jobId, "No rule defines the job's achievement types any more");
+            return;
+        }
+        
+        long rules = mask;
+        AtomicReference<String> error = new AtomicReference<>();
+        // Runs on this pool's workers, since the stream is started from one of them
+        chunkRepository.findByJobIdAndDoneFalseOrderByChunkIndexAsc(jobId).parallelStream().forEach(chunk -> {
+            if (stopping) {
+                return;
+            }
+            try {
+                runChunk(chunk, rules);
+            } catch (RuntimeException e) {
+                error.compareAndSet(null, "Chunk " + chunk.getChunkIndex() + ": " + e.getMessage());
+            }
+        });
+        if (stopping) {
+            return;
+        }
+        
+        long remaining = chunkRepository.countByJobIdAndDoneFalse(jobId);
+        finish(jobId, remaining == 0 ? null
+                      : error.get() != null ? error.get() : remaining + " chunks were not processed");
+        System.out.printf("🏅 Achievement backfill job %d ran in %d ms%n", jobId, (System.nanoTime() - started) / 1_000_000);
+    }
+    
+    // Grant one id range's unlocks and mark the range done, atomically
+    private void runChunk(AchievementBackfillChunk chunk, long rules) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if ((rules & (ruleEngine.evaluate(AchievementRuleEngine.Metric.STEPS, Long.MAX_VALUE)
+                          | ruleEngine.evaluate(AchievementRuleEngine.Metric.STREAK, Long.MAX_VALUE))) != 0) {
+                prepareStats(chunk.getFromUserId(), chunk.getToUserId());
+            }
+            
+            Map<Long, Long> reached = new HashMap<>();
+            for (AchievementRuleEngine.Metric metric : AchievementRuleEngine.Metric.values()) {
+                long metricRules = rules & ruleEngine.evaluate(metric, Long.MAX_VALUE);
+                if (metricRules == 0) {
+                    continue;
+                }
+                for (UserStatsRepository.UserMetric row : findValues(metric, chunk.getFromUserId(), chunk.getToUserId())) {
+                    long bits = metricRules & ruleEngine.evaluate(metric, row.getValue().longValue());
+                    if (bits != 0) {
+                        reached.merge(row.getUserId(), bits, (a, b) -> a | b);
+                    }
+                }
+            }
+            
+            int unlocked = reached.isEmpty() ? 0 : achievementService.grant(reached).size();
+            if (chunkRepository.markDone(chunk.getJobId(), chunk.getChunkIndex()) == 1) {
+                jobRepository.addProgress(chunk.getJobId(), unlocked);
+            }
+        });
+    }
+    
+    // Create the missing stats rows and streak runs of an id range, so findValues sees every user with steps
+    private void prepareStats(Long fromUserId, Long toUserId) {
+        List<Long> userIds = stepRepository.findUserIdsWithoutBuiltStatsBetween(fromUserId, toUserId);
+        if (!userIds.isEmpty()) {
+            streakService.buildRuns(userStatsService.lockStats(userIds).values());
+        }
+    }
+    
+    // Stored per-user values of a metric for an id range
+    private List<UserStatsRepository.UserMetric> findValues(AchievementRuleEngine.Metric metric, Long fromUserId, Long toUserId) {
+        switch (metric) {
+            case STEPS:
+                return userStatsRepository.findMaxDailyStepsBetween(fromUserId, toUserId);
+            case STREAK:
+                return userStatsRepository.findLongestGoalStreaksBetween(fromUserId, toUserId);
+            case CREDITS:
+                return userBalanceRepository.findEarnedBetween(fromUserId, toUserId);
+            case REDEMPTIONS:
+                return redemptionRepository.countSuccessfulBetween(fromUserId, toUserId);
+            default:
+                throw new IllegalArgumentException("Unsupported metric " + metric);
+        }
+    }
+    
+    private void finish(Long jobId, String error) {
+        transactionTemplate.executeWithoutResult(status -> jobRepository.findById(jobId).ifPresent(job -> {
+            if (error == null) {
+                job.setStatus(AchievementBackfillJob.COMPLETED);
+                job.setCompletedAt(LocalDateTime.now());
+            } else {
+                job.setStatus(AchievementBackfillJob.FAILED);
+                job.setError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            }
+            jobRepository.save(job);
+        }));
+    }
+}
@@ -0,0 +1,185 @@
+package com.ecocredit.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves achievement evaluation off the request path. Step and credit writes publish metric events
+ * once their transaction commits; a pool of ecocredit.achievements.workers threads drains them in
+ * batches of up to ecocredit.achievements.batch-size, folds each batch to one set of changed metrics
+ * per user and hands it to AchievementService.evaluate, which writes the batch's unlocks with one
+ * batch insert and notifies after commit.
+ *
+ * Events are partitioned by user, one bounded queue per worker, so a user's events are always
+ * evaluated in order by the same worker. Events carry no values: the worker reads each metric's
+ * stored current value (best day in user_stats, lifetime credits, redemption count), so an event
+ * dropped because its queue is full, or lost in a batch that failed to evaluate, is made up for by
+ * the user's next event on that metric (or by an achievement backfill). Both are counted.
+ */
+@Service
+public class AchievementEventQueue {
+    
+    private static final long POLL_MS = 500;
+    
+    private final AchievementService achievementService;
+    private final int batchSize;
+    private final List<BlockingQueue<Event>> partitions = new ArrayList<>();
+    private final ExecutorService workers;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean running = true;
+    
+    public AchievementEventQueue(AchievementService achievementService,
+                                 @Value("${ecocredit.achievements.workers:2}") int workers,
+                                 @Value("${ecocredit.achievements.batch-size:500}") int batchSize,
+                                 @Value("${ecocredit.achievements.queue-capacity:10000}") int capacity) {
+        this.achievementService = achievementService;
+        this.batchSize = Math.max(1, batchSize);
+        int workerCount = Math.max(1, workers);
+        for (int i = 0; i < workerCount; i++) {
+            partitions.add(new ArrayBlockingQueue<>(Math.max(1, capacity / workerCount)));
+        }
+        this.workers = Executors.newFixedThreadPool(workerCount, task -> {
+            Thread thread = new Thread(task, "achievement-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PostConstruct
+    public void start() {
+        for (BlockingQueue<Event> partition : partitions) {
+            workers.submit(() -> drain(partition));
+        }
+    }
+    
+    /**
+     * Publish a metric change; the worker reads the metric's current value when it evaluates the event
+     * (best day of steps, lifetime credits, redemption count). Inside a transaction the event is
+     * queued only if it commits.
+     * @param userId User whose metric changed
+     * @param metric Metric that changed
+     */
+    public void publish(Long userId, AchievementRuleEngine.Metric metric) {
+        enqueue(new Event(userId, metric));
+    }
+    
+    /**
+     * Number of events waiting to be evaluated
+     */
+    public int getPendingCount() {
+        return partitions.stream().mapToInt(BlockingQueue::size).sum();
+    }
+    
+    /**
+     * Number of events dropped because their queue was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+    
+    /**
+     * Number of events lost because evaluating their batch failed
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        workers.shutdown();
+        workers.awaitTermination(POLL_MS * 4, TimeUnit.MILLISECONDS);
+        // Evaluate whatever is still queued before the context goes away
+        for (BlockingQueue<Event> partition : partitions) {
+            List<Event> batch = new ArrayList<>();
+            while (partition.drainTo(batch, batchSize) > 0) {
+                evaluate(batch);
+                batch.clear();
+            }
+        }
+    }
+    
+    private void enqueue(Event event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offer(event);
+                }
+            });
+        } else {
+            offer(event);
+        }
+    }
+    
+    private void offer(Event event) {
+        BlockingQueue<Event> partition = partitions.get((Long.hashCode(event.userId) & 0x7fffffff) % partitions.size());
+        if (!partition.offer(event)) {
+            // Never block the writer; the user's next event on this metric re-evaluates it
+            dropped.incrementAndGet();
+        }
+    }
+    
+    private void drain(BlockingQueue<Event> partition) {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Event first = partition.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                partition.drainTo(batch, batchSize - 1);
+                evaluate(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void evaluate(List<Event> batch) {
+        // userId -> (metric -> null: the current value is read)
+        Map<Long, Map<AchievementRuleEngine.Metric, Long>> changes = new LinkedHashMap<>();
+        for (Event event : batch) {
+            changes.computeIfAbsent(event.userId, id -> new EnumMap<>(AchievementRuleEngine.Metric.class))
+                .put(event.metric, null);
+        }
+        
+        try {
+            achievementService.evaluate(changes);
+        } catch (RuntimeException e) {
+            failed.addAndGet(batch.size());
+            System.err.println("Failed to evaluate achievements for " + changes.size() + " users: " + e.getMessage());
+        }
+    }
+    
+    private static class Event {
+        final Long userId;
+        final AchievementRuleEngine.Metric metric;
+        
+        Event(Long userId, AchievementRuleEngine.Metric metric) {
+            this.userId = userId;
+            this.metric = metric;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.ecocredit.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Declarative achievement rules: "unlock type T once metric M reaches threshold N".
+ * Definitions are read at startup from ecocredit.achievements.rules (a JSON array, by default
+ * classpath:achievements.json), so a new badge is a new entry rather than new code.
+ *
+ * Rules are compiled into one plan per metric: thresholds sorted ascending next to the bitmask of
+ * every rule at or below each threshold. Evaluating a metric walks only that metric's thresholds
+ * and stops at the first one not reached, so the cost of an update is independent of how many
+ * badges other metrics have. Each rule owns one bit of a long, which is what AchievementService
+ * caches per user.
+ */
+@Component
+public class AchievementRuleEngine {
+    
+    public enum Metric {
+        STEPS,        // best single-day steps
+        CREDITS,      // lifetime earned credits
+        STREAK,       // longest goal streak in days
+        REDEMPTIONS   // successful reward redemptions
+    }
+    
+    private final List<Rule> rules;
+    private final Map<String, Rule> rulesByType = new HashMap<>();
+    private final Map<Metric, long[]> thresholds = new EnumMap<>(Metric.class);
+    private final Map<Metric, long[]> reachedMasks = new EnumMap<>(Metric.class);
+    
+    public AchievementRuleEngine(ObjectMapper objectMapper,
+                                 @Value("${ecocredit.achievements.rules:classpath:achievements.json}") Resource definitions) {
+        List<Rule> loaded = new ArrayList<>();
+        for (Definition definition : readDefinitions(objectMapper, definitions)) {
+            if (definition.type == null || definition.type.isBlank() || definition.metric == null
+                || definition.title == null || definition.threshold <= 0) {
+                throw new IllegalArgumentException("Invalid achievement rule '" + definition.type
+                    + "', expected type, metric, title and a positive threshold");
+            }
+            if (loaded.size() == Long.SIZE) {
+                throw new IllegalArgumentException("At most " + Long.SIZE + " achievement rules are supported");
+            }
+            Rule rule = new Rule(loaded.size(), definition.type, definition.metric, definition.threshold,
+                                 definition.title, definition.description);
+            if (rulesByType.putIfAbsent(rule.type, rule) != null) {
+                throw new IllegalArgumentException("Duplicate achievement rule '" + rule.type + "'");
+            }
+            loaded.add(rule);
+        }
+        this.rules = Collections.unmodifiableList(loaded);
+        
+        for (Metric metric : Metric.values()) {
+            List<Rule> metricRules = loaded.stream()
+                .filter(rule -> rule.metric == metric)
+                .sorted(Comparator.comparingLong(rule -> rule.threshold))
+                .toList();
+            long[] metricThresholds = new long[metricRules.size()];
+            long[] masks = new long[metricRules.size()];
+            long mask = 0;
+            for (int i = 0; i < metricRules.size(); i++) {
+                mask |= metricRules.get(i).mask();
+                metricThresholds[i] = metricRules.get(i).threshold;
+                masks[i] = mask;
+            }
+            thresholds.put(metric, metricThresholds);
+            reachedMasks.put(metric, masks);
+        }
+    }
+    
+    /**
+     * Bits of every rule on a metric that a value reaches
+     * @param metric Metric the value measures
+     * @param value Current value of the metric
+     * @return Bitmask of reached rules (0 if none)
+     */
+    public long evaluate(Metric metric, long value) {
+        long[] metricThresholds = thresholds.get(metric);
+        int reached = 0;
+        while (reached < metricThresholds.length && metricThresholds[reached] <= value) {
+            reached++;
+        }
+        return reached == 0 ? 0L : reachedMasks.get(metric)[reached - 1];
+    }
+    
+    /**
+     * Whether any rule depends on a metric (callers skip reading metrics nothing depends on)
+     */
+    public boolean hasRules(Metric metric) {
+        return thresholds.get(metric).length > 0;
+    }
+    
+    /**
+     * Thresholds of a metric's rules, ascending (repeated when rules share one)
+     */
+    public long[] getThresholds(Metric metric) {
+        return thresholds.get(metric).clone();
+    }
+    
+    /**
+     * Bit of an achievement type (0 for types no rule defines, e.g. retired badges)
+     */
+    public long bitOf(String type) {
+        Rule rule = rulesByType.get(type);
+        return rule != null ? rule.mask() : 0L;
+    }
+    
+    /**
+     * Rules whose bits are set in a mask, in definition order
+     */
+    public List<Rule> rulesOf(long mask) {
+        List<Rule> selected = new ArrayList<>(Long.bitCount(mask));
+        for (Rule rule : rules) {
+            if ((mask & rule.mask()) != 0) {
+                selected.add(rule);
+            }
+        }
+        return selected;
+    }
+    
+    public List<Rule> getRules() {
+        return rules;
+    }
+    
+    private static List<Definition> readDefinitions(ObjectMapper objectMapper, Resource definitions) {
+        try (InputStream in = definitions.getInputStream()) {
+            return List.of(objectMapper.readValue(in, Definition[].class));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read achievement rules from " + definitions, e);
+        }
+    }
+    
+    public static class Rule {
+        public final int bit;
+        public final String type;
+        public final Metric metric;
+        public final long threshold;
+        public final String title;
+        public final String description;
+        
+        public Rule(int bit, String type, Metric metric, long threshold, String title, String description) {
+            this.bit = bit;
+            this.type = type;
+            this.metric = metric;
+            this.threshold = threshold;
+            this.title = title;
+            this.description = description;
+        }
+        
+        public long mask() {
+            return 1L << bit;
+        }
+    }
+    
+    // One entry of the rules file
+    private static class Definition {
+        public String type;
+        public Metric metric;
+        public long threshold;
+        public String title;
+        public String description;
+    }
+}
@@ -2,76 +2,172 @@ package com.ecocredit.service;
 
 import com.ecocredit.model.User;
 import com.ecocredit.model.Achievement;
+import com.ecocredit.model.UserStats;
 import com.ecocredit.repository.AchievementRepository;
-import lombok.RequiredArgsConstructor;
+import com.ecocredit.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Unlocks achievements defined by AchievementRuleEngine, for batches of metric changes drained
+ * from AchievementEventQueue (off the request path). Every rule owns a bit, and each user's
+ * unlocked types are cached as a bitmask (bounded by ecocredit.achievements.cache-max-users), loaded
+ * with one query per batch and extended when an unlocking transaction commits. A check evaluates
+ * only the rules of the metrics that changed and compares bits; the table is only written when a
+ * rule is reached that the cached mask doesn't have yet.
+ *
+ * Unlocks are inserted only if absent (MERGE on H2, INSERT IGNORE on MySQL), so a
+ * cached mask that lags behind the table, or two event sources unlocking the same badge at once,
+ * can't produce a duplicate row or fail the surrounding transaction.
+ *
+ * Progress towards locked badges (getProgress) reads the same stored per-user values the rules are
+ * checked against: user_stats (best day, longest goal streak, redemption count) and user_balances
+ * (lifetime earned credits), so polling it never aggregates step, credit or redemption history.
+ */
 @Service
 public class AchievementService {
     
+    // H2 / SQL:2003 MERGE that only inserts
+    private static final String MERGE_INSERT =
+        "MERGE INTO achievements t USING (VALUES (CAST(? AS BIGINT), CAST(? AS VARCHAR(255)), " +
+        "CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)))) AS s(user_id, type, title, description) " +
+        "ON t.user_id = s.user_id AND t.type = s.type " +
+        "WHEN NOT MATCHED THEN INSERT (user_id, type, title, description, earned_at) " +
+        "VALUES (s.user_id, s.type, s.title, s.description, CURRENT_TIMESTAMP)";
+    
+    // MySQL insert that skips an existing (user_id, type) row. Unlike ON DUPLICATE KEY UPDATE, the
+    // skipped row reports 0 even with Connector/J's default useAffectedRows=false (found rows)
+    private static final String MYSQL_INSERT =
+        "INSERT IGNORE INTO achievements (user_id, type, title, description, earned_at) " +
+        "VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)";
+    
     private final AchievementRepository achievementRepository;
+    private final UserRepository userRepository;
+    private final UserStatsService userStatsService;
+    private final BalanceService balanceService;
+    private final NotificationService notificationService;
+    private final AchievementRuleEngine ruleEngine;
+    private final int maxUsers;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    private final Map<Long, Long> unlockedCache = new ConcurrentHashMap<>();
     
     // Constructor injection
-    public AchievementService(AchievementRepository achievementRepository) {
+    public AchievementService(AchievementRepository achievementRepository,
+                              UserRepository userRepository,
+                              UserStatsService userStatsService,
+                              BalanceService balanceService,
+                              NotificationService notificationService,
+                              AchievementRuleEngine ruleEngine,
+                              @Value("${ecocredit.achievements.cache-max-users:100000}") int maxUsers) {
         this.achievementRepository = achievementRepository;
+        this.userRepository = userRepository;
+        this.userStatsService = userStatsService;
+        this.balanceService = balanceService;
+        this.notificationService = notificationService;
+        this.ruleEngine = ruleEngine;
+        this.maxUsers = maxUsers;
     }
     
     /**
-     * Check and unlock green living achievements (equivalent to checkAchievements in Node.js)
-     * @param user User to check achievements for
-     * @param steps Number of steps taken
-     * @param credits Number of credits earned
-     * @return List of newly unlocked achievements
+     * Evaluate achievement rules for a batch of metric changes and unlock what was reached
+     * (equivalent to checkAchievements in Node.js). Called by AchievementEventQueue workers.
+     * Unlocked sets of users not cached are loaded with one query, unlocks of the whole batch are
+     * written with one batch insert, and notifications go out once the transaction commits.
+     * @param changes userId -> (metric -> new value, or null to read the current value here;
+     *                stored values are only read while one of their metric's badges is locked)
+     * @return Newly unlocked achievements
      */
     @Transactional
-    public List<Achievement> checkAndUnlockAchievements(User user, int steps, int credits) {
-        List<Achievement> newAchievements = new ArrayList<>();
-        
-        // Define achievement criteria (same as Node.js version)
-        List<AchievementCriteria> criteriaList = List.of(
-            new AchievementCriteria("first_steps", steps >= 100, 
-                "🌱 First Steps", 
-                "Complete your first 100 steps of sustainable transportation"),
-            new AchievementCriteria("walker", steps >= 1000, 
-                "🚶‍♂️ Green Walker", 
-                "Walk 1,000 steps in a day (reducing carbon footprint)"),
-            new AchievementCriteria("stepper", steps >= 5000, 
-                "🏃‍♀️ Eco Stepper", 
-                "Walk 5,000 steps in a day (halfway to sustainable goal)"),
-            new AchievementCriteria("goal_crusher", steps >= 10000, 
-                "🏆 Sustainable Champion", 
-                "Reach the daily sustainable transportation goal of 10,000 steps")
-        );
+    public List<Achievement> evaluate(Map<Long, Map<AchievementRuleEngine.Metric, Long>> changes) {
+        Map<Long, Long> unlocked = getUnlockedBits(changes.keySet());
         
-        // Check each achievement criteria
-        for (AchievementCriteria criteria : criteriaList) {
-            if (criteria.condition) {
-                // Check if user already has this achievement
-                boolean alreadyHas = achievementRepository.existsByUserAndType(user, criteria.type);
-                
-                if (!alreadyHas) {
-                    // Unlock new achievement
-                    Achievement achievement = new Achievement(
-                        user, 
-                        criteria.type, 
-                        criteria.name, 
-                        criteria.description
-                    );
-                    
-                    Achievement savedAchievement = achievementRepository.save(achievement);
-                    newAchievements.add(savedAchievement);
-                    
-                    System.out.printf("🏆 Achievement unlocked for user %s: %s%n", 
-                                    user.getId() != null ? user.getId().toString() : "unknown", criteria.name);
+        Map<Long, Long> reached = new LinkedHashMap<>();
+        changes.forEach((userId, metrics) -> {
+            long userUnlocked = unlocked.get(userId);
+            long userReached = 0;
+            for (Map.Entry<AchievementRuleEngine.Metric, Long> change : metrics.entrySet()) {
+                if (!hasLockedRules(userUnlocked, change.getKey())) {
+                    continue;
                 }
+                long value = change.getValue() != null ? change.getValue() : readMetric(userId, change.getKey());
+                userReached |= ruleEngine.evaluate(change.getKey(), value);
             }
+            if ((userReached & ~userUnlocked) != 0) {
+                reached.put(userId, userReached & ~userUnlocked);
+            }
+        });
+        return unlock(reached);
+    }
+    
+    /**
+     * Unlock streak achievements for milestones reached by a step write (see StreakService).
+     * Each milestone is reported once per user, so the cached masks aren't consulted; users are
+     * referenced by id without being loaded. Notifications go out once the transaction commits.
+     * @param milestones Newly reached streak milestones
+     * @return Unlocked achievements
+     */
+    @Transactional
+    public List<Achievement> unlockStreakAchievements(List<StreakService.Milestone> milestones) {
+        Map<Long, Long> reached = new LinkedHashMap<>();
+        for (StreakService.Milestone milestone : milestones) {
+            // Rules whose threshold is exactly this milestone
+            long mask = ruleEngine.evaluate(AchievementRuleEngine.Metric.STREAK, milestone.days)
+                      & ~ruleEngine.evaluate(AchievementRuleEngine.Metric.STREAK, milestone.days - 1L);
+            reached.merge(milestone.userId, mask, (x, y) -> x | y);
         }
+        return unlock(reached);
+    }
+    
+    /**
+     * Grant rules to users who qualified for them earlier (achievement backfill), skipping any
+     * the table already has. Notifications go out once the transaction commits.
+     * @param masks userId -> bits of the rules to grant
+     * @return Achievements actually inserted
+     */
+    @Transactional
+    public List<Achievement> grant(Map<Long, Long> masks) {
+        return unlock(masks);
+    }
+    
+    /**
+     * Progress towards every achievement a user hasn't unlocked yet, in rule definition order.
+     * A reached rule whose unlock is still queued shows as complete.
+     * @param userId User to get progress for
+     * @return Progress of each locked rule
+     */
+    @Transactional(readOnly = true)
+    public List<Progress> getProgress(Long userId) {
+        long unlocked = getUnlockedBits(List.of(userId)).get(userId);
+        UserStats stats = userStatsService.getStats(userId);
         
-        return newAchievements;
+        Map<AchievementRuleEngine.Metric, Long> values = new EnumMap<>(AchievementRuleEngine.Metric.class);
+        List<Progress> progress = new ArrayList<>();
+        for (AchievementRuleEngine.Rule rule : ruleEngine.rulesOf(~unlocked)) {
+            long value = values.computeIfAbsent(rule.metric, metric -> readProgressMetric(userId, stats, metric));
+            progress.add(new Progress(rule, value));
+        }
+        return progress;
     }
     
     /**
@@ -92,18 +188,208 @@ public class AchievementService {
         return achievementRepository.countByUser(user);
     }
     
-    // Inner class for achievement criteria
-    private static class AchievementCriteria {
-        public final String type;
-        public final boolean condition;
-        public final String name;
-        public final String description;
+    /**
+     * Drop every cached unlocked-set (e.g. after achievements were changed out of band)
+     */
+    public void evictAll() {
+        unlockedCache.clear();
+    }
+    
+    // Insert the rules in each user's mask, skipping any the table already has
+    private List<Achievement> unlock(Map<Long, Long> masks) {
+        List<Long> userIds = new ArrayList<>();
+        List<AchievementRuleEngine.Rule> rules = new ArrayList<>();
+        masks.forEach((userId, mask) -> {
+            for (AchievementRuleEngine.Rule rule : ruleEngine.rulesOf(mask)) {
+                userIds.add(userId);
+                rules.add(rule);
+            }
+        });
+        if (rules.isEmpty()) {
+            return List.of();
+        }
         
-        public AchievementCriteria(String type, boolean condition, String name, String description) {
-            this.type = type;
-            this.condition = condition;
-            this.name = name;
-            this.description = description;
+        int[] counts = insertIfAbsent(userIds, rules);
+        
+        List<Achievement> unlocked = new ArrayList<>();
+        for (int i = 0; i < rules.size(); i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            AchievementRuleEngine.Rule rule = rules.get(i);
+            Achievement achievement = new Achievement(userRepository.getReferenceById(userIds.get(i)),
+                                                      rule.type, rule.title, rule.description);
+            achievement.setEarnedAt(LocalDateTime.now());
+            unlocked.add(achievement);
+            System.out.printf("🏆 Achievement unlocked for user %d: %s%n", userIds.get(i), rule.title);
+        }
+        masks.forEach(this::trackUnlocked);
+        
+        if (!unlocked.isEmpty()) {
+            Runnable send = () -> unlocked.forEach(achievement -> notificationService.sendAchievementNotification(
+                achievement.getUser().getId(), achievement.getTitle(), achievement.getDescription()));
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        send.run();
+                    }
+                });
+            } else {
+                send.run();
+            }
+        }
+        return unlocked;
+    }
+    
+    // One batch of insert-if-absent statements; a row count of 0 means the user already had the type
+    private int[] insertIfAbsent(List<Long> userIds, List<AchievementRuleEngine.Rule> rules) {
+        Session session = entityManager.unwrap(Session.class);
+        session.flush();
+        return session.doReturningWork(connection -> {
+            boolean mysql = NativeUpserts.isMySql(connection);
+            try (PreparedStatement statement = connection.prepareStatement(mysql ? MYSQL_INSERT : MERGE_INSERT)) {
+                for (int i = 0; i < rules.size(); i++) {
+                    statement.setLong(1, userIds.get(i));
+                    statement.setString(2, rules.get(i).type);
+                    statement.setString(3, rules.get(i).title);
+                    statement.setString(4, rules.get(i).description);
+                    statement.addBatch();
+                }
+                // Drivers that don't report per-row counts (SUCCESS_NO_INFO) report every row as new
+                return statement.executeBatch();
+            }
+        });
+    }
+    
+    // Current stored value of a metric (queued events carry none)
+    private long readMetric(Long userId, AchievementRuleEngine.Metric metric) {
+        switch (metric) {
+            case STEPS:
+                return userStatsService.getStats(userId).getMaxDailySteps();
+            case CREDITS:
+                return balanceService.getBalance(userRepository.getReferenceById(userId)).earned;
+            case REDEMPTIONS:
+                return userStatsService.getRedemptionCount(userId);
+            default:
+                throw new IllegalArgumentException("No stored value for metric " + metric);
+        }
+    }
+    
+    // Current value of any metric, from the user's stats row where it has one
+    private long readProgressMetric(Long userId, UserStats stats, AchievementRuleEngine.Metric metric) {
+        switch (metric) {
+            case STEPS:
+                return stats.getMaxDailySteps();
+            case STREAK:
+                return stats.getLongestGoalStreak();
+            case REDEMPTIONS:
+                return stats.getRedemptions() != null ? stats.getRedemptions() : readMetric(userId, metric);
+            default:
+                return readMetric(userId, metric);
+        }
+    }
+    
+    private boolean hasLockedRules(long unlocked, AchievementRuleEngine.Metric metric) {
+        return (ruleEngine.evaluate(metric, Long.MAX_VALUE) & ~unlocked) != 0;
+    }
+    
+    // Users' unlocked types as bitmasks, from cache when possible (one query for the rest)
+    private Map<Long, Long> getUnlockedBits(Collection<Long> userIds) {
+        Map<Long, Long> bits = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long userId : userIds) {
+            Long cached = unlockedCache.get(userId);
+            if (cached != null) {
+                bits.put(userId, cached);
+            } else {
+                bits.put(userId, 0L);
+                missing.add(userId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (AchievementRepository.UserType row : achievementRepository.findTypesByUserIds(missing)) {
+                bits.merge(row.getUserId(), ruleEngine.bitOf(row.getType()), (x, y) -> x | y);
+            }
+            for (Long userId : missing) {
+                cacheUnlockedBits(userId, bits.get(userId));
+            }
+        }
+        return bits;
+    }
+    
+    private void cacheUnlockedBits(Long userId, long bits) {
+        PendingUnlocks pending = currentPendingUnlocks();
+        if (pending != null && pending.bits.containsKey(userId)) {
+            // This transaction's own unlocks are visible to it but may still roll back
+            return;
+        }
+        if (!unlockedCache.containsKey(userId) && unlockedCache.size() >= maxUsers) {
+            // Shed roughly a tenth of the entries; they reload with a single query
+            Iterator<Long> it = unlockedCache.keySet().iterator();
+            for (int i = 0; i < maxUsers / 10 + 1 && it.hasNext(); i++) {
+                it.next();
+                it.remove();
+            }
+        }
+        // OR-merge: a load that raced with a commit can't drop the bits that commit added
+        unlockedCache.merge(userId, bits, (a, b) -> a | b);
+    }
+    
+    // Remember unlocks written by the current transaction; cached masks take them on commit
+    private void trackUnlocked(Long userId, long bits) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            unlockedCache.computeIfPresent(userId, (id, cached) -> cached | bits);
+            return;
+        }
+        PendingUnlocks pending = currentPendingUnlocks();
+        if (pending == null) {
+            pending = new PendingUnlocks();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.bits.merge(userId, bits, (a, b) -> a | b);
+    }
+    
+    private PendingUnlocks currentPendingUnlocks() {
+        return (PendingUnlocks) TransactionSynchronizationManager.getResource(this);
+    }
+    
+    public static class Progress {
+        public final AchievementRuleEngine.Rule rule;
+        public final long current; // Current value of the rule's metric
+        
+        public Progress(AchievementRuleEngine.Rule rule, long current) {
+            this.rule = rule;
+            this.current = current;
+        }
+        
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("type", rule.type);
+            map.put("name", rule.title);
+            map.put("description", rule.description);
+            map.put("category", rule.metric.name().toLowerCase());
+            map.put("progress", Math.min(current, rule.threshold));
+            map.put("target", rule.threshold);
+            map.put("percentage", Math.round(Math.min(current, rule.threshold) * 1000.0 / rule.threshold) / 10.0);
+            return map;
+        }
+    }
+    
+    /**
+     * Unlocks written by one transaction, folded into cached masks once it commits.
+     * Users not cached are left alone; their next check loads the committed rows.
+     */
+    private class PendingUnlocks implements TransactionSynchronization {
+        private final Map<Long, Long> bits = new HashMap<>();
+        
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(AchievementService.this);
+            if (status == STATUS_COMMITTED) {
+                bits.forEach((userId, added) -> unlockedCache.computeIfPresent(userId, (id, cached) -> cached | added));
+            }
         }
     }
-} 
\ No newline at end of file
+}
@@ -2,14 +2,18 @@ package com.ecocredit.service;
 
 import com.ecocredit.model.User;
 import com.ecocredit.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 @Service
 public class AuthenticationService {
@@ -20,8 +24,16 @@ public class AuthenticationService {
     private final Map<String, Long> tokenToUserId = new ConcurrentHashMap<>();
     private final Map<Long, String> userIdToToken = new ConcurrentHashMap<>();
     
-    public AuthenticationService(UserRepository userRepository) {
+    // Google accounts allowed to run maintenance endpoints (lower-cased)
+    private final Set<String> adminEmails;
+    
+    public AuthenticationService(UserRepository userRepository,
+                                 @Value("${ecocredit.admin.emails:}") String adminEmails) {
         this.userRepository = userRepository;
+        this.adminEmails = Arrays.stream(adminEmails.split(","))
+            .map(email -> email.trim().toLowerCase())
+            .filter(email -> !email.isEmpty())
+            .collect(Collectors.toSet());
     }
     
     /**
@@ -54,6 +66,14 @@ public class AuthenticationService {
      * Get current user from Authorization header
      */
     public User getCurrentUser() {
+        Long userId = getCurrentUserId();
+        return userId != null ? userRepository.findById(userId).orElse(null) : null;
+    }
+    
+    /**
+     * Get current user's ID from Authorization header, without loading the user (for hot write paths)
+     */
+    public Long getCurrentUserId() {
         try {
             ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
             if (attributes == null) {
@@ -68,13 +88,29 @@ public class AuthenticationService {
             }
             
             String token = authHeader.substring(7); // Remove "Bearer " prefix
-            return getUserFromToken(token);
+            return token.startsWith("token-") ? tokenToUserId.get(token) : null;
             
         } catch (Exception e) {
             return null;
         }
     }
     
+    /**
+     * Whether the current user may run maintenance endpoints: a Google-verified (non-guest) account
+     * whose email is listed in ecocredit.admin.emails. Nobody is an admin while the list is empty.
+     */
+    public boolean isCurrentUserAdmin() {
+        if (adminEmails.isEmpty()) {
+            return false;
+        }
+        User user = getCurrentUser();
+        return user != null
+            && !Boolean.TRUE.equals(user.getIsGuest())
+            && user.getGoogleId() != null
+            && user.getEmail() != null
+            && adminEmails.contains(user.getEmail().toLowerCase());
+    }
+    
     /**
      * Validate token and return user
      */
@@ -0,0 +1,132 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.UserBalance;
+import com.ecocredit.repository.CreditRepository;
+import com.ecocredit.repository.UserBalanceRepository;
+import com.ecocredit.repository.UserRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class BalanceReconciliationService {
+    
+    private final CreditRepository creditRepository;
+    private final UserBalanceRepository userBalanceRepository;
+    private final UserRepository userRepository;
+    private final BalanceService balanceService;
+    private final ObjectProvider<CreditLedgerService> creditLedger;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    
+    public BalanceReconciliationService(CreditRepository creditRepository,
+                                        UserBalanceRepository userBalanceRepository,
+                                        UserRepository userRepository,
+                                        BalanceService balanceService,
+                                        ObjectProvider<CreditLedgerService> creditLedger,
+                                        TransactionTemplate transactionTemplate,
+                                        @Value("${ecocredit.balance.reconcile-chunk-size:1000}") int chunkSize) {
+        this.creditRepository = creditRepository;
+        this.userBalanceRepository = userBalanceRepository;
+        this.userRepository = userRepository;
+        this.balanceService = balanceService;
+        this.creditLedger = creditLedger;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+    
+    /**
+     * Rebuild the user_balances projection from the credits ledger.
+     * Runs nightly, one range of ecocredit.balance.reconcile-chunk-size user ids per transaction. The
+     * range's projection rows are locked before its ledger is summed, so a concurrent credit write
+     * either committed before the sum (and is counted) or waits and adds its delta to the corrected row.
+     * Rows that already match the ledger are left untouched.
+     *
+     * With the event ledger enabled (see CreditLedgerService), the balance it rebuilds for each user it
+     * has events for is compared with the credits table too, and disagreements are reported. Since the ledger
+     * catches up from the credits table when it opens, a mismatch means an append was lost since then.
+     * @return Number of projection rows created or corrected
+     */
+    @Scheduled(cron = "${ecocredit.balance.reconcile-cron:0 30 3 * * *}")
+    public int reconcileAll() {
+        long maxUserId = userRepository.findMaxUserId();
+        List<Long> corrected = new ArrayList<>();
+        List<Long> eventLedgerMismatches = new ArrayList<>();
+        for (long from = 1; from <= maxUserId; from += chunkSize) {
+            long fromUserId = from;
+            long toUserId = Math.min(maxUserId, from + chunkSize - 1);
+            corrected.addAll(transactionTemplate.execute(status -> reconcileRange(fromUserId, toUserId, eventLedgerMismatches)));
+        }
+        
+        // Evicted once committed, so a concurrent cache miss can't load the rows as they were
+        for (Long userId : corrected) {
+            balanceService.evict(userId);
+        }
+        
+        if (!corrected.isEmpty()) {
+            System.out.println("⚖️ Balance reconciliation corrected " + corrected.size() + " user balance(s)");
+        }
+        if (!eventLedgerMismatches.isEmpty()) {
+            System.err.println("📒 Event ledger disagrees with the credits table for " + eventLedgerMismatches.size()
+                               + " user(s), e.g. " + eventLedgerMismatches.subList(0, Math.min(10, eventLedgerMismatches.size())));
+        }
+        return corrected.size();
+    }
+    
+    // Correct the projection rows of one id range; returns the users whose row was created or corrected
+    private List<Long> reconcileRange(Long fromUserId, Long toUserId, List<Long> eventLedgerMismatches) {
+        CreditLedgerService eventLedger = creditLedger.getIfAvailable();
+        Map<Long, UserBalance> locked = new HashMap<>();
+        for (UserBalance balance : userBalanceRepository.findForUpdateBetween(fromUserId, toUserId)) {
+            locked.put(balance.getUserId(), balance);
+        }
+        
+        // One grouped pass over the range's ledger: (userId, type, sum) rows
+        Map<Long, List<CreditRepository.UserCreditTypeTotal>> totalsByUser = new HashMap<>();
+        for (CreditRepository.UserCreditTypeTotal row : creditRepository.sumCreditsByUserAndTypeBetween(fromUserId, toUserId)) {
+            totalsByUser.computeIfAbsent(row.getUserId(), id -> new ArrayList<>()).add(row);
+        }
+        
+        List<Long> corrected = new ArrayList<>();
+        Map<Long, CreditService.CreditBalance> missing = new LinkedHashMap<>();
+        for (Map.Entry<Long, List<CreditRepository.UserCreditTypeTotal>> entry : totalsByUser.entrySet()) {
+            CreditService.CreditBalance fromLedger = CreditService.CreditBalance.fromTypeTotals(entry.getValue());
+            if (eventLedger != null && eventLedger.hasEvents(entry.getKey())) {
+                CreditService.CreditBalance fromEvents = eventLedger.getBalance(entry.getKey());
+                if (fromEvents.earned != fromLedger.earned || fromEvents.spent != fromLedger.spent) {
+                    eventLedgerMismatches.add(entry.getKey());
+                }
+            }
+            UserBalance balance = locked.remove(entry.getKey());
+            if (balance == null) {
+                missing.put(entry.getKey(), fromLedger);
+            } else if (balance.getEarned() != fromLedger.earned || balance.getSpent() != fromLedger.spent) {
+                balance.setEarned(fromLedger.earned);
+                balance.setSpent(fromLedger.spent);
+                corrected.add(entry.getKey());
+            }
+        }
+        
+        // Projection rows whose ledger is empty
+        for (UserBalance balance : locked.values()) {
+            if (balance.getEarned() != 0 || balance.getSpent() != 0) {
+                balance.setEarned(0);
+                balance.setSpent(0);
+                corrected.add(balance.getUserId());
+            }
+        }
+        
+        // A first credit write racing with this seeds its own row, which then already matches the ledger
+        balanceService.insertIfAbsent(missing);
+        corrected.addAll(missing.keySet());
+        return corrected;
+    }
+}
@@ -0,0 +1,368 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.User;
+import com.ecocredit.repository.CreditRepository;
+import com.ecocredit.repository.UserBalanceRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Owns the user_balances projection and a striped, write-through in-memory cache in front of it.
+ * Balance reads never touch the credits ledger or the User.credits collection, so the cost of a
+ * read is constant regardless of how many ledger rows a user has. With the event ledger enabled
+ * (see CreditLedgerService), reads are rebuilt from its snapshot and tail instead of the cache.
+ */
+@Service
+public class BalanceService {
+    
+    private static final int STRIPES = 64;
+    
+    // H2 / SQL:2003 MERGE: insert a seeded row, or add the delta to the row a concurrent first write inserted
+    private static final String MERGE_SEED =
+        "MERGE INTO user_balances t USING (VALUES (CAST(? AS BIGINT), CAST(? AS INTEGER), CAST(? AS INTEGER), " +
+        "CAST(? AS INTEGER), CAST(? AS INTEGER))) AS s(user_id, earned, spent, earned_delta, spent_delta) " +
+        "ON t.user_id = s.user_id " +
+        "WHEN MATCHED THEN UPDATE SET earned = t.earned + s.earned_delta, spent = t.spent + s.spent_delta, " +
+        "updated_at = CURRENT_TIMESTAMP " +
+        "WHEN NOT MATCHED THEN INSERT (user_id, earned, spent, updated_at) " +
+        "VALUES (s.user_id, s.earned, s.spent, CURRENT_TIMESTAMP)";
+    
+    // MySQL equivalent on the user_id primary key
+    private static final String MYSQL_SEED =
+        "INSERT INTO user_balances (user_id, earned, spent, updated_at) VALUES (?, ?, ?, CURRENT_TIMESTAMP) " +
+        "ON DUPLICATE KEY UPDATE earned = earned + ?, spent = spent + ?, updated_at = CURRENT_TIMESTAMP";
+    
+    private final UserBalanceRepository userBalanceRepository;
+    private final CreditRepository creditRepository;
+    private final ObjectProvider<CreditLedgerService> creditLedger;
+    private final int maxEntries;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    private final Map<Long, CreditService.CreditBalance> cache = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    
+    public BalanceService(UserBalanceRepository userBalanceRepository,
+                          CreditRepository creditRepository,
+                          ObjectProvider<CreditLedgerService> creditLedger,
+                          @Value("${ecocredit.balance.cache-max-entries:100000}") int maxEntries) {
+        this.userBalanceRepository = userBalanceRepository;
+        this.creditRepository = creditRepository;
+        this.creditLedger = creditLedger;
+        this.maxEntries = maxEntries;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+    
+    /**
+     * Get a user's balance, from the event ledger or the cache when possible
+     * @param user User to get balance for
+     * @return Credit balance details
+     */
+    public CreditService.CreditBalance getBalance(User user) {
+        Long userId = user.getId();
+        PendingDeltas pending = currentPendingDeltas();
+        CreditLedgerService ledger = creditLedger.getIfAvailable();
+        if (ledger != null && (pending == null || !pending.deltas.containsKey(userId))) {
+            // Committed rows only, like the cache: events are appended once their transaction commits
+            return ledger.getBalance(userId);
+        }
+        
+        CreditService.CreditBalance cached = cache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        
+        if (pending != null && pending.deltas.containsKey(userId)) {
+            // This transaction has uncommitted ledger writes for the user; don't cache what it can see
+            return loadBalance(user);
+        }
+        
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            cached = cache.get(userId);
+            if (cached == null) {
+                cached = loadBalance(user);
+                put(userId, cached);
+            }
+            return cached;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Get the credits a user can spend right now
+     * @param user User to get balance for
+     * @return Available credits
+     */
+    public int getAvailableCredits(User user) {
+        return getBalance(user).available;
+    }
+    
+    /**
+     * Apply a ledger delta to the user's projection row, seeding the row from the ledger on first write.
+     * Must run inside the transaction that inserts the ledger row; cached balances are written through
+     * when that transaction commits and left untouched if it rolls back.
+     * @param user User whose ledger changed
+     * @param earnedDelta Change in earned credits
+     * @param spentDelta Change in spent credits
+     */
+    @Transactional
+    public void applyDelta(User user, int earnedDelta, int spentDelta) {
+        int updated = userBalanceRepository.applyDelta(user.getId(), earnedDelta, spentDelta);
+        if (updated == 0) {
+            seedFromLedger(Map.of(user.getId(), new int[] {earnedDelta, spentDelta}));
+        }
+        
+        trackPendingDelta(user.getId(), earnedDelta, spentDelta);
+    }
+    
+    /**
+     * Apply ledger deltas for many users with one JDBC batch of updates (used by bulk awards).
+     * Same transactional contract as applyDelta.
+     * @param deltasByUser userId -> {earnedDelta, spentDelta}
+     */
+    @Transactional
+    public void applyDeltas(Map<Long, int[]> deltasByUser) {
+        if (deltasByUser.isEmpty()) {
+            return;
+        }
+        
+        Session session = entityManager.unwrap(Session.class);
+        session.flush();
+        List<Long> missing = session.doReturningWork(connection -> {
+            List<Long> userIds = new ArrayList<>(deltasByUser.keySet());
+            List<Long> notUpdated = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE user_balances SET earned = earned + ?, spent = spent + ?, " +
+                    "updated_at = CURRENT_TIMESTAMP WHERE user_id = ?")) {
+                for (Long userId : userIds) {
+                    int[] delta = deltasByUser.get(userId);
+                    statement.setInt(1, delta[0]);
+                    statement.setInt(2, delta[1]);
+                    statement.setLong(3, userId);
+                    statement.addBatch();
+                }
+                int[] counts = statement.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 0) {
+                        notUpdated.add(userIds.get(i));
+                    } else if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                        // Driver doesn't report per-row counts; fall back to seeding only rows that are absent
+                        if (!userBalanceRepository.existsById(userIds.get(i))) {
+                            notUpdated.add(userIds.get(i));
+                        }
+                    }
+                }
+            }
+            return notUpdated;
+        });
+        
+        if (!missing.isEmpty()) {
+            Map<Long, int[]> missingDeltas = new LinkedHashMap<>();
+            for (Long userId : missing) {
+                missingDeltas.put(userId, deltasByUser.get(userId));
+            }
+            seedFromLedger(missingDeltas);
+        }
+        for (Map.Entry<Long, int[]> entry : deltasByUser.entrySet()) {
+            trackPendingDelta(entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+        }
+    }
+    
+    /**
+     * Compute a user's balance from the raw ledger (used to seed and reconcile the projection)
+     * @param userId User to compute balance for
+     * @return Credit balance details
+     */
+    @Transactional(readOnly = true)
+    public CreditService.CreditBalance computeBalanceFromLedger(Long userId) {
+        return CreditService.CreditBalance.fromTypeTotals(creditRepository.sumCreditsByType(userId));
+    }
+    
+    /**
+     * Insert projection rows for users that have none, leaving rows that exist as they are
+     * (used by reconciliation, for users whose ledger has rows but whose projection doesn't)
+     * @param balances userId -> balance to insert
+     */
+    @Transactional
+    public void insertIfAbsent(Map<Long, CreditService.CreditBalance> balances) {
+        if (balances.isEmpty()) {
+            return;
+        }
+        Map<Long, int[]> noDeltas = new LinkedHashMap<>();
+        for (Long userId : balances.keySet()) {
+            noDeltas.put(userId, new int[2]);
+        }
+        upsert(balances, noDeltas);
+    }
+    
+    // First write for a user: insert the projection seeded from the ledger (which already includes the
+    // new rows). A concurrent first write may have inserted it meanwhile, from a ledger that didn't yet
+    // include these rows; then only the delta is added to it.
+    private void seedFromLedger(Map<Long, int[]> deltasByUser) {
+        Map<Long, CreditService.CreditBalance> seeds = new LinkedHashMap<>();
+        for (Long userId : deltasByUser.keySet()) {
+            seeds.put(userId, computeBalanceFromLedger(userId));
+        }
+        upsert(seeds, deltasByUser);
+    }
+    
+    // Upsert on the user_id key: insert the seed, or add the delta to the existing row
+    private void upsert(Map<Long, CreditService.CreditBalance> seeds, Map<Long, int[]> deltasByUser) {
+        Session session = entityManager.unwrap(Session.class);
+        session.flush();
+        session.doWork(connection -> {
+            boolean mysql = NativeUpserts.isMySql(connection);
+            NativeUpserts.execute(connection, mysql, mysql ? MYSQL_SEED : MERGE_SEED, seeds.entrySet(), (statement, seed) -> {
+                int[] delta = deltasByUser.get(seed.getKey());
+                statement.setLong(1, seed.getKey());
+                statement.setInt(2, seed.getValue().earned);
+                statement.setInt(3, seed.getValue().spent);
+                statement.setInt(4, delta[0]);
+                statement.setInt(5, delta[1]);
+            });
+        });
+    }
+    
+    private void trackPendingDelta(Long userId, int earnedDelta, int spentDelta) {
+        PendingDeltas pending = currentPendingDeltas();
+        if (pending == null) {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                evict(userId);
+                return;
+            }
+            pending = new PendingDeltas();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.add(userId, earnedDelta, spentDelta);
+    }
+    
+    /**
+     * Drop a cached balance (e.g. after the projection was rebuilt out of band)
+     */
+    public void evict(Long userId) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            cache.remove(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Drop every cached balance
+     */
+    public void evictAll() {
+        cache.clear();
+    }
+    
+    private CreditService.CreditBalance loadBalance(User user) {
+        return userBalanceRepository.findById(user.getId())
+            .map(b -> new CreditService.CreditBalance(b.getAvailable(), b.getEarned(), b.getSpent()))
+            // Users without a projection row have not written to the ledger since it was introduced
+            .orElseGet(() -> computeBalanceFromLedger(user.getId()));
+    }
+    
+    private void put(Long userId, CreditService.CreditBalance balance) {
+        if (cache.size() >= maxEntries) {
+            // Shed roughly a tenth of the entries; they reload with a single primary-key lookup
+            Iterator<Long> it = cache.keySet().iterator();
+            for (int i = 0; i < maxEntries / 10 + 1 && it.hasNext(); i++) {
+                it.next();
+                it.remove();
+            }
+        }
+        cache.put(userId, balance);
+    }
+    
+    private PendingDeltas currentPendingDeltas() {
+        return (PendingDeltas) TransactionSynchronizationManager.getResource(this);
+    }
+    
+    private int stripeOf(Long userId) {
+        return (Long.hashCode(userId) & 0x7fffffff) % STRIPES;
+    }
+    
+    private ReentrantLock lockFor(Long userId) {
+        return locks[stripeOf(userId)];
+    }
+    
+    /**
+     * Ledger deltas written by one transaction. The affected stripes are locked (in index order, so two
+     * committing transactions can't deadlock) from just before commit until the cache has been updated,
+     * which keeps a concurrent cache miss from loading the committed row and then having the delta
+     * applied on top of it a second time.
+     */
+    private class PendingDeltas implements TransactionSynchronization {
+        private final Map<Long, int[]> deltas = new HashMap<>();
+        private final TreeSet<Integer> stripes = new TreeSet<>();
+        private boolean locked;
+        
+        void add(Long userId, int earnedDelta, int spentDelta) {
+            int[] delta = deltas.computeIfAbsent(userId, id -> new int[2]);
+            delta[0] += earnedDelta;
+            delta[1] += spentDelta;
+            stripes.add(stripeOf(userId));
+        }
+        
+        @Override
+        public void beforeCompletion() {
+            for (int stripe : stripes) {
+                locks[stripe].lock();
+            }
+            locked = true;
+        }
+        
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(BalanceService.this);
+            try {
+                for (Map.Entry<Long, int[]> entry : deltas.entrySet()) {
+                    CreditService.CreditBalance cached = cache.get(entry.getKey());
+                    if (cached == null) {
+                        continue;
+                    }
+                    if (status == STATUS_COMMITTED) {
+                        int earned = cached.earned + entry.getValue()[0];
+                        int spent = cached.spent + entry.getValue()[1];
+                        cache.put(entry.getKey(), new CreditService.CreditBalance(earned - spent, earned, spent));
+                    } else if (status == STATUS_UNKNOWN) {
+                        cache.remove(entry.getKey());
+                    }
+                }
+            } finally {
+                if (locked) {
+                    for (int stripe : stripes.descendingSet()) {
+                        locks[stripe].unlock();
+                    }
+                }
+            }
+        }
+    }
+}
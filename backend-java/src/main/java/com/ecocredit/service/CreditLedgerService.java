@@ -0,0 +1,393 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.Credit;
+import com.ecocredit.repository.CreditRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Optional append-only credit ledger on memory-mapped segment files (enable with ecocredit.ledger.enabled=true).
+ *
+ * Every committed Credit is appended as a fixed 32-byte event:
+ *   [seq:long][userId:long][earnedDelta:int][spentDelta:int][creditId:long]
+ * Segments are preallocated files of ecocredit.ledger.segment-bytes, so appends are sequential writes into
+ * mapped memory. Every ecocredit.ledger.snapshot-every events per user, the user's running totals are
+ * written to snapshots.log, and a balance is rebuilt from the last snapshot plus at most that many events.
+ * The segment bytes a snapshot covers are forced to disk before the snapshot record is written, so after a
+ * crash no snapshot can point past the events that survived.
+ *
+ * Events are appended after their transaction commits, so a crash in between loses them. On open, the
+ * ledger is therefore caught up from the credits table: rows after the checkpoint (the highest credit id
+ * the previous open saw) whose id no event carries are appended, and the new checkpoint is written once
+ * they are durable. The first open imports the whole table. Later carry-forward rows are skipped, because
+ * the ledger still holds the events of the rows they summarize (see LedgerArchiveService).
+ *
+ * While enabled, BalanceService serves balance reads from here. The credits table remains the queryable
+ * copy, and nightly balance reconciliation compares the rebuilt balances with it (see BalanceReconciliationService).
+ */
+@Service
+@ConditionalOnProperty(name = "ecocredit.ledger.enabled", havingValue = "true")
+public class CreditLedgerService {
+
+    private static final int RECORD_BYTES = 32;
+    private static final int SNAPSHOT_BYTES = 32;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_FILE = "snapshots.log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int CATCH_UP_BATCH = 1000;
+
+    private final CreditRepository creditRepository;
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final int snapshotEvery;
+
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private final Map<Long, UserLedger> users = new ConcurrentHashMap<>();
+    private FileChannel snapshotChannel;
+    private long nextSeq = 1;
+
+    public CreditLedgerService(CreditRepository creditRepository,
+                               @Value("${ecocredit.ledger.dir:ledger}") String directory,
+                               @Value("${ecocredit.ledger.segment-bytes:67108864}") int segmentBytes,
+                               @Value("${ecocredit.ledger.snapshot-every:64}") int snapshotEvery) {
+        this.creditRepository = creditRepository;
+        this.directory = Paths.get(directory);
+        this.recordsPerSegment = Math.max(1, segmentBytes / RECORD_BYTES);
+        this.snapshotEvery = Math.max(1, snapshotEvery);
+    }
+
+    /**
+     * Open existing segments, rebuild per-user state from snapshots plus the events that follow them,
+     * and append the committed credits the ledger is missing
+     */
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+
+        snapshotChannel = FileChannel.open(directory.resolve(SNAPSHOT_FILE),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        loadSnapshots();
+
+        List<Path> segmentFiles;
+        try (Stream<Path> files = Files.list(directory)) {
+            segmentFiles = files
+                .filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                .sorted()
+                .toList();
+        }
+        for (Path file : segmentFiles) {
+            segments.add(map(file));
+        }
+        if (segments.isEmpty()) {
+            segments.add(map(segmentPath(0)));
+        }
+
+        long checkpoint = readCheckpoint();
+        long[] afterCheckpoint = replaySegments(Math.max(checkpoint, 0));
+        int caughtUp = catchUp(checkpoint, afterCheckpoint);
+        System.out.println("📒 Credit ledger opened at " + directory.toAbsolutePath() +
+                           " (" + (nextSeq - 1) + " events, " + caughtUp + " caught up from credits, " +
+                           users.size() + " users)");
+    }
+
+    /**
+     * Append a committed ledger row
+     * @param credit Persisted credit row
+     * @return Sequence number assigned to the event
+     */
+    public long append(Credit credit) {
+        return append(credit.getId(), credit.getUser().getId(),
+                      credit.getType().earnedDelta(credit.getAmount()),
+                      credit.getType().spentDelta(credit.getAmount()));
+    }
+
+    /**
+     * Append an event for a user
+     * @param creditId Id of the credits row the event mirrors
+     * @return Sequence number assigned to the event
+     */
+    public synchronized long append(long creditId, long userId, int earnedDelta, int spentDelta) {
+        long seq = nextSeq;
+        int segmentIndex = (int) ((seq - 1) / recordsPerSegment);
+        if (segmentIndex == segments.size()) {
+            // Current segment is full: make it durable and roll to a new preallocated one
+            segments.get(segmentIndex - 1).force();
+            segments.add(map(segmentPath(segmentIndex)));
+        }
+
+        MappedByteBuffer segment = segments.get(segmentIndex);
+        int offset = (int) ((seq - 1) % recordsPerSegment) * RECORD_BYTES;
+        segment.putLong(offset + 8, userId);
+        segment.putInt(offset + 16, earnedDelta);
+        segment.putInt(offset + 20, spentDelta);
+        segment.putLong(offset + 24, creditId);
+        // Sequence goes in last: a non-zero seq marks a complete record
+        segment.putLong(offset, seq);
+        nextSeq++;
+
+        UserLedger ledger = users.computeIfAbsent(userId, UserLedger::new);
+        synchronized (ledger) {
+            ledger.addTail(seq);
+            if (ledger.tailSize == snapshotEvery) {
+                writeSnapshot(ledger);
+            }
+        }
+        return seq;
+    }
+
+    /**
+     * Rebuild a user's balance from the last snapshot and the events appended after it
+     * @param userId User to rebuild
+     * @return Credit balance details
+     */
+    public CreditService.CreditBalance getBalance(long userId) {
+        UserLedger ledger = users.get(userId);
+        if (ledger == null) {
+            return new CreditService.CreditBalance(0, 0, 0);
+        }
+
+        synchronized (ledger) {
+            long earned = ledger.snapshotEarned;
+            long spent = ledger.snapshotSpent;
+            for (int i = 0; i < ledger.tailSize; i++) {
+                earned += readInt(ledger.tail[i], 16);
+                spent += readInt(ledger.tail[i], 20);
+            }
+            return new CreditService.CreditBalance((int) (earned - spent), (int) earned, (int) spent);
+        }
+    }
+
+    /**
+     * Whether the ledger holds any events (or a snapshot) for a user
+     */
+    public boolean hasEvents(long userId) {
+        return users.containsKey(userId);
+    }
+
+    /**
+     * Number of events appended so far
+     */
+    public synchronized long getEventCount() {
+        return nextSeq - 1;
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        if (snapshotChannel != null) {
+            snapshotChannel.force(true);
+            snapshotChannel.close();
+        }
+    }
+
+    // Fold the tail into the snapshot and persist it
+    private void writeSnapshot(UserLedger ledger) {
+        long earned = ledger.snapshotEarned;
+        long spent = ledger.snapshotSpent;
+        for (int i = 0; i < ledger.tailSize; i++) {
+            earned += readInt(ledger.tail[i], 16);
+            spent += readInt(ledger.tail[i], 20);
+        }
+        long lastSeq = ledger.tail[ledger.tailSize - 1];
+        forceThrough(ledger.tail[0], lastSeq);
+
+        ByteBuffer snapshot = ByteBuffer.allocate(SNAPSHOT_BYTES);
+        snapshot.putLong(ledger.userId).putLong(lastSeq).putLong(earned).putLong(spent).flip();
+        try {
+            snapshotChannel.write(snapshot, snapshotChannel.size());
+        } catch (IOException e) {
+            // Keep the tail; the next snapshot attempt covers these events too
+            System.err.println("Failed to write ledger snapshot for user " + ledger.userId + ": " + e.getMessage());
+            return;
+        }
+
+        ledger.snapshotSeq = lastSeq;
+        ledger.snapshotEarned = earned;
+        ledger.snapshotSpent = spent;
+        ledger.tailSize = 0;
+    }
+
+    // Make the events in [firstSeq, lastSeq] durable; earlier segments were forced when they filled up
+    private void forceThrough(long firstSeq, long lastSeq) {
+        int segmentIndex = (int) ((lastSeq - 1) / recordsPerSegment);
+        long segmentFirstSeq = (long) segmentIndex * recordsPerSegment + 1;
+        int from = (int) ((Math.max(firstSeq, segmentFirstSeq) - 1) % recordsPerSegment) * RECORD_BYTES;
+        int to = (int) ((lastSeq - 1) % recordsPerSegment + 1) * RECORD_BYTES;
+        segments.get(segmentIndex).force(from, to - from);
+    }
+
+    private void loadSnapshots() throws IOException {
+        long size = snapshotChannel.size() - snapshotChannel.size() % SNAPSHOT_BYTES;
+        if (size == 0) {
+            return;
+        }
+        MappedByteBuffer buffer = snapshotChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        while (buffer.remaining() >= SNAPSHOT_BYTES) {
+            long userId = buffer.getLong();
+            long seq = buffer.getLong();
+            long earned = buffer.getLong();
+            long spent = buffer.getLong();
+
+            // Snapshots are appended in order, so the last one per user wins
+            UserLedger ledger = users.computeIfAbsent(userId, UserLedger::new);
+            ledger.snapshotSeq = seq;
+            ledger.snapshotEarned = earned;
+            ledger.snapshotSpent = spent;
+        }
+    }
+
+    // Replays every event; returns the sorted credit ids of the events after the checkpoint
+    private long[] replaySegments(long checkpoint) {
+        long[] afterCheckpoint = new long[64];
+        int count = 0;
+        for (MappedByteBuffer segment : segments) {
+            for (int i = 0; i < recordsPerSegment; i++) {
+                int offset = i * RECORD_BYTES;
+                long seq = segment.getLong(offset);
+                if (seq == 0) {
+                    long[] sorted = Arrays.copyOf(afterCheckpoint, count);
+                    Arrays.sort(sorted);
+                    return sorted;
+                }
+                nextSeq = seq + 1;
+
+                long creditId = segment.getLong(offset + 24);
+                if (creditId > checkpoint) {
+                    if (count == afterCheckpoint.length) {
+                        afterCheckpoint = Arrays.copyOf(afterCheckpoint, count * 2);
+                    }
+                    afterCheckpoint[count++] = creditId;
+                }
+
+                UserLedger ledger = users.computeIfAbsent(segment.getLong(offset + 8), UserLedger::new);
+                if (seq > ledger.snapshotSeq) {
+                    ledger.addTail(seq);
+                    if (ledger.tailSize == snapshotEvery) {
+                        writeSnapshot(ledger);
+                    }
+                }
+            }
+        }
+        long[] sorted = Arrays.copyOf(afterCheckpoint, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    // Append the credits rows after the checkpoint that no event carries (committed, but lost before
+    // their after-commit append), then move the checkpoint past them. Runs before the application takes
+    // writes, so no credit can commit below the new checkpoint afterwards. Returns the rows appended.
+    private int catchUp(long checkpoint, long[] afterCheckpoint) throws IOException {
+        boolean firstOpen = checkpoint < 0;
+        long afterId = Math.max(checkpoint, 0);
+        int appended = 0;
+        List<CreditRepository.ArchivableCredit> batch;
+        do {
+            batch = creditRepository.findAfterId(afterId, PageRequest.of(0, CATCH_UP_BATCH));
+            for (CreditRepository.ArchivableCredit credit : batch) {
+                afterId = credit.getId();
+                if ((!firstOpen && credit.getType().isCarryForward())
+                        || Arrays.binarySearch(afterCheckpoint, credit.getId()) >= 0) {
+                    continue;
+                }
+                append(credit.getId(), credit.getUserId(),
+                       credit.getType().earnedDelta(credit.getAmount()),
+                       credit.getType().spentDelta(credit.getAmount()));
+                appended++;
+            }
+        } while (batch.size() == CATCH_UP_BATCH);
+
+        // The checkpoint may only cover events that are on disk
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        writeCheckpoint(afterId);
+        return appended;
+    }
+
+    // Highest credit id the last open caught up to, or -1 if the ledger was never caught up
+    private long readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return -1;
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        return bytes.length == Long.BYTES ? ByteBuffer.wrap(bytes).getLong() : -1;
+    }
+
+    // Written to a temporary file and moved into place, so a crash leaves the old or the new checkpoint
+    private void writeCheckpoint(long creditId) throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, creditId));
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Absolute reads leave the shared buffer's position alone, so readers need no extra locking
+    private int readInt(long seq, int field) {
+        MappedByteBuffer segment = segments.get((int) ((seq - 1) / recordsPerSegment));
+        int offset = (int) ((seq - 1) % recordsPerSegment) * RECORD_BYTES;
+        return segment.getInt(offset + field);
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private MappedByteBuffer map(Path file) {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Mapping past EOF grows the (zero-filled) file to the full segment size
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_BYTES);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to map ledger segment " + file, e);
+        }
+    }
+
+    // Per-user snapshot plus the sequence numbers of events appended after it
+    private static class UserLedger {
+        final long userId;
+        long snapshotSeq;
+        long snapshotEarned;
+        long snapshotSpent;
+        long[] tail = new long[8];
+        int tailSize;
+
+        UserLedger(Long userId) {
+            this.userId = userId;
+        }
+
+        void addTail(long seq) {
+            if (tailSize == tail.length) {
+                tail = Arrays.copyOf(tail, tailSize * 2);
+            }
+            tail[tailSize++] = seq;
+        }
+    }
+}
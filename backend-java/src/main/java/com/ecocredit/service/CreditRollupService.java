@@ -0,0 +1,225 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.CreditDaily;
+import com.ecocredit.model.CreditMonthly;
+import com.ecocredit.repository.CreditDailyRepository;
+import com.ecocredit.repository.CreditMonthlyRepository;
+import com.ecocredit.repository.CreditRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the credit_daily and credit_monthly rollups in step with the credits ledger.
+ * Every ledger write adds its earned/spent delta to the user's day and month buckets in the same
+ * transaction, so chart reads never scan credits. Deltas are applied with a native upsert (MERGE on
+ * H2, INSERT ... ON DUPLICATE KEY UPDATE on MySQL), so two first writes to a bucket can't both insert it.
+ */
+@Service
+public class CreditRollupService {
+
+    private static final int BACKFILL_FLUSH_EVERY = 500;
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    public enum Granularity { DAY, MONTH }
+
+    private final CreditDailyRepository creditDailyRepository;
+    private final CreditMonthlyRepository creditMonthlyRepository;
+    private final CreditRepository creditRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CreditRollupService(CreditDailyRepository creditDailyRepository,
+                               CreditMonthlyRepository creditMonthlyRepository,
+                               CreditRepository creditRepository) {
+        this.creditDailyRepository = creditDailyRepository;
+        this.creditMonthlyRepository = creditMonthlyRepository;
+        this.creditRepository = creditRepository;
+    }
+
+    /**
+     * Add a ledger delta to the user's day and month buckets.
+     * Must run inside the transaction that inserts the ledger row.
+     * @param userId User whose ledger changed
+     * @param day Calendar day the ledger row belongs to
+     * @param earnedDelta Change in earned credits
+     * @param spentDelta Change in spent credits
+     */
+    @Transactional
+    public void applyDelta(Long userId, LocalDate day, int earnedDelta, int spentDelta) {
+        if (earnedDelta == 0 && spentDelta == 0) {
+            return;
+        }
+        applyDeltas(day, Map.of(userId, new int[] {earnedDelta, spentDelta}));
+    }
+
+    /**
+     * Add ledger deltas for many users on one day, with one JDBC batch of upserts per rollup table
+     * (used by bulk awards). Same transactional contract as applyDelta.
+     * @param day Calendar day the ledger rows belong to
+     * @param deltasByUser userId -> {earnedDelta, spentDelta}
+     */
+    @Transactional
+    public void applyDeltas(LocalDate day, Map<Long, int[]> deltasByUser) {
+        if (deltasByUser.isEmpty()) {
+            return;
+        }
+
+        Session session = entityManager.unwrap(Session.class);
+        session.flush();
+        session.doWork(connection -> {
+            boolean mysql = NativeUpserts.isMySql(connection);
+            batchUpsert(connection, "credit_daily", "rollup_day", day, deltasByUser, mysql);
+            batchUpsert(connection, "credit_monthly", "rollup_month", day.withDayOfMonth(1), deltasByUser, mysql);
+        });
+    }
+
+    /**
+     * Rebuild both rollup tables from the credits ledger with one grouped pass.
+     * Meant for first deployment or repair; run it while no credits are being written, since
+     * ledger rows committed during the rebuild may be counted twice or not at all. Rows already moved
+     * to the archive are not rebuilt (their carry-forward rows are not attributed to any day).
+     * @return Number of daily buckets written
+     */
+    @Transactional
+    public int backfill() {
+        long started = System.nanoTime();
+
+        Map<CreditDaily.Key, int[]> daily = new LinkedHashMap<>();
+        Map<CreditMonthly.Key, int[]> monthly = new LinkedHashMap<>();
+        for (CreditRepository.UserDayCreditTypeTotal row : creditRepository.sumCreditsByUserDayAndType()) {
+            if (row.getType().isCarryForward()) {
+                continue;
+            }
+            int total = row.getTotal().intValue();
+            int earned = row.getType().earnedDelta(total);
+            int spent = row.getType().spentDelta(total);
+
+            int[] day = daily.computeIfAbsent(new CreditDaily.Key(row.getUserId(), row.getDay()), k -> new int[2]);
+            day[0] += earned;
+            day[1] += spent;
+            int[] month = monthly.computeIfAbsent(
+                new CreditMonthly.Key(row.getUserId(), row.getDay().withDayOfMonth(1)), k -> new int[2]);
+            month[0] += earned;
+            month[1] += spent;
+        }
+
+        creditDailyRepository.deleteAllInBatch();
+        creditMonthlyRepository.deleteAllInBatch();
+
+        int written = 0;
+        for (Map.Entry<CreditDaily.Key, int[]> entry : daily.entrySet()) {
+            CreditDaily.Key key = entry.getKey();
+            entityManager.persist(new CreditDaily(key.getUserId(), key.getDay(),
+                                                  entry.getValue()[0], entry.getValue()[1]));
+            flushPeriodically(++written);
+        }
+        int months = 0;
+        for (Map.Entry<CreditMonthly.Key, int[]> entry : monthly.entrySet()) {
+            CreditMonthly.Key key = entry.getKey();
+            entityManager.persist(new CreditMonthly(key.getUserId(), key.getMonth(),
+                                                    entry.getValue()[0], entry.getValue()[1]));
+            flushPeriodically(++months);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        System.out.printf("📊 Credit rollup backfill wrote %d daily and %d monthly buckets in %d ms%n",
+                          written, months, (System.nanoTime() - started) / 1_000_000);
+        return written;
+    }
+
+    /**
+     * Chart series for a user, read from the rollups only.
+     * Every bucket in [from, to] is present; buckets without ledger activity are zero.
+     * @param userId User to chart
+     * @param granularity DAY or MONTH buckets
+     * @param from First day (or any day of the first month) to include
+     * @param to Last day (or any day of the last month) to include
+     * @return Series points: period, earned, spent, net
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getChart(Long userId, Granularity granularity, LocalDate from, LocalDate to) {
+        List<Map<String, Object>> series = new ArrayList<>();
+
+        if (granularity == Granularity.DAY) {
+            Map<LocalDate, CreditDaily> buckets = new HashMap<>();
+            for (CreditDaily bucket : creditDailyRepository.findByUserIdAndDayBetweenOrderByDay(userId, from, to)) {
+                buckets.put(bucket.getDay(), bucket);
+            }
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                CreditDaily bucket = buckets.get(day);
+                series.add(chartPoint(day.toString(),
+                                      bucket != null ? bucket.getEarned() : 0,
+                                      bucket != null ? bucket.getSpent() : 0));
+            }
+        } else {
+            LocalDate firstMonth = from.withDayOfMonth(1);
+            LocalDate lastMonth = to.withDayOfMonth(1);
+            Map<LocalDate, CreditMonthly> buckets = new HashMap<>();
+            for (CreditMonthly bucket :
+                    creditMonthlyRepository.findByUserIdAndMonthBetweenOrderByMonth(userId, firstMonth, lastMonth)) {
+                buckets.put(bucket.getMonth(), bucket);
+            }
+            for (LocalDate month = firstMonth; !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+                CreditMonthly bucket = buckets.get(month);
+                series.add(chartPoint(month.format(MONTH_FORMAT),
+                                      bucket != null ? bucket.getEarned() : 0,
+                                      bucket != null ? bucket.getSpent() : 0));
+            }
+        }
+        return series;
+    }
+
+    private Map<String, Object> chartPoint(String period, int earned, int spent) {
+        Map<String, Object> point = new HashMap<>();
+        point.put("period", period);
+        point.put("earned", earned);
+        point.put("spent", spent);
+        point.put("net", earned - spent);
+        return point;
+    }
+
+    // Upserts into a rollup table: insert the bucket, or add the delta to the existing one
+    private void batchUpsert(Connection connection, String table, String periodColumn, LocalDate period,
+                             Map<Long, int[]> deltasByUser, boolean mysql) throws SQLException {
+        String sql = mysql
+            ? "INSERT INTO " + table + " (user_id, " + periodColumn + ", earned, spent, updated_at) " +
+              "VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP) ON DUPLICATE KEY UPDATE " +
+              "earned = earned + VALUES(earned), spent = spent + VALUES(spent), updated_at = CURRENT_TIMESTAMP"
+            : "MERGE INTO " + table + " t USING (VALUES (CAST(? AS BIGINT), CAST(? AS DATE), " +
+              "CAST(? AS INTEGER), CAST(? AS INTEGER))) AS s(user_id, period, earned, spent) " +
+              "ON t.user_id = s.user_id AND t." + periodColumn + " = s.period " +
+              "WHEN MATCHED THEN UPDATE SET earned = t.earned + s.earned, spent = t.spent + s.spent, " +
+              "updated_at = CURRENT_TIMESTAMP " +
+              "WHEN NOT MATCHED THEN INSERT (user_id, " + periodColumn + ", earned, spent, updated_at) " +
+              "VALUES (s.user_id, s.period, s.earned, s.spent, CURRENT_TIMESTAMP)";
+        NativeUpserts.execute(connection, mysql, sql, deltasByUser.entrySet(), (statement, entry) -> {
+            statement.setLong(1, entry.getKey());
+            statement.setDate(2, Date.valueOf(period));
+            statement.setInt(3, entry.getValue()[0]);
+            statement.setInt(4, entry.getValue()[1]);
+        });
+    }
+
+    private void flushPeriodically(int written) {
+        if (written % BACKFILL_FLUSH_EVERY == 0) {
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+}
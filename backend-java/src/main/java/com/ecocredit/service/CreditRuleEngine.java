@@ -0,0 +1,119 @@
+package com.ecocredit.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Table-driven step-to-credit rules: a base rate plus a bonus for the highest tier reached.
+ * Tiers come from configuration (ecocredit.credits.bonus-tiers=threshold:bonus,...) and are kept as
+ * primitive arrays sorted by descending threshold, so the numeric paths allocate nothing.
+ */
+@Component
+public class CreditRuleEngine {
+    
+    private final int stepsPerCredit;
+    private final int goalSteps;
+    private final int[] thresholds;
+    private final int[] bonuses;
+    
+    public CreditRuleEngine(@Value("${ecocredit.credits.steps-per-credit:100}") int stepsPerCredit,
+                            @Value("${ecocredit.credits.goal-steps:10000}") int goalSteps,
+                            @Value("${ecocredit.credits.bonus-tiers:10000:50,5000:25,1000:10}") String bonusTiers) {
+        if (stepsPerCredit <= 0 || goalSteps <= 0) {
+            throw new IllegalArgumentException("steps-per-credit and goal-steps must be positive");
+        }
+        this.stepsPerCredit = stepsPerCredit;
+        this.goalSteps = goalSteps;
+        
+        int[][] tiers = parseTiers(bonusTiers);
+        this.thresholds = new int[tiers.length];
+        this.bonuses = new int[tiers.length];
+        for (int i = 0; i < tiers.length; i++) {
+            thresholds[i] = tiers[i][0];
+            bonuses[i] = tiers[i][1];
+        }
+    }
+    
+    /**
+     * Base credits: 1 eco-credit per stepsPerCredit steps
+     */
+    public int baseCredits(int steps) {
+        return steps / stepsPerCredit;
+    }
+    
+    /**
+     * Bonus of the highest tier the steps reach (0 below the lowest tier)
+     */
+    public int bonusCredits(int steps) {
+        for (int i = 0; i < thresholds.length; i++) {
+            if (steps >= thresholds[i]) {
+                return bonuses[i];
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Total credits for a day's steps (base + bonus)
+     */
+    public int totalCredits(int steps) {
+        return baseCredits(steps) + bonusCredits(steps);
+    }
+    
+    /**
+     * Progress towards the daily sustainable goal, as a percentage capped at 100
+     */
+    public double goalProgress(int steps) {
+        return Math.min(steps / (double) goalSteps, 1.0) * 100;
+    }
+    
+    /**
+     * Total credits for many step counts at once (batch conversion jobs)
+     * @param steps Step counts
+     * @return Credits for each entry, in the same order
+     */
+    public int[] calculateAll(int[] steps) {
+        int[] credits = new int[steps.length];
+        calculateAll(steps, credits);
+        return credits;
+    }
+    
+    /**
+     * Total credits for many step counts at once, written into a caller-supplied array
+     * @param steps Step counts
+     * @param credits Output array, at least as long as steps
+     */
+    public void calculateAll(int[] steps, int[] credits) {
+        if (credits.length < steps.length) {
+            throw new IllegalArgumentException("Output array is shorter than input");
+        }
+        for (int i = 0; i < steps.length; i++) {
+            credits[i] = totalCredits(steps[i]);
+        }
+    }
+    
+    public int getGoalSteps() {
+        return goalSteps;
+    }
+    
+    // "10000:50,5000:25,1000:10" -> [[10000, 50], [5000, 25], [1000, 10]] sorted by descending threshold
+    private static int[][] parseTiers(String spec) {
+        if (spec == null || spec.isBlank()) {
+            return new int[0][];
+        }
+        
+        String[] entries = spec.split(",");
+        int[][] tiers = new int[entries.length][];
+        for (int i = 0; i < entries.length; i++) {
+            String[] parts = entries[i].trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid credit bonus tier '" + entries[i] + "', expected threshold:bonus");
+            }
+            tiers[i] = new int[] { Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()) };
+        }
+        Arrays.sort(tiers, (a, b) -> Integer.compare(b[0], a[0]));
+        return tiers;
+    }
+}
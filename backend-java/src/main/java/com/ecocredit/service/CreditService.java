@@ -2,22 +2,70 @@ package com.ecocredit.service;
 
 import com.ecocredit.model.User;
 import com.ecocredit.model.Credit;
+import com.ecocredit.model.CreditType;
 import com.ecocredit.repository.CreditRepository;
 import lombok.RequiredArgsConstructor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
 @Service
 public class CreditService {
     
+    public static final int HISTORY_DEFAULT_LIMIT = 20;
+    public static final int HISTORY_MAX_LIMIT = 100;
+    
     private final CreditRepository creditRepository;
+    private final BalanceService balanceService;
+    private final CreditRollupService creditRollupService;
+    private final ObjectProvider<CreditLedgerService> creditLedger;
+    private final CreditRuleEngine creditRuleEngine;
+    private final LedgerArchiveService ledgerArchiveService;
+    private final int bulkChunkSize;
+    private final TransactionTemplate chunkTransaction;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
     
     // Constructor injection
-    public CreditService(CreditRepository creditRepository) {
+    public CreditService(CreditRepository creditRepository,
+                         BalanceService balanceService,
+                         CreditRollupService creditRollupService,
+                         ObjectProvider<CreditLedgerService> creditLedger,
+                         CreditRuleEngine creditRuleEngine,
+                         LedgerArchiveService ledgerArchiveService,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${ecocredit.credits.bulk-chunk-size:500}") int bulkChunkSize) {
         this.creditRepository = creditRepository;
+        this.balanceService = balanceService;
+        this.creditRollupService = creditRollupService;
+        this.creditLedger = creditLedger;
+        this.creditRuleEngine = creditRuleEngine;
+        this.ledgerArchiveService = ledgerArchiveService;
+        this.bulkChunkSize = Math.max(1, bulkChunkSize);
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
     
     /**
@@ -26,32 +74,27 @@ public class CreditService {
      * @return Credit calculation details
      */
     public CreditCalculationResult calculateEcoCredits(int steps) {
-        // Base credits: 1 eco-credit per 100 steps
-        int baseCredits = steps / 100;
-        
-        // Bonus eco-credits for sustainable living milestones
-        int bonusCredits = 0;
-        if (steps >= 10000) {
-            bonusCredits = 50;  // Daily sustainable transportation goal
-        } else if (steps >= 5000) {
-            bonusCredits = 25;  // Halfway to sustainable daily goal
-        } else if (steps >= 1000) {
-            bonusCredits = 10;  // Getting started with green living
-        }
-        
-        int totalCredits = baseCredits + bonusCredits;
-        double sustainableGoalProgress = Math.min(steps / 10000.0, 1.0) * 100;
+        int baseCredits = creditRuleEngine.baseCredits(steps);
+        int bonusCredits = creditRuleEngine.bonusCredits(steps);
         
         return new CreditCalculationResult(
+            steps,
             baseCredits,
             bonusCredits,
-            totalCredits,
-            sustainableGoalProgress,
-            String.format("Converted %d steps of sustainable transportation into %d eco-credits!", 
-                         steps, totalCredits)
+            baseCredits + bonusCredits,
+            creditRuleEngine.goalProgress(steps)
         );
     }
     
+    /**
+     * Credits for a step count without building a result object (hot paths, batch jobs)
+     * @param steps Number of steps
+     * @return Total eco-credits
+     */
+    public int calculateTotalCredits(int steps) {
+        return creditRuleEngine.totalCredits(steps);
+    }
+    
     /**
      * Award credits to user
      * @param user User to award credits to
@@ -61,42 +104,224 @@ public class CreditService {
      */
     @Transactional
     public Credit awardCredits(User user, int amount, String source) {
-        Credit credit = new Credit(user, amount, "earned", source);
-        return creditRepository.save(credit);
+        Credit credit = new Credit(user, amount, CreditType.EARNED, source);
+        return recordCredit(credit);
+    }
+    
+    /**
+     * Award credits to many users at once (e.g. nightly campaign payouts).
+     * Awards are written in chunks of ecocredit.credits.bulk-chunk-size, each in its own transaction
+     * (independent of any the caller has open): its rows go out as JDBC insert batches, its balance and
+     * rollup deltas are applied with one batch each, and it commits. Balance rows are therefore locked
+     * only for one chunk, and pending cache deltas and after-commit work never outgrow a chunk.
+     * A failing chunk ends the payout; the chunks before it stay committed and the result says how many
+     * awards (a prefix of the collection, in iteration order) were written, so the rest can be re-run.
+     * @param awards Credits to award
+     * @return Awards written, and the error that stopped the payout if it didn't complete
+     */
+    public BulkAwardResult awardCreditsBulk(Collection<Award> awards) {
+        long started = System.nanoTime();
+        int inserted = 0;
+        String error = null;
+        
+        List<Award> chunk = new ArrayList<>(Math.min(bulkChunkSize, awards.size()));
+        Iterator<Award> it = awards.iterator();
+        while (it.hasNext() && error == null) {
+            chunk.add(it.next());
+            if (chunk.size() == bulkChunkSize || !it.hasNext()) {
+                try {
+                    inserted += chunkTransaction.execute(status -> insertChunk(chunk));
+                } catch (RuntimeException e) {
+                    error = "Chunk starting at award " + inserted + ": " + e.getMessage();
+                }
+                chunk.clear();
+            }
+        }
+        
+        double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+        System.out.printf("💚 Bulk award inserted %d of %d credit rows in %.2fs (%.0f rows/sec)%n",
+                          inserted, awards.size(), seconds, seconds > 0 ? inserted / seconds : 0.0);
+        if (error != null) {
+            System.err.println("Bulk award stopped: " + error);
+        }
+        return new BulkAwardResult(inserted, awards.size(), error);
+    }
+    
+    private int insertChunk(List<Award> chunk) {
+        Map<Long, int[]> deltasByUser = new HashMap<>();
+        List<Credit> credits = new ArrayList<>(chunk.size());
+        for (Award award : chunk) {
+            // getReference avoids loading the User row for every award
+            Credit credit = new Credit(entityManager.getReference(User.class, award.userId),
+                                       award.amount, CreditType.EARNED, award.source);
+            entityManager.persist(credit);
+            credits.add(credit);
+            deltasByUser.computeIfAbsent(award.userId, id -> new int[2])[0] += award.amount;
+        }
+        
+        entityManager.flush();
+        balanceService.applyDeltas(deltasByUser);
+        creditRollupService.applyDeltas(LocalDate.now(), deltasByUser);
+        appendToLedger(credits);
+        return chunk.size();
+    }
+    
+    /**
+     * Insert a ledger row and apply it to the user's balance projection and credit rollups.
+     * All credit writes (awards, redemption deductions, refunds) go through here
+     * so user_balances and credit_daily/credit_monthly never drift from the ledger.
+     * @param credit Ledger row to insert
+     * @return Saved credit record
+     */
+    @Transactional
+    public Credit recordCredit(Credit credit) {
+        Credit savedCredit = creditRepository.save(credit);
+        int earnedDelta = credit.getType().earnedDelta(credit.getAmount());
+        int spentDelta = credit.getType().spentDelta(credit.getAmount());
+        balanceService.applyDelta(credit.getUser(), earnedDelta, spentDelta);
+        LocalDate day = savedCredit.getCreatedAt() != null ? savedCredit.getCreatedAt().toLocalDate() : LocalDate.now();
+        creditRollupService.applyDelta(credit.getUser().getId(), day, earnedDelta, spentDelta);
+        appendToLedger(savedCredit);
+        return savedCredit;
+    }
+    
+    private void appendToLedger(List<Credit> credits) {
+        CreditLedgerService ledger = creditLedger.getIfAvailable();
+        if (ledger == null) {
+            return;
+        }
+        
+        Runnable append = () -> credits.forEach(ledger::append);
+        
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                append.run();
+            }
+        });
+    }
+    
+    /**
+     * Get one page of a user's credit history, newest first.
+     * Pages are addressed by an opaque cursor encoding (createdAt, id) of the last row returned, so each
+     * page is an index seek on (user_id, created_at, id) regardless of how deep the client has scrolled.
+     * Past the oldest hot row, pages of users with archived credits continue transparently from the ledger archive.
+     * @param user User whose history to read
+     * @param after Cursor from the previous page's nextCursor, or null for the first page
+     * @param limit Page size (clamped to 1..HISTORY_MAX_LIMIT)
+     * @return History page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public CreditHistoryPage getCreditHistory(User user, String after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, HISTORY_MAX_LIMIT));
+        // Fetch one extra row to learn whether another page exists
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        
+        HistoryCursor cursor = after == null || after.isBlank() ? null : HistoryCursor.decode(after);
+        List<CreditRepository.CreditHistoryEntry> rows = new ArrayList<>(cursor == null
+            ? creditRepository.findHistory(user.getId(), page)
+            : creditRepository.findHistoryAfter(user.getId(), cursor.createdAt, cursor.id, page));
+        
+        if (rows.size() <= pageSize && ledgerArchiveService.hasArchivedCredits(user.getId())) {
+            // Hot table exhausted: continue with archived rows, which are all older
+            CreditRepository.CreditHistoryEntry last = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+            rows.addAll(ledgerArchiveService.findCreditHistory(user.getId(),
+                last != null ? last.getCreatedAt() : cursor != null ? cursor.createdAt : null,
+                last != null ? last.getId() : cursor != null ? cursor.id : null,
+                pageSize + 1 - rows.size()));
+        }
+        
+        boolean hasMore = rows.size() > pageSize;
+        List<CreditRepository.CreditHistoryEntry> entries = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            CreditRepository.CreditHistoryEntry last = entries.get(entries.size() - 1);
+            nextCursor = new HistoryCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CreditHistoryPage(entries, nextCursor);
+    }
+    
+    // Mirror committed rows into the optional event ledger (rolled-back rows never reach it)
+    private void appendToLedger(Credit credit) {
+        CreditLedgerService ledger = creditLedger.getIfAvailable();
+        if (ledger == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ledger.append(credit);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ledger.append(credit);
+            }
+        });
     }
     
     /**
-     * Get user's total credit balance
+     * Get user's total credit balance (served by BalanceService from the event ledger, cache or user_balances)
      * @param user User to get balance for
      * @return Credit balance details
      */
     public CreditBalance getCreditBalance(User user) {
-        Integer earned = creditRepository.sumCreditsByUserAndType(user, "earned");
-        Integer spent = creditRepository.sumCreditsByUserAndType(user, "spent");
+        return balanceService.getBalance(user);
+    }
+    
+    // Inner classes for arguments and return types
+    public static class Award {
+        public final Long userId;
+        public final int amount;
+        public final String source;
         
-        earned = earned != null ? earned : 0;
-        spent = spent != null ? spent : 0;
+        public Award(Long userId, int amount, String source) {
+            this.userId = userId;
+            this.amount = amount;
+            this.source = source;
+        }
+    }
+    
+    public static class BulkAwardResult {
+        public final int awarded; // Awards committed: the first ones of the collection, in iteration order
+        public final int total;
+        public final String error; // Why the payout stopped early, or null
         
-        int available = earned - spent;
+        public BulkAwardResult(int awarded, int total, String error) {
+            this.awarded = awarded;
+            this.total = total;
+            this.error = error;
+        }
         
-        return new CreditBalance(available, earned, spent);
+        public boolean isComplete() {
+            return awarded == total;
+        }
     }
     
-    // Inner classes for return types
     public static class CreditCalculationResult {
+        public final int steps;
         public final int baseCredits;
         public final int bonusCredits;
         public final int totalCredits;
         public final double sustainableGoalProgress;
-        public final String message;
         
-        public CreditCalculationResult(int baseCredits, int bonusCredits, int totalCredits,
-                                     double sustainableGoalProgress, String message) {
+        public CreditCalculationResult(int steps, int baseCredits, int bonusCredits, int totalCredits,
+                                     double sustainableGoalProgress) {
+            this.steps = steps;
             this.baseCredits = baseCredits;
             this.bonusCredits = bonusCredits;
             this.totalCredits = totalCredits;
             this.sustainableGoalProgress = sustainableGoalProgress;
-            this.message = message;
+        }
+        
+        // Built on demand so callers that only need the numbers don't pay for formatting
+        public String getMessage() {
+            return String.format("Converted %d steps of sustainable transportation into %d eco-credits!", 
+                                 steps, totalCredits);
         }
         
         public Map<String, Object> toMap() {
@@ -105,11 +330,71 @@ public class CreditService {
             result.put("bonusCredits", bonusCredits);
             result.put("totalCredits", totalCredits);
             result.put("sustainableGoalProgress", sustainableGoalProgress);
-            result.put("message", message);
+            result.put("message", getMessage());
             return result;
         }
     }
     
+    public static class CreditHistoryPage {
+        public final List<CreditRepository.CreditHistoryEntry> entries;
+        public final String nextCursor;
+        
+        public CreditHistoryPage(List<CreditRepository.CreditHistoryEntry> entries, String nextCursor) {
+            this.entries = entries;
+            this.nextCursor = nextCursor;
+        }
+        
+        public Map<String, Object> toMap() {
+            List<Map<String, Object>> items = new ArrayList<>(entries.size());
+            for (CreditRepository.CreditHistoryEntry entry : entries) {
+                Map<String, Object> item = new HashMap<>();
+                item.put("id", entry.getId());
+                item.put("amount", entry.getAmount());
+                item.put("type", entry.getType().name().toLowerCase());
+                item.put("source", entry.getSource());
+                item.put("createdAt", entry.getCreatedAt());
+                items.add(item);
+            }
+            
+            Map<String, Object> result = new HashMap<>();
+            result.put("items", items);
+            result.put("nextCursor", nextCursor);
+            result.put("hasMore", nextCursor != null);
+            return result;
+        }
+    }
+    
+    // Keyset position in the history: URL-safe base64 of "createdAt|id"
+    private static class HistoryCursor {
+        final LocalDateTime createdAt;
+        final Long id;
+        
+        HistoryCursor(LocalDateTime createdAt, Long id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+        
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        static HistoryCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Invalid history cursor");
+                }
+                return new HistoryCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                                         Long.parseLong(raw.substring(separator + 1)));
+            } catch (DateTimeParseException | IllegalArgumentException e) {
+                // NumberFormatException is an IllegalArgumentException too
+                throw new IllegalArgumentException("Invalid history cursor", e);
+            }
+        }
+    }
+    
     public static class CreditBalance {
         public final int available;
         public final int earned;
@@ -121,6 +406,20 @@ public class CreditService {
             this.spent = spent;
         }
         
+        /**
+         * Build a balance from the grouped per-type ledger sums
+         */
+        public static CreditBalance fromTypeTotals(List<? extends CreditRepository.CreditTypeTotal> typeTotals) {
+            int earned = 0;
+            int spent = 0;
+            for (CreditRepository.CreditTypeTotal typeTotal : typeTotals) {
+                int total = typeTotal.getTotal().intValue();
+                earned += typeTotal.getType().earnedDelta(total);
+                spent += typeTotal.getType().spentDelta(total);
+            }
+            return new CreditBalance(earned - spent, earned, spent);
+        }
+        
         public Map<String, Integer> toMap() {
             Map<String, Integer> result = new HashMap<>();
             result.put("available", available);
@@ -7,6 +7,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.annotation.PostConstruct;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Service
@@ -15,11 +16,14 @@ public class DataInitializationService {
     
     private final PartnerRepository partnerRepository;
     private final RewardCatalogRepository rewardCatalogRepository;
+    private final StepChallengeRepository stepChallengeRepository;
     
     public DataInitializationService(PartnerRepository partnerRepository,
-                                   RewardCatalogRepository rewardCatalogRepository) {
+                                   RewardCatalogRepository rewardCatalogRepository,
+                                   StepChallengeRepository stepChallengeRepository) {
         this.partnerRepository = partnerRepository;
         this.rewardCatalogRepository = rewardCatalogRepository;
+        this.stepChallengeRepository = stepChallengeRepository;
     }
     
     @PostConstruct
@@ -135,6 +139,13 @@ public class DataInitializationService {
                     80, BigDecimal.valueOf(15.00), "PHYSICAL_GOOD", false);
         createReward(ecolife, "Organic Cotton Tote Bag", "Eco-friendly shopping bag made from organic cotton", 
                     60, BigDecimal.valueOf(12.00), "PHYSICAL_GOOD", false);
+        
+        // Sample step challenges (current month)
+        LocalDate monthStart = LocalDate.now().withDayOfMonth(1);
+        stepChallengeRepository.save(new StepChallenge(grab, "Walk Instead of Ride",
+            "Out-walk everyone this month and skip the short rides", monthStart, monthStart.plusMonths(1).minusDays(1)));
+        stepChallengeRepository.save(new StepChallenge(patagonia, "Patagonia Trail Month",
+            "Most steps this month wins bragging rights on the trail", monthStart, monthStart.plusMonths(1).minusDays(1)));
     }
     
     private void createReward(Partner partner, String name, String description, 
@@ -0,0 +1,155 @@
+package com.ecocredit.service;
+
+import com.ecocredit.repository.DeviceStepRepository;
+import com.ecocredit.repository.StepRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Multi-device step sync. Each device reports its own count for a day; the server keeps the
+ * highest count per (user, device, date) and the day's Step total is the highest count of any
+ * device (a phone and a watch worn together count the same walk, so their counts don't add up).
+ *
+ * Both merges are maxima, so reports can arrive late, twice or out of order and the result is the
+ * same; devices just send their latest count, without reading anything first. Device counts are
+ * raised with one native statement per chunk (MERGE on H2, INSERT ... ON DUPLICATE KEY UPDATE
+ * with GREATEST on MySQL). A sync holds the user's user_stats row lock from before the device rows
+ * change until its Step totals are written, so two devices syncing at once can't write a lower
+ * merged total last.
+ */
+@Service
+public class DeviceStepService {
+    
+    public static final int MAX_DEVICE_ID_LENGTH = 64;
+    
+    private final DeviceStepRepository deviceStepRepository;
+    private final StepIngestService stepIngestService;
+    private final UserStatsService userStatsService;
+    private final int chunkSize;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    public DeviceStepService(DeviceStepRepository deviceStepRepository,
+                             StepIngestService stepIngestService,
+                             UserStatsService userStatsService,
+                             @Value("${ecocredit.steps.ingest-chunk-size:500}") int chunkSize) {
+        this.deviceStepRepository = deviceStepRepository;
+        this.stepIngestService = stepIngestService;
+        this.userStatsService = userStatsService;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+    
+    /**
+     * Record one device's counts and rewrite the merged daily totals of the days it reported.
+     * @param userId Owner of the device
+     * @param deviceId Device reporting
+     * @param counts date -> the device's step count for that day
+     * @return date -> merged step total, for every reported day
+     */
+    @Transactional
+    public Map<LocalDate, Integer> sync(Long userId, String deviceId, Map<LocalDate, Integer> counts) {
+        if (deviceId == null || deviceId.isBlank() || deviceId.length() > MAX_DEVICE_ID_LENGTH) {
+            throw new IllegalArgumentException("Invalid deviceId");
+        }
+        for (Map.Entry<LocalDate, Integer> count : counts.entrySet()) {
+            if (count.getValue() == null || count.getValue() < 0) {
+                throw new IllegalArgumentException("Invalid steps count for " + count.getKey());
+            }
+        }
+        if (counts.isEmpty()) {
+            return Map.of();
+        }
+        
+        // Serializes with every other step write of this user (re-taken by upsertSteps below)
+        userStatsService.lockStats(Set.of(userId));
+        
+        List<Map.Entry<LocalDate, Integer>> reported = new ArrayList<>(counts.entrySet());
+        Session session = entityManager.unwrap(Session.class);
+        session.flush();
+        session.doWork(connection -> {
+            boolean mysql = NativeUpserts.isMySql(connection);
+            for (int from = 0; from < reported.size(); from += chunkSize) {
+                executeChunk(connection, userId, deviceId,
+                             reported.subList(from, Math.min(reported.size(), from + chunkSize)), mysql);
+            }
+        });
+        
+        Map<LocalDate, Integer> merged = new TreeMap<>();
+        List<LocalDate> dates = new ArrayList<>(counts.keySet());
+        for (int from = 0; from < dates.size(); from += chunkSize) {
+            for (StepRepository.DailySteps day :
+                    deviceStepRepository.findMergedSteps(userId, dates.subList(from, Math.min(dates.size(), from + chunkSize)))) {
+                merged.put(day.getDate(), day.getSteps());
+            }
+        }
+        
+        List<StepIngestService.StepEntry> entries = new ArrayList<>(merged.size());
+        merged.forEach((date, steps) -> entries.add(new StepIngestService.StepEntry(userId, date, steps)));
+        // Days whose merged total didn't move are left untouched by the upsert
+        stepIngestService.upsertSteps(entries);
+        return merged;
+    }
+    
+    private void executeChunk(Connection connection, Long userId, String deviceId,
+                              List<Map.Entry<LocalDate, Integer>> chunk, boolean mysql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(mysql ? mysqlUpsert(chunk.size()) : mergeUpsert(chunk.size()))) {
+            int index = 1;
+            for (Map.Entry<LocalDate, Integer> count : chunk) {
+                statement.setLong(index++, userId);
+                statement.setString(index++, deviceId);
+                statement.setDate(index++, Date.valueOf(count.getKey()));
+                statement.setInt(index++, count.getValue());
+            }
+            statement.executeUpdate();
+        }
+    }
+    
+    // H2 / SQL:2003 MERGE that only ever raises a device's count
+    private static String mergeUpsert(int rows) {
+        StringBuilder sql = new StringBuilder("MERGE INTO device_steps t USING (VALUES ");
+        appendPlaceholders(sql, rows, "(CAST(? AS BIGINT), CAST(? AS VARCHAR(64)), CAST(? AS DATE), CAST(? AS INTEGER))");
+        sql.append(") AS s(user_id, device_id, date, steps) ")
+           .append("ON t.user_id = s.user_id AND t.device_id = s.device_id AND t.date = s.date ")
+           .append("WHEN MATCHED AND t.steps < s.steps THEN UPDATE SET steps = s.steps, updated_at = CURRENT_TIMESTAMP ")
+           .append("WHEN NOT MATCHED THEN INSERT (user_id, device_id, date, steps, updated_at) ")
+           .append("VALUES (s.user_id, s.device_id, s.date, s.steps, CURRENT_TIMESTAMP)");
+        return sql.toString();
+    }
+    
+    // MySQL multi-row insert that keeps the higher count on the primary key
+    private static String mysqlUpsert(int rows) {
+        StringBuilder sql = new StringBuilder(
+            "INSERT INTO device_steps (user_id, device_id, date, steps, updated_at) VALUES ");
+        appendPlaceholders(sql, rows, "(?, ?, ?, ?, CURRENT_TIMESTAMP)");
+        // updated_at is assigned first, while steps still holds the old value
+        sql.append(" ON DUPLICATE KEY UPDATE ")
+           .append("updated_at = IF(VALUES(steps) > steps, CURRENT_TIMESTAMP, updated_at), ")
+           .append("steps = GREATEST(steps, VALUES(steps))");
+        return sql.toString();
+    }
+    
+    private static void appendPlaceholders(StringBuilder sql, int rows, String row) {
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(row);
+        }
+    }
+}
@@ -0,0 +1,608 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.ArchivedRedemptions;
+import com.ecocredit.model.Credit;
+import com.ecocredit.model.CreditType;
+import com.ecocredit.model.Redemption;
+import com.ecocredit.model.RewardCatalog;
+import com.ecocredit.model.User;
+import com.ecocredit.model.VoucherCode;
+import com.ecocredit.repository.ArchivedRedemptionsRepository;
+import com.ecocredit.repository.CreditRepository;
+import com.ecocredit.repository.RedemptionRepository;
+import com.ecocredit.repository.VoucherCodeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves ledger rows older than ecocredit.archive.horizon-days out of the hot tables into
+ * append-only, gzip-compressed NDJSON files per table and calendar month, e.g.
+ * archive/credits-2025-01.ndjson.gz. Each archiver batch appends one gzip member, so files are
+ * never rewritten (concatenated members read back as one stream).
+ *
+ * Archived credits are replaced by per-user CARRY_FORWARD_EARNED/SPENT rows dated at the cutoff, so
+ * balances, user_balances reconciliation and the rollups are unaffected. Credit history keeps working:
+ * once the hot table is exhausted for a user with carry-forward rows, getCreditHistory continues into
+ * the archive files.
+ *
+ * Archived redemptions are added to the user's archived_redemptions totals, which redemption counts
+ * and statistics include, and getUserRedemptionHistory reads them back from the archive files.
+ *
+ * Each credits and redemptions file has a binary index next to it (credits-2025-01.idx) with one
+ * [userId:long][offset:long][length:long] entry per user and gzip member, so a history read only
+ * inflates the members holding that user's rows. Files written before the index existed are covered
+ * by one entry for all users spanning their old members.
+ */
+@Service
+public class LedgerArchiveService {
+
+    private static final String CREDITS = "credits";
+    private static final String REDEMPTIONS = "redemptions";
+    private static final String VOUCHER_CODES = "voucher_codes";
+    private static final String FILE_SUFFIX = ".ndjson.gz";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final int INDEX_ENTRY_BYTES = 24;
+    private static final long ALL_USERS = 0L;
+
+    private final CreditRepository creditRepository;
+    private final RedemptionRepository redemptionRepository;
+    private final VoucherCodeRepository voucherCodeRepository;
+    private final ArchivedRedemptionsRepository archivedRedemptionsRepository;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int horizonDays;
+    private final int batchSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public LedgerArchiveService(CreditRepository creditRepository,
+                                RedemptionRepository redemptionRepository,
+                                VoucherCodeRepository voucherCodeRepository,
+                                ArchivedRedemptionsRepository archivedRedemptionsRepository,
+                                ObjectMapper objectMapper,
+                                @Value("${ecocredit.archive.dir:archive}") String directory,
+                                @Value("${ecocredit.archive.horizon-days:365}") int horizonDays,
+                                @Value("${ecocredit.archive.batch-size:1000}") int batchSize) {
+        this.creditRepository = creditRepository;
+        this.redemptionRepository = redemptionRepository;
+        this.voucherCodeRepository = voucherCodeRepository;
+        this.archivedRedemptionsRepository = archivedRedemptionsRepository;
+        this.objectMapper = objectMapper;
+        this.directory = Paths.get(directory);
+        this.horizonDays = horizonDays;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Archive everything older than the configured horizon (scheduled via ecocredit.archive.cron)
+     */
+    @Scheduled(cron = "${ecocredit.archive.cron:-}")
+    @Transactional
+    public void archiveExpired() {
+        archiveBefore(getCutoff());
+    }
+
+    /**
+     * Rows created before this instant are due for archiving
+     */
+    public LocalDateTime getCutoff() {
+        return LocalDateTime.now().minusDays(horizonDays);
+    }
+
+    /**
+     * Archive ledger rows created before the cutoff.
+     * Archive files are appended and forced to disk before the hot rows are deleted, so a failure
+     * never loses rows; at worst a rolled-back run leaves records in the archive that are still hot,
+     * which the history read path skips (it seeks strictly past rows it has already returned).
+     * @param cutoff Rows created before this instant are archived
+     * @return Counts of archived rows
+     */
+    @Transactional
+    public ArchiveResult archiveBefore(LocalDateTime cutoff) {
+        long started = System.nanoTime();
+        createDirectory();
+
+        ArchiveResult result = new ArchiveResult();
+        Map<Long, long[]> carryForward = new HashMap<>();
+        archiveCredits(cutoff, carryForward, result);
+        writeCarryForward(cutoff, carryForward);
+        result.carryForwardUsers = carryForward.size();
+        archiveRedemptions(cutoff, result);
+
+        System.out.printf("🗄️ Archived %d credits, %d redemptions and %d voucher codes older than %s in %d ms%n",
+                          result.credits, result.redemptions, result.voucherCodes, cutoff,
+                          (System.nanoTime() - started) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Whether a user has archived credits: archiving leaves carry-forward rows for every user whose
+     * credits it moved, so this is one index seek and other users' history never touches the archive
+     */
+    public boolean hasArchivedCredits(Long userId) {
+        return creditRepository.hasCarryForward(userId);
+    }
+
+    /**
+     * Read a user's archived credit history, newest first, continuing strictly after a keyset position
+     * @param userId User whose history to read
+     * @param beforeCreatedAt createdAt of the last row already returned, or null to start at the newest
+     * @param beforeId id of the last row already returned
+     * @param limit Maximum number of rows
+     * @return Archived history rows
+     */
+    public List<CreditRepository.CreditHistoryEntry> findCreditHistory(Long userId, LocalDateTime beforeCreatedAt,
+                                                                      Long beforeId, int limit) {
+        List<Path> months = listArchiveFiles(CREDITS);
+        YearMonth cursorMonth = beforeCreatedAt != null ? YearMonth.from(beforeCreatedAt) : null;
+        Comparator<ArchivedCredit> newestFirst = Comparator
+            .comparing((ArchivedCredit entry) -> entry.createdAt)
+            .thenComparing(entry -> entry.id)
+            .reversed();
+
+        List<ArchivedCredit> found = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (Path file : months) {
+            // Months are scanned newest first; skip those entirely after the cursor
+            if (cursorMonth != null && monthOf(file, CREDITS).isAfter(cursorMonth)) {
+                continue;
+            }
+            readRecords(file, userId, record -> {
+                ArchivedCredit entry = ArchivedCredit.from(record);
+                boolean beforeCursor = beforeCreatedAt == null
+                    || entry.createdAt.isBefore(beforeCreatedAt)
+                    || (entry.createdAt.isEqual(beforeCreatedAt) && entry.id < beforeId);
+                if (beforeCursor && seen.add(entry.id)) {
+                    found.add(entry);
+                }
+            });
+            // Older months only hold older rows, so stop once this month filled the page
+            if (found.size() >= limit) {
+                break;
+            }
+        }
+
+        found.sort(newestFirst);
+        return new ArrayList<>(found.subList(0, Math.min(limit, found.size())));
+    }
+
+    /**
+     * Whether a user has archived redemptions (one primary-key lookup on archived_redemptions)
+     */
+    public boolean hasArchivedRedemptions(Long userId) {
+        return archivedRedemptionsRepository.existsById(userId);
+    }
+
+    /**
+     * Archived redemption totals of a user, if any of their redemptions were archived
+     */
+    public Optional<ArchivedRedemptions> getArchivedRedemptions(Long userId) {
+        return archivedRedemptionsRepository.findById(userId);
+    }
+
+    /**
+     * Read a user's archived redemptions, newest first. They are rebuilt as detached, read-only
+     * Redemption objects with their voucher code; the reward is a reference loaded on first access.
+     * @param userId User whose redemptions to read
+     * @return Archived redemptions
+     */
+    public List<Redemption> findRedemptionHistory(Long userId) {
+        User user = entityManager.getReference(User.class, userId);
+        List<Redemption> found = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (Path file : listArchiveFiles(REDEMPTIONS)) {
+            readRecords(file, userId, record -> {
+                Long id = ((Number) record.get("id")).longValue();
+                if (!seen.add(id)) {
+                    return;
+                }
+                Redemption redemption = new Redemption();
+                redemption.setId(id);
+                redemption.setUser(user);
+                redemption.setReward(entityManager.getReference(RewardCatalog.class,
+                                                                ((Number) record.get("rewardId")).longValue()));
+                redemption.setCreditCost(((Number) record.get("creditCost")).intValue());
+                redemption.setStatus(Redemption.RedemptionStatus.valueOf((String) record.get("status")));
+                redemption.setVoucherCode((String) record.get("voucherCode"));
+                redemption.setQrCodeUrl((String) record.get("qrCodeUrl"));
+                redemption.setExpiryDate(toDateTime(record.get("expiryDate")));
+                redemption.setUsedDate(toDateTime(record.get("usedDate")));
+                redemption.setFailureReason((String) record.get("failureReason"));
+                redemption.setPartnerTransactionId((String) record.get("partnerTransactionId"));
+                redemption.setRedeemedAt(toDateTime(record.get("redeemedAt")));
+                redemption.setUpdatedAt(toDateTime(record.get("updatedAt")));
+                found.add(redemption);
+            });
+        }
+        found.sort(Comparator.comparing(Redemption::getRedeemedAt).thenComparing(Redemption::getId).reversed());
+        return found;
+    }
+
+    private void archiveCredits(LocalDateTime cutoff, Map<Long, long[]> carryForward, ArchiveResult result) {
+        List<CreditRepository.ArchivableCredit> batch;
+        while (!(batch = creditRepository.findArchivable(cutoff, PageRequest.of(0, batchSize))).isEmpty()) {
+            Map<YearMonth, List<Map<String, Object>>> byMonth = new TreeMap<>();
+            Map<YearMonth, Set<Long>> usersByMonth = new HashMap<>();
+            List<Long> ids = new ArrayList<>(batch.size());
+            for (CreditRepository.ArchivableCredit credit : batch) {
+                ids.add(credit.getId());
+                long[] totals = carryForward.computeIfAbsent(credit.getUserId(), id -> new long[2]);
+                totals[0] += credit.getType().earnedDelta(credit.getAmount());
+                totals[1] += credit.getType().spentDelta(credit.getAmount());
+
+                // Earlier carry-forward rows are folded into the new ones, not archived
+                if (credit.getType().isCarryForward()) {
+                    continue;
+                }
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put("id", credit.getId());
+                record.put("userId", credit.getUserId());
+                record.put("amount", credit.getAmount());
+                record.put("type", credit.getType().name());
+                record.put("source", credit.getSource());
+                record.put("createdAt", credit.getCreatedAt().toString());
+                YearMonth month = YearMonth.from(credit.getCreatedAt());
+                byMonth.computeIfAbsent(month, m -> new ArrayList<>()).add(record);
+                usersByMonth.computeIfAbsent(month, m -> new HashSet<>()).add(credit.getUserId());
+                result.credits++;
+            }
+
+            for (Map.Entry<YearMonth, List<Map<String, Object>>> month : byMonth.entrySet()) {
+                appendIndexedMember(archiveFile(CREDITS, month.getKey()), usersByMonth.get(month.getKey()), month.getValue());
+            }
+            creditRepository.deleteByIdIn(ids);
+            entityManager.clear();
+        }
+    }
+
+    private void writeCarryForward(LocalDateTime cutoff, Map<Long, long[]> carryForward) {
+        List<Long> ids = new ArrayList<>();
+        for (Map.Entry<Long, long[]> entry : carryForward.entrySet()) {
+            User user = entityManager.getReference(User.class, entry.getKey());
+            long[] totals = entry.getValue();
+            if (totals[0] != 0) {
+                ids.add(persistCarryForward(user, (int) totals[0], CreditType.CARRY_FORWARD_EARNED));
+            }
+            if (totals[1] != 0) {
+                ids.add(persistCarryForward(user, (int) totals[1], CreditType.CARRY_FORWARD_SPENT));
+            }
+        }
+        entityManager.flush();
+
+        if (!ids.isEmpty()) {
+            // Date carry-forward rows at the cutoff so they sort below every row that stays hot
+            entityManager.createNativeQuery("UPDATE credits SET created_at = :cutoff WHERE id IN (:ids)")
+                .setParameter("cutoff", cutoff)
+                .setParameter("ids", ids)
+                .executeUpdate();
+        }
+        entityManager.clear();
+    }
+
+    private Long persistCarryForward(User user, int amount, CreditType type) {
+        Credit credit = new Credit(user, amount, type, "Balance carried forward from archive");
+        entityManager.persist(credit);
+        return credit.getId();
+    }
+
+    private void archiveRedemptions(LocalDateTime cutoff, ArchiveResult result) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Redemption> batch;
+        while (!(batch = redemptionRepository.findArchivable(cutoff, now, PageRequest.of(0, batchSize))).isEmpty()) {
+            Map<Long, YearMonth> monthByRedemption = new HashMap<>();
+            Map<YearMonth, List<Map<String, Object>>> redemptionsByMonth = new TreeMap<>();
+            Map<YearMonth, Set<Long>> usersByMonth = new HashMap<>();
+            Map<Long, ArchivedRedemptions> totals = new HashMap<>();
+            for (Redemption redemption : batch) {
+                YearMonth month = YearMonth.from(redemption.getRedeemedAt());
+                monthByRedemption.put(redemption.getId(), month);
+                usersByMonth.computeIfAbsent(month, m -> new HashSet<>()).add(redemption.getUser().getId());
+
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put("id", redemption.getId());
+                record.put("userId", redemption.getUser().getId());
+                record.put("rewardId", redemption.getReward().getId());
+                record.put("creditCost", redemption.getCreditCost());
+                record.put("status", redemption.getStatus().name());
+                record.put("voucherCode", redemption.getVoucherCode());
+                record.put("qrCodeUrl", redemption.getQrCodeUrl());
+                record.put("expiryDate", toText(redemption.getExpiryDate()));
+                record.put("usedDate", toText(redemption.getUsedDate()));
+                record.put("failureReason", redemption.getFailureReason());
+                record.put("partnerTransactionId", redemption.getPartnerTransactionId());
+                record.put("redeemedAt", toText(redemption.getRedeemedAt()));
+                record.put("updatedAt", toText(redemption.getUpdatedAt()));
+                redemptionsByMonth.computeIfAbsent(month, m -> new ArrayList<>()).add(record);
+            }
+
+            // Fold the batch into the users' archived totals so counts and stats don't change
+            archivedRedemptionsRepository.findAllById(usersByMonth.values().stream().flatMap(Set::stream).toList())
+                .forEach(archived -> totals.put(archived.getUserId(), archived));
+            for (Redemption redemption : batch) {
+                totals.computeIfAbsent(redemption.getUser().getId(), ArchivedRedemptions::new).add(redemption);
+            }
+
+            // Voucher codes go to the month of their redemption, so both are archived together
+            List<VoucherCode> voucherCodes = voucherCodeRepository.findByRedemptionIdIn(monthByRedemption.keySet());
+            Map<YearMonth, List<Map<String, Object>>> vouchersByMonth = new TreeMap<>();
+            for (VoucherCode voucherCode : voucherCodes) {
+                Long redemptionId = voucherCode.getRedemption().getId();
+
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put("id", voucherCode.getId());
+                record.put("redemptionId", redemptionId);
+                record.put("code", voucherCode.getCode());
+                record.put("qrCodeUrl", voucherCode.getQrCodeUrl());
+                record.put("isUsed", voucherCode.getIsUsed());
+                record.put("usedAt", toText(voucherCode.getUsedAt()));
+                record.put("expiryDate", toText(voucherCode.getExpiryDate()));
+                record.put("partnerReference", voucherCode.getPartnerReference());
+                record.put("createdAt", toText(voucherCode.getCreatedAt()));
+                vouchersByMonth.computeIfAbsent(monthByRedemption.get(redemptionId), m -> new ArrayList<>()).add(record);
+            }
+
+            for (Map.Entry<YearMonth, List<Map<String, Object>>> month : redemptionsByMonth.entrySet()) {
+                appendIndexedMember(archiveFile(REDEMPTIONS, month.getKey()), usersByMonth.get(month.getKey()), month.getValue());
+            }
+            for (Map.Entry<YearMonth, List<Map<String, Object>>> month : vouchersByMonth.entrySet()) {
+                appendMember(archiveFile(VOUCHER_CODES, month.getKey()), month.getValue());
+            }
+
+            archivedRedemptionsRepository.saveAllAndFlush(totals.values());
+            voucherCodeRepository.deleteAllInBatch(voucherCodes);
+            redemptionRepository.deleteAllInBatch(batch);
+            result.redemptions += batch.size();
+            result.voucherCodes += voucherCodes.size();
+            entityManager.clear();
+        }
+    }
+
+    // Append records as one new gzip member and index it under each of their users
+    private void appendIndexedMember(Path file, Collection<Long> userIds, List<Map<String, Object>> records) {
+        Path index = indexFile(file);
+        if (Files.exists(file) && !Files.exists(index)) {
+            // Members written before the index existed: one entry covers them for every user
+            appendIndex(index, List.of(ALL_USERS), new long[]{0, sizeOf(file)});
+        }
+        appendIndex(index, userIds, appendMember(file, records));
+    }
+
+    // Append records as one new gzip member and force it to disk before the hot rows go away;
+    // returns the member's {offset, length} in the file
+    private long[] appendMember(Path file, List<Map<String, Object>> records) {
+        try (FileOutputStream fileOut = new FileOutputStream(file.toFile(), true)) {
+            long offset = fileOut.getChannel().size();
+            GZIPOutputStream gzip = new GZIPOutputStream(fileOut, 64 * 1024);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+            for (Map<String, Object> record : records) {
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.write('\n');
+            }
+            writer.flush();
+            gzip.finish();
+            fileOut.getChannel().force(true);
+            return new long[]{offset, fileOut.getChannel().size() - offset};
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to archive " + file, e);
+        }
+    }
+
+    // Index a member under each of its users; written after the member, so entries never point past it
+    private void appendIndex(Path index, Collection<Long> userIds, long[] member) {
+        ByteBuffer entries = ByteBuffer.allocate(userIds.size() * INDEX_ENTRY_BYTES);
+        for (Long userId : userIds) {
+            entries.putLong(userId).putLong(member[0]).putLong(member[1]);
+        }
+        entries.flip();
+        try (FileChannel channel = FileChannel.open(index,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (entries.hasRemaining()) {
+                channel.write(entries);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to archive index " + index, e);
+        }
+    }
+
+    // Stream one user's archived records out of a month file, inflating only the members indexed for them
+    private void readRecords(Path file, Long userId, Consumer<Map<String, Object>> sink) {
+        Path index = indexFile(file);
+        try {
+            if (!Files.exists(index)) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    scanRecords(in, userId, sink);
+                }
+                return;
+            }
+            try (FileChannel indexChannel = FileChannel.open(index, StandardOpenOption.READ);
+                 FileChannel dataChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+                // A torn trailing entry (crash while indexing) is ignored; its member's rows are still hot
+                long size = indexChannel.size() - indexChannel.size() % INDEX_ENTRY_BYTES;
+                if (size == 0) {
+                    return;
+                }
+                MappedByteBuffer entries = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                while (entries.remaining() >= INDEX_ENTRY_BYTES) {
+                    long entryUserId = entries.getLong();
+                    long offset = entries.getLong();
+                    long length = entries.getLong();
+                    if (entryUserId != userId && entryUserId != ALL_USERS) {
+                        continue;
+                    }
+                    ByteBuffer member = ByteBuffer.allocate((int) length);
+                    while (member.hasRemaining()) {
+                        if (dataChannel.read(member, offset + member.position()) < 0) {
+                            throw new IOException("Archive index points past the end of " + file);
+                        }
+                    }
+                    scanRecords(new ByteArrayInputStream(member.array()), userId, sink);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archive " + file, e);
+        }
+    }
+
+    // Parse only the lines of one user (records start with {"id":..,"userId":..,), one line at a time
+    @SuppressWarnings("unchecked")
+    private void scanRecords(InputStream compressed, Long userId, Consumer<Map<String, Object>> sink) throws IOException {
+        String userField = "\"userId\":" + userId + ",";
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+            new GZIPInputStream(compressed, 64 * 1024), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.contains(userField)) {
+                continue;
+            }
+            Map<String, Object> record = objectMapper.readValue(line, Map.class);
+            if (userId.equals(((Number) record.get("userId")).longValue())) {
+                sink.accept(record);
+            }
+        }
+    }
+
+    // Archive files of one table, newest month first
+    private List<Path> listArchiveFiles(String table) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(p -> p.getFileName().toString().startsWith(table + "-")
+                          && p.getFileName().toString().endsWith(FILE_SUFFIX))
+                .sorted(Comparator.reverseOrder())
+                .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list archive directory " + directory, e);
+        }
+    }
+
+    private Path archiveFile(String table, YearMonth month) {
+        return directory.resolve(table + "-" + month + FILE_SUFFIX);
+    }
+
+    private Path indexFile(Path file) {
+        String name = file.getFileName().toString();
+        return file.resolveSibling(name.substring(0, name.length() - FILE_SUFFIX.length()) + INDEX_SUFFIX);
+    }
+
+    private long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archive size " + file, e);
+        }
+    }
+
+    private YearMonth monthOf(Path file, String table) {
+        String name = file.getFileName().toString();
+        return YearMonth.parse(name.substring(table.length() + 1, name.length() - FILE_SUFFIX.length()));
+    }
+
+    private void createDirectory() {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create archive directory " + directory, e);
+        }
+    }
+
+    private static String toText(LocalDateTime value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static LocalDateTime toDateTime(Object text) {
+        return text != null ? LocalDateTime.parse((String) text) : null;
+    }
+
+    // Archived credit row as served by the history read path
+    private static class ArchivedCredit implements CreditRepository.CreditHistoryEntry {
+        final Long id;
+        final Integer amount;
+        final CreditType type;
+        final String source;
+        final LocalDateTime createdAt;
+
+        ArchivedCredit(Long id, Integer amount, CreditType type, String source, LocalDateTime createdAt) {
+            this.id = id;
+            this.amount = amount;
+            this.type = type;
+            this.source = source;
+            this.createdAt = createdAt;
+        }
+
+        static ArchivedCredit from(Map<String, Object> record) {
+            return new ArchivedCredit(((Number) record.get("id")).longValue(),
+                                      ((Number) record.get("amount")).intValue(),
+                                      CreditType.valueOf((String) record.get("type")),
+                                      (String) record.get("source"),
+                                      LocalDateTime.parse((String) record.get("createdAt")));
+        }
+
+        @Override public Long getId() { return id; }
+        @Override public Integer getAmount() { return amount; }
+        @Override public CreditType getType() { return type; }
+        @Override public String getSource() { return source; }
+        @Override public LocalDateTime getCreatedAt() { return createdAt; }
+    }
+
+    public static class ArchiveResult {
+        public int credits;
+        public int redemptions;
+        public int voucherCodes;
+        public int carryForwardUsers;
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> result = new HashMap<>();
+            result.put("credits", credits);
+            result.put("redemptions", redemptions);
+            result.put("voucherCodes", voucherCodes);
+            result.put("carryForwardUsers", carryForwardUsers);
+            return result;
+        }
+    }
+}
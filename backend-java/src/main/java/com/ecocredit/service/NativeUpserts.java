@@ -0,0 +1,56 @@
+package com.ecocredit.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+
+/**
+ * Runs native upserts: INSERT ... ON DUPLICATE KEY UPDATE on MySQL, MERGE on H2.
+ * MySQL resolves the key conflict atomically, so rows go out as one JDBC batch. H2's MERGE looks the
+ * row up before inserting it, so a concurrent transaction can insert the same key in between; there
+ * each row runs on its own and a row that fails on the key is run again, which then takes the
+ * MATCHED branch (H2 rolls back only the failed statement, not the transaction).
+ */
+final class NativeUpserts {
+    
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final int MAX_ATTEMPTS = 3;
+    
+    interface Binder<T> {
+        void bind(PreparedStatement statement, T row) throws SQLException;
+    }
+    
+    private NativeUpserts() {}
+    
+    static boolean isMySql(Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+    }
+    
+    static <T> void execute(Connection connection, boolean mysql, String sql,
+                            Collection<T> rows, Binder<T> binder) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            if (mysql) {
+                for (T row : rows) {
+                    binder.bind(statement, row);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                return;
+            }
+            for (T row : rows) {
+                binder.bind(statement, row);
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        statement.executeUpdate();
+                        break;
+                    } catch (SQLException e) {
+                        if (!UNIQUE_VIOLATION.equals(e.getSQLState()) || attempt == MAX_ATTEMPTS) {
+                            throw e;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -6,11 +6,15 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -19,25 +23,34 @@ public class RedemptionService {
     private final RedemptionRepository redemptionRepository;
     private final VoucherCodeRepository voucherCodeRepository;
     private final RewardCatalogRepository rewardCatalogRepository;
-    private final CreditRepository creditRepository;
+    private final CreditService creditService;
     private final UserRepository userRepository;
     private final RewardsService rewardsService;
     private final VoucherGenerationService voucherGenerationService;
+    private final AchievementEventQueue achievementEventQueue;
+    private final UserStatsService userStatsService;
+    private final LedgerArchiveService ledgerArchiveService;
     
     public RedemptionService(RedemptionRepository redemptionRepository,
                            VoucherCodeRepository voucherCodeRepository,
                            RewardCatalogRepository rewardCatalogRepository,
-                           CreditRepository creditRepository,
+                           CreditService creditService,
                            UserRepository userRepository,
                            RewardsService rewardsService,
-                           VoucherGenerationService voucherGenerationService) {
+                           VoucherGenerationService voucherGenerationService,
+                           AchievementEventQueue achievementEventQueue,
+                           UserStatsService userStatsService,
+                           LedgerArchiveService ledgerArchiveService) {
         this.redemptionRepository = redemptionRepository;
         this.voucherCodeRepository = voucherCodeRepository;
         this.rewardCatalogRepository = rewardCatalogRepository;
-        this.creditRepository = creditRepository;
+        this.creditService = creditService;
         this.userRepository = userRepository;
         this.rewardsService = rewardsService;
         this.voucherGenerationService = voucherGenerationService;
+        this.achievementEventQueue = achievementEventQueue;
+        this.userStatsService = userStatsService;
+        this.ledgerArchiveService = ledgerArchiveService;
     }
     
     /**
@@ -62,6 +75,9 @@ public class RedemptionService {
             
             RewardCatalog reward = rewardOpt.get();
             
+            // Lock the user's redemption counter before this redemption is written (see UserStatsService.lockStats)
+            UserStats stats = userStatsService.lockStats(List.of(user.getId())).get(user.getId());
+            
             // Create redemption record
             Redemption redemption = new Redemption(user, reward, reward.getCreditCost());
             redemption = redemptionRepository.save(redemption);
@@ -107,6 +123,10 @@ public class RedemptionService {
             }
             
             redemption = redemptionRepository.save(redemption);
+            if (voucherResult.isSuccess()) {
+                userStatsService.recordRedemption(stats);
+                achievementEventQueue.publish(user.getId(), AchievementRuleEngine.Metric.REDEMPTIONS);
+            }
             
             return new RedemptionResult(
                 voucherResult.isSuccess(),
@@ -120,11 +140,25 @@ public class RedemptionService {
     }
     
     /**
-     * Get user's redemption history
+     * Get user's redemption history, archived redemptions included
      */
     @Transactional(readOnly = true)
     public List<Redemption> getUserRedemptionHistory(User user) {
-        return redemptionRepository.findByUserOrderByRedeemedAtDesc(user);
+        List<Redemption> history = redemptionRepository.findByUserOrderByRedeemedAtDesc(user);
+        if (!ledgerArchiveService.hasArchivedRedemptions(user.getId())) {
+            return history;
+        }
+        
+        // A rolled-back archiver run can leave rows in the archive that are still hot; the hot row wins
+        Set<Long> hotIds = history.stream().map(Redemption::getId).collect(Collectors.toSet());
+        List<Redemption> merged = new ArrayList<>(history);
+        for (Redemption archived : ledgerArchiveService.findRedemptionHistory(user.getId())) {
+            if (!hotIds.contains(archived.getId())) {
+                merged.add(archived);
+            }
+        }
+        merged.sort(Comparator.comparing(Redemption::getRedeemedAt).reversed());
+        return merged;
     }
     
     /**
@@ -201,11 +235,15 @@ public class RedemptionService {
     public Map<String, Object> getUserRedemptionStats(User user) {
         RedemptionRepository.UserRedemptionStats stats = redemptionRepository.getUserRedemptionStats(user);
         
+        // Archived redemptions still count towards the totals
+        ArchivedRedemptions archived = ledgerArchiveService.getArchivedRedemptions(user.getId())
+            .orElseGet(() -> new ArchivedRedemptions(user.getId()));
+        
         Map<String, Object> result = new HashMap<>();
-        result.put("totalRedemptions", stats.getTotalRedemptions());
-        result.put("totalCreditsSpent", stats.getTotalCreditsSpent());
-        result.put("successfulRedemptions", stats.getSuccessfulRedemptions());
-        result.put("usedRedemptions", stats.getUsedRedemptions());
+        result.put("totalRedemptions", stats.getTotalRedemptions() + archived.getRedemptions());
+        result.put("totalCreditsSpent", stats.getTotalCreditsSpent() + archived.getCreditsSpent());
+        result.put("successfulRedemptions", stats.getSuccessfulRedemptions() + archived.getCompleted());
+        result.put("usedRedemptions", stats.getUsedRedemptions() + archived.getUsed());
         result.put("activeVouchers", getUserActiveVouchers(user).size());
         
         return result;
@@ -231,8 +269,8 @@ public class RedemptionService {
     private boolean deductCreditsFromUser(User user, Integer amount) {
         try {
             // Create a negative credit record for redemption
-            Credit deduction = new Credit(user, -amount, "REDEMPTION", "Reward redemption");
-            creditRepository.save(deduction);
+            Credit deduction = new Credit(user, -amount, CreditType.REDEMPTION, "Reward redemption");
+            creditService.recordCredit(deduction);
             return true;
         } catch (Exception e) {
             return false;
@@ -243,8 +281,8 @@ public class RedemptionService {
      * Refund credits to user (in case of failed redemption)
      */
     private void refundCreditsToUser(User user, Integer amount) {
-        Credit refund = new Credit(user, amount, "REFUND", "Failed redemption refund");
-        creditRepository.save(refund);
+        Credit refund = new Credit(user, amount, CreditType.REFUND, "Failed redemption refund");
+        creditService.recordCredit(refund);
     }
     
     // Result classes
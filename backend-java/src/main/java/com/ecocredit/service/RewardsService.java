@@ -23,13 +23,16 @@ public class RewardsService {
     private final RewardCatalogRepository rewardCatalogRepository;
     private final PartnerRepository partnerRepository;
     private final RedemptionRepository redemptionRepository;
+    private final BalanceService balanceService;
     
     public RewardsService(RewardCatalogRepository rewardCatalogRepository, 
                          PartnerRepository partnerRepository,
-                         RedemptionRepository redemptionRepository) {
+                         RedemptionRepository redemptionRepository,
+                         BalanceService balanceService) {
         this.rewardCatalogRepository = rewardCatalogRepository;
         this.partnerRepository = partnerRepository;
         this.redemptionRepository = redemptionRepository;
+        this.balanceService = balanceService;
     }
     
     /**
@@ -61,7 +64,7 @@ public class RewardsService {
      */
     @Transactional(readOnly = true)
     public List<RewardCatalog> getAffordableRewards(User user) {
-        Integer userCredits = user.getTotalCredits();
+        int userCredits = balanceService.getAvailableCredits(user);
         return rewardCatalogRepository.findAffordableRewards(userCredits, LocalDateTime.now());
     }
     
@@ -96,7 +99,7 @@ public class RewardsService {
         RewardCatalog reward = rewardOpt.get();
         
         // Check user's credit balance
-        Integer userCredits = user.getTotalCredits();
+        int userCredits = balanceService.getAvailableCredits(user);
         if (userCredits < reward.getCreditCost()) {
             return new RedemptionEligibility(false, 
                 String.format("Insufficient credits. You have %d, need %d", userCredits, reward.getCreditCost()));
@@ -192,7 +195,7 @@ public class RewardsService {
     @Transactional(readOnly = true)
     public List<RewardCatalog> getPersonalizedRecommendations(User user, int limit) {
         // Simple recommendation: affordable rewards sorted by popularity
-        Integer userCredits = user.getTotalCredits();
+        int userCredits = balanceService.getAvailableCredits(user);
         List<RewardCatalog> affordableRewards = rewardCatalogRepository.findAffordableRewards(userCredits, LocalDateTime.now());
         
         // You can enhance this with ML algorithms based on user's past redemptions
@@ -0,0 +1,91 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.ChallengeParticipant;
+import com.ecocredit.model.StepChallenge;
+import com.ecocredit.repository.ChallengeParticipantRepository;
+import com.ecocredit.repository.StepChallengeRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Partner-sponsored step challenges and their enrollments.
+ * Standings are kept by StepLeaderboardService.
+ */
+@Service
+public class StepChallengeService {
+    
+    private final StepChallengeRepository stepChallengeRepository;
+    private final ChallengeParticipantRepository challengeParticipantRepository;
+    private final StepLeaderboardService stepLeaderboardService;
+    private final UserStatsService userStatsService;
+    
+    public StepChallengeService(StepChallengeRepository stepChallengeRepository,
+                                ChallengeParticipantRepository challengeParticipantRepository,
+                                StepLeaderboardService stepLeaderboardService,
+                                UserStatsService userStatsService) {
+        this.stepChallengeRepository = stepChallengeRepository;
+        this.challengeParticipantRepository = challengeParticipantRepository;
+        this.stepLeaderboardService = stepLeaderboardService;
+        this.userStatsService = userStatsService;
+    }
+    
+    /**
+     * Active challenges that haven't ended yet, soonest first
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getOpenChallenges(Long userId) {
+        List<Map<String, Object>> challenges = new ArrayList<>();
+        for (StepChallenge challenge : stepChallengeRepository.findOpenChallenges(LocalDate.now())) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", challenge.getId());
+            item.put("name", challenge.getName());
+            item.put("description", challenge.getDescription());
+            item.put("partnerId", challenge.getPartner().getId());
+            item.put("partnerName", challenge.getPartner().getName());
+            item.put("startDate", challenge.getStartDate().toString());
+            item.put("endDate", challenge.getEndDate().toString());
+            item.put("participants", challengeParticipantRepository.countByChallengeId(challenge.getId()));
+            item.put("joined", userId != null && challengeParticipantRepository.existsById(
+                new ChallengeParticipant.Key(challenge.getId(), userId)));
+            challenges.add(item);
+        }
+        return challenges;
+    }
+    
+    /**
+     * Find a challenge
+     */
+    @Transactional(readOnly = true)
+    public Optional<StepChallenge> getChallenge(Long challengeId) {
+        return stepChallengeRepository.findById(challengeId);
+    }
+    
+    /**
+     * Enroll a user in a challenge; steps already walked in its window count.
+     * @return false if the user was already enrolled
+     */
+    @Transactional
+    public boolean join(Long challengeId, Long userId) {
+        StepChallenge challenge = stepChallengeRepository.findById(challengeId)
+            .orElseThrow(() -> new IllegalArgumentException("Challenge not found"));
+        if (!challenge.getIsActive() || challenge.getEndDate().isBefore(LocalDate.now())) {
+            throw new IllegalStateException("Challenge is closed");
+        }
+        // Step writes of the user wait, so none commits between the enrollment and its first score
+        userStatsService.lockStats(List.of(userId));
+        if (challengeParticipantRepository.existsById(new ChallengeParticipant.Key(challengeId, userId))) {
+            return false;
+        }
+        
+        challengeParticipantRepository.saveAndFlush(new ChallengeParticipant(challengeId, userId));
+        stepLeaderboardService.scheduleUpdates(List.of(stepLeaderboardService.collectChallengeScore(challenge, userId)));
+        return true;
+    }
+}
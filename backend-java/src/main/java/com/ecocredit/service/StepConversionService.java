@@ -0,0 +1,139 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.Step;
+import com.ecocredit.model.StepConversionWatermark;
+import com.ecocredit.model.User;
+import com.ecocredit.repository.StepConversionWatermarkRepository;
+import com.ecocredit.repository.StepRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns stored Step rows into credits incrementally.
+ *
+ * Each Step row remembers how many of its steps were already converted, and each user has a
+ * watermark (StepConversionWatermark) below which every Step change has been processed. A run reads
+ * only rows changed since the watermark and awards calc(steps) - calc(convertedSteps) per day, so
+ * repeated calls award nothing new and cost is proportional to what changed, not to history.
+ */
+@Service
+public class StepConversionService {
+    
+    private static final LocalDateTime NEVER_CONVERTED = LocalDateTime.of(1970, 1, 1, 0, 0);
+    
+    private final StepRepository stepRepository;
+    private final StepConversionWatermarkRepository watermarkRepository;
+    private final StepWriteBuffer stepWriteBuffer;
+    private final CreditService creditService;
+    private final AchievementEventQueue achievementEventQueue;
+    // Rows written by transactions that commit late can carry an updated_at slightly before the
+    // watermark; re-reading this window keeps them from being missed (converted rows are skipped)
+    private final long lagSeconds;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    public StepConversionService(StepRepository stepRepository,
+                                 StepConversionWatermarkRepository watermarkRepository,
+                                 StepWriteBuffer stepWriteBuffer,
+                                 CreditService creditService,
+                                 AchievementEventQueue achievementEventQueue,
+                                 @Value("${ecocredit.steps.conversion-lag-seconds:300}") long lagSeconds) {
+        this.stepRepository = stepRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.stepWriteBuffer = stepWriteBuffer;
+        this.creditService = creditService;
+        this.achievementEventQueue = achievementEventQueue;
+        this.lagSeconds = lagSeconds;
+    }
+    
+    /**
+     * Convert every stored step not yet turned into credits for a user.
+     * Conversions for the same user are serialized on the watermark row, so concurrent calls
+     * cannot award the same steps twice.
+     * @param user User whose steps to convert
+     * @return What was converted by this call
+     */
+    @Transactional
+    public ConversionResult convertPendingSteps(User user) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        // Totals still sitting in the write-behind buffer must count too
+        stepWriteBuffer.flushUser(user.getId());
+        StepConversionWatermark watermark = lockWatermark(user.getId());
+    
+        LocalDateTime since = watermark.getConvertedThrough().equals(NEVER_CONVERTED)
+            ? NEVER_CONVERTED
+            : watermark.getConvertedThrough().minusSeconds(lagSeconds);
+        List<Step> pending = stepRepository.findUnconvertedSince(user.getId(), since);
+    
+        int convertedSteps = 0;
+        int totalCredits = 0;
+        for (Step step : pending) {
+            int alreadyConverted = step.getConvertedSteps();
+            int credits = creditService.calculateEcoCredits(step.getSteps()).totalCredits
+                        - creditService.calculateEcoCredits(alreadyConverted).totalCredits;
+            if (credits > 0) {
+                creditService.awardCredits(user, credits,
+                    String.format("Converted %d steps of sustainable transportation on %s",
+                                  step.getSteps() - alreadyConverted, step.getDate()));
+                totalCredits += credits;
+            }
+            stepRepository.markConverted(step.getId(), step.getSteps());
+            convertedSteps += step.getSteps() - alreadyConverted;
+        }
+    
+        // Achievements are evaluated by the queue's workers once this commits
+        if (!pending.isEmpty()) {
+            achievementEventQueue.publish(user.getId(), AchievementRuleEngine.Metric.STEPS);
+        }
+        if (totalCredits > 0) {
+            achievementEventQueue.publish(user.getId(), AchievementRuleEngine.Metric.CREDITS);
+        }
+    
+        watermark.setConvertedThrough(startedAt);
+        return new ConversionResult(pending.size(), convertedSteps, totalCredits);
+    }
+    
+    // Lock the user's watermark row, creating it on first conversion (under the user row lock so two
+    // first conversions don't race to insert it)
+    private StepConversionWatermark lockWatermark(Long userId) {
+        return watermarkRepository.findForUpdate(userId).orElseGet(() -> {
+            entityManager.find(User.class, userId, LockModeType.PESSIMISTIC_WRITE);
+            return watermarkRepository.findForUpdate(userId).orElseGet(() ->
+                watermarkRepository.saveAndFlush(new StepConversionWatermark(userId, NEVER_CONVERTED)));
+        });
+    }
+    
+    public static class ConversionResult {
+        public final int convertedDays;
+        public final int convertedSteps;
+        public final int totalCredits;
+    
+        public ConversionResult(int convertedDays, int convertedSteps, int totalCredits) {
+            this.convertedDays = convertedDays;
+            this.convertedSteps = convertedSteps;
+            this.totalCredits = totalCredits;
+        }
+    
+        public Map<String, Object> toMap() {
+            Map<String, Object> result = new HashMap<>();
+            result.put("convertedDays", convertedDays);
+            result.put("convertedSteps", convertedSteps);
+            result.put("totalCredits", totalCredits);
+            result.put("message", totalCredits > 0
+                ? String.format("Converted %d steps of sustainable transportation into %d eco-credits!",
+                                convertedSteps, totalCredits)
+                : "No new steps to convert");
+            return result;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.ecocredit.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming import of newline-delimited JSON step records (device syncs, partner fitness exports).
+ * One record per line: {"date": "2024-05-01", "steps": 8421}.
+ *
+ * The body is read line by line straight off the stream and valid records are written through
+ * StepIngestService in batches of ecocredit.steps.import-batch-size, so memory stays constant
+ * whatever the upload size. Each rejected line is reported on the error writer as it is found,
+ * followed by one summary line at the end. Batches commit independently: a write failure stops
+ * the import, is reported in-band, and keeps the batches already written.
+ */
+@Service
+public class StepImportService {
+    
+    // Longest accepted line; anything longer is skipped and reported instead of being buffered
+    private static final int MAX_LINE_CHARS = 4096;
+    
+    private final StepIngestService stepIngestService;
+    private final StepWriteBuffer stepWriteBuffer;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    
+    public StepImportService(StepIngestService stepIngestService,
+                             StepWriteBuffer stepWriteBuffer,
+                             ObjectMapper objectMapper,
+                             @Value("${ecocredit.steps.import-batch-size:500}") int batchSize) {
+        this.stepIngestService = stepIngestService;
+        this.stepWriteBuffer = stepWriteBuffer;
+        this.objectMapper = objectMapper;
+        this.batchSize = Math.max(1, batchSize);
+    }
+    
+    /**
+     * Import NDJSON step records for a user.
+     * @param userId User the records belong to
+     * @param body NDJSON stream (UTF-8)
+     * @param report Receives one NDJSON line per rejected record, then a summary line
+     * @return Import counts
+     */
+    public ImportResult importSteps(Long userId, InputStream body, Writer report) throws IOException {
+        long started = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        StringBuilder line = new StringBuilder();
+        List<StepIngestService.StepEntry> batch = new ArrayList<>(batchSize);
+        int lineNumber = 0;
+        int accepted = 0;
+        int rejected = 0;
+        int written = 0;
+        
+        try {
+            while (true) {
+                int length = readLine(reader, line);
+                if (length < 0) {
+                    break;
+                }
+                lineNumber++;
+                
+                String error = null;
+                StepIngestService.StepEntry entry = null;
+                if (length > MAX_LINE_CHARS) {
+                    error = "Line longer than " + MAX_LINE_CHARS + " characters";
+                } else if (line.toString().isBlank()) {
+                    continue;
+                } else {
+                    try {
+                        entry = parseRecord(userId, line.toString());
+                    } catch (IllegalArgumentException e) {
+                        error = e.getMessage();
+                    }
+                }
+                
+                if (entry == null) {
+                    rejected++;
+                    writeReportLine(report, Map.of("line", lineNumber, "error", error));
+                    continue;
+                }
+                accepted++;
+                batch.add(entry);
+                if (batch.size() == batchSize) {
+                    written += writeBatch(batch);
+                    report.flush();
+                }
+            }
+            if (!batch.isEmpty()) {
+                written += writeBatch(batch);
+            }
+        } catch (RuntimeException e) {
+            // The report is already streaming, so the failure goes in-band; earlier batches stay written
+            System.err.println("Step import for user " + userId + " aborted at line " + lineNumber + ": " + e.getMessage());
+            writeReportLine(report, Map.of("line", lineNumber, "error", "Import aborted: " + e.getMessage()));
+        }
+        
+        ImportResult result = new ImportResult(lineNumber, accepted, rejected, written);
+        writeReportLine(report, Map.of("summary", result.toMap()));
+        report.flush();
+        
+        System.out.printf("📥 Step import for user %d: %d lines, %d accepted, %d rejected in %d ms%n",
+                          userId, lineNumber, accepted, rejected, (System.nanoTime() - started) / 1_000_000);
+        return result;
+    }
+    
+    private StepIngestService.StepEntry parseRecord(Long userId, String line) {
+        JsonNode record;
+        try {
+            record = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON");
+        }
+        if (record == null || !record.isObject()) {
+            throw new IllegalArgumentException("Record must be a JSON object");
+        }
+        
+        JsonNode steps = record.get("steps");
+        if (steps == null || !steps.canConvertToInt() || !steps.isIntegralNumber() || steps.intValue() < 0) {
+            throw new IllegalArgumentException("Invalid steps count");
+        }
+        JsonNode date = record.get("date");
+        if (date == null || !date.isTextual()) {
+            throw new IllegalArgumentException("Missing date");
+        }
+        try {
+            return new StepIngestService.StepEntry(userId, LocalDate.parse(date.textValue()), steps.intValue());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + date.textValue());
+        }
+    }
+    
+    private int writeBatch(List<StepIngestService.StepEntry> batch) {
+        // Written directly; older buffered totals for the same days must not overwrite them later
+        stepWriteBuffer.discard(batch);
+        int written = stepIngestService.upsertSteps(batch);
+        batch.clear();
+        return written;
+    }
+    
+    private void writeReportLine(Writer report, Map<String, Object> line) throws IOException {
+        report.write(objectMapper.writeValueAsString(line));
+        report.write('\n');
+    }
+    
+    // Reads one line into the builder, keeping at most MAX_LINE_CHARS + 1 characters of it.
+    // Returns the full line length (possibly larger than what was kept), or -1 at end of stream.
+    private static int readLine(BufferedReader reader, StringBuilder line) throws IOException {
+        line.setLength(0);
+        int length = 0;
+        int c = reader.read();
+        if (c < 0) {
+            return -1;
+        }
+        while (c >= 0 && c != '\n') {
+            if (c != '\r' && length++ <= MAX_LINE_CHARS) {
+                line.append((char) c);
+            }
+            c = reader.read();
+        }
+        return length;
+    }
+    
+    public static class ImportResult {
+        public final int lines;
+        public final int accepted;
+        public final int rejected;
+        public final int written;
+        
+        public ImportResult(int lines, int accepted, int rejected, int written) {
+            this.lines = lines;
+            this.accepted = accepted;
+            this.rejected = rejected;
+            this.written = written;
+        }
+        
+        public Map<String, Object> toMap() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("lines", lines);
+            result.put("accepted", accepted);
+            result.put("rejected", rejected);
+            result.put("written", written);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.Step;
+import com.ecocredit.model.StepRollup;
+import com.ecocredit.model.UserStats;
+import com.ecocredit.repository.DeviceStepRepository;
+import com.ecocredit.repository.StepRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Single write path for daily step totals.
+ * Entries are upserted on (user_id, date) with one native multi-row statement per chunk:
+ * MERGE ... USING (VALUES ...) on H2, INSERT ... ON DUPLICATE KEY UPDATE on MySQL.
+ * A day whose total didn't change is left untouched, so its updated_at doesn't trigger a
+ * needless re-read by StepConversionService. The per-user user_stats rows are locked and moved by
+ * each day's delta in the same transaction (as are goal streaks and the week/month/year step
+ * rollups), and committed totals are reported to StepTimeSeriesStore and StepLeaderboardService.
+ * A day is never written below the highest count a device synced for it (see DeviceStepService),
+ * so a plain total posted after a sync can't lower the merged day.
+ */
+@Service
+public class StepIngestService {
+    
+    private final StepRepository stepRepository;
+    private final DeviceStepRepository deviceStepRepository;
+    private final UserStatsService userStatsService;
+    private final StreakService streakService;
+    private final AchievementService achievementService;
+    private final StepRollupService stepRollupService;
+    private final StepLeaderboardService stepLeaderboardService;
+    private final StepTimeSeriesStore stepTimeSeriesStore;
+    private final int chunkSize;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    public StepIngestService(StepRepository stepRepository,
+                             DeviceStepRepository deviceStepRepository,
+                             UserStatsService userStatsService,
+                             StreakService streakService,
+                             AchievementService achievementService,
+                             StepRollupService stepRollupService,
+                             StepLeaderboardService stepLeaderboardService,
+                             StepTimeSeriesStore stepTimeSeriesStore,
+                             @Value("${ecocredit.steps.ingest-chunk-size:500}") int chunkSize) {
+        this.stepRepository = stepRepository;
+        this.deviceStepRepository = deviceStepRepository;
+        this.userStatsService = userStatsService;
+        this.streakService = streakService;
+        this.achievementService = achievementService;
+        this.stepRollupService = stepRollupService;
+        this.stepLeaderboardService = stepLeaderboardService;
+        this.stepTimeSeriesStore = stepTimeSeriesStore;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+    
+    /**
+     * Upsert one day's step total for a user
+     * @param userId User who walked
+     * @param date Day of the total
+     * @param steps Step total for the day
+     */
+    @Transactional
+    public void upsertSteps(Long userId, LocalDate date, int steps) {
+        upsertSteps(List.of(new StepEntry(userId, date, steps)));
+    }
+    
+    /**
+     * Upsert many daily step totals, for one or many users.
+     * If the same (user, date) appears more than once, the last entry wins.
+     * @param entries Daily totals
+     * @return Number of distinct (user, date) entries written
+     */
+    @Transactional
+    public int upsertSteps(Collection<StepEntry> entries) {
+        Map<StepKey, StepEntry> distinct = new LinkedHashMap<>();
+        for (StepEntry entry : entries) {
+            if (entry.steps < 0) {
+                throw new IllegalArgumentException("Invalid steps count for " + entry.date);
+            }
+            distinct.put(new StepKey(entry.userId, entry.date), entry);
+        }
+        if (distinct.isEmpty()) {
+            return 0;
+        }
+        
+        // Lock the users' stats first: concurrent writes to a user's days then see each other's totals
+        Map<Long, UserStats> stats = userStatsService.lockStats(
+            distinct.values().stream().map(entry -> entry.userId).collect(Collectors.toSet()));
+        // Read under the stats locks, which a device sync holds while it raises its counts
+        findPerUser(distinct.keySet(), deviceStepRepository::findMergedSteps).forEach((key, deviceSteps) ->
+            distinct.computeIfPresent(key, (k, entry) ->
+                entry.steps < deviceSteps ? new StepEntry(entry.userId, entry.date, deviceSteps) : entry));
+        Map<StepKey, Integer> previous = findPerUser(distinct.keySet(), stepRepository::findDailyStepsByUserIdAndDateIn);
+        
+        Session session = entityManager.unwrap(Session.class);
+        session.flush();
+        session.doWork(connection -> {
+            boolean mysql = NativeUpserts.isMySql(connection);
+            List<StepEntry> chunk = new ArrayList<>(Math.min(chunkSize, distinct.size()));
+            for (StepEntry entry : distinct.values()) {
+                chunk.add(entry);
+                if (chunk.size() == chunkSize) {
+                    executeChunk(connection, chunk, mysql);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                executeChunk(connection, chunk, mysql);
+            }
+        });
+        
+        List<UserStatsService.StepChange> changes = new ArrayList<>();
+        for (Map.Entry<StepKey, StepEntry> entry : distinct.entrySet()) {
+            Integer stored = previous.get(entry.getKey());
+            if (stored == null || stored != entry.getValue().steps) {
+                changes.add(new UserStatsService.StepChange(entry.getValue().userId, entry.getValue().date,
+                                                            stored, entry.getValue().steps));
+            }
+        }
+        userStatsService.applyStepChanges(stats, changes);
+        achievementService.unlockStreakAchievements(streakService.applyStepChanges(stats, changes));
+        Map<StepRollup.Key, Long> bucketTotals = stepRollupService.applyStepChanges(changes);
+        stepLeaderboardService.scheduleUpdates(stepLeaderboardService.collectScores(stats, bucketTotals, changes));
+        session.flush();
+        evictWrittenSteps(session, distinct.keySet());
+        
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (StepEntry entry : distinct.values()) {
+                    stepTimeSeriesStore.record(entry.userId, entry.date, entry.steps);
+                }
+            }
+        });
+        return distinct.size();
+    }
+    
+    // Managed Step entities of the written days are stale now; everything else the caller holds stays attached
+    private void evictWrittenSteps(Session session, Collection<StepKey> written) {
+        List<Step> stale = new ArrayList<>();
+        for (Map.Entry<Object, EntityEntry> managed : session.unwrap(SessionImplementor.class)
+                .getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            // getUser().getId() reads the proxy's id without loading the user
+            if (managed.getKey() instanceof Step step
+                    && written.contains(new StepKey(step.getUser().getId(), step.getDate()))) {
+                stale.add(step);
+            }
+        }
+        stale.forEach(session::evict);
+    }
+    
+    // Per-day totals of the given days from a per-user query (stored or device totals), read in chunks
+    private Map<StepKey, Integer> findPerUser(Collection<StepKey> keys,
+                                             BiFunction<Long, List<LocalDate>, List<StepRepository.DailySteps>> query) {
+        Map<Long, List<LocalDate>> datesByUser = new HashMap<>();
+        for (StepKey key : keys) {
+            datesByUser.computeIfAbsent(key.userId, id -> new ArrayList<>()).add(key.date);
+        }
+        
+        Map<StepKey, Integer> stored = new HashMap<>();
+        datesByUser.forEach((userId, dates) -> {
+            for (int from = 0; from < dates.size(); from += chunkSize) {
+                List<LocalDate> chunk = dates.subList(from, Math.min(dates.size(), from + chunkSize));
+                for (StepRepository.DailySteps day : query.apply(userId, chunk)) {
+                    stored.put(new StepKey(userId, day.getDate()), day.getSteps());
+                }
+            }
+        });
+        return stored;
+    }
+    
+    private void executeChunk(Connection connection, List<StepEntry> chunk, boolean mysql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(mysql ? mysqlUpsert(chunk.size()) : mergeUpsert(chunk.size()))) {
+            int index = 1;
+            for (StepEntry entry : chunk) {
+                statement.setLong(index++, entry.userId);
+                statement.setDate(index++, Date.valueOf(entry.date));
+                statement.setInt(index++, entry.steps);
+            }
+            statement.executeUpdate();
+        }
+    }
+    
+    // H2 / SQL:2003 MERGE with a multi-row VALUES source
+    private static String mergeUpsert(int rows) {
+        StringBuilder sql = new StringBuilder("MERGE INTO steps t USING (VALUES ");
+        appendPlaceholders(sql, rows, "(CAST(? AS BIGINT), CAST(? AS DATE), CAST(? AS INTEGER))");
+        sql.append(") AS s(user_id, date, steps) ON t.user_id = s.user_id AND t.date = s.date ")
+           .append("WHEN MATCHED AND t.steps <> s.steps THEN UPDATE SET steps = s.steps, updated_at = CURRENT_TIMESTAMP ")
+           .append("WHEN NOT MATCHED THEN INSERT (user_id, date, steps, converted_steps, created_at, updated_at) ")
+           .append("VALUES (s.user_id, s.date, s.steps, 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)");
+        return sql.toString();
+    }
+    
+    // MySQL multi-row insert that updates on the (user_id, date) unique key
+    private static String mysqlUpsert(int rows) {
+        StringBuilder sql = new StringBuilder(
+            "INSERT INTO steps (user_id, date, steps, converted_steps, created_at, updated_at) VALUES ");
+        appendPlaceholders(sql, rows, "(?, ?, ?, 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)");
+        // updated_at is assigned first, while steps still holds the old value
+        sql.append(" ON DUPLICATE KEY UPDATE ")
+           .append("updated_at = IF(steps <> VALUES(steps), CURRENT_TIMESTAMP, updated_at), ")
+           .append("steps = VALUES(steps)");
+        return sql.toString();
+    }
+    
+    private static void appendPlaceholders(StringBuilder sql, int rows, String row) {
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(row);
+        }
+    }
+    
+    public static class StepEntry {
+        public final Long userId;
+        public final LocalDate date;
+        public final int steps;
+        
+        public StepEntry(Long userId, LocalDate date, int steps) {
+            this.userId = userId;
+            this.date = date;
+            this.steps = steps;
+        }
+    }
+    
+    private static class StepKey {
+        final Long userId;
+        final LocalDate date;
+        
+        StepKey(Long userId, LocalDate date) {
+            this.userId = userId;
+            this.date = date;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof StepKey)) return false;
+            StepKey key = (StepKey) o;
+            return Objects.equals(userId, key.userId) && Objects.equals(date, key.date);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, date);
+        }
+    }
+}
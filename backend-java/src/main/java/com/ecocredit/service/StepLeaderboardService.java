@@ -0,0 +1,665 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.StepChallenge;
+import com.ecocredit.model.StepPeriod;
+import com.ecocredit.model.StepRollup;
+import com.ecocredit.model.UserStats;
+import com.ecocredit.repository.ChallengeParticipantRepository;
+import com.ecocredit.repository.StepChallengeRepository;
+import com.ecocredit.repository.StepRepository;
+import com.ecocredit.repository.StepRollupRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory step leaderboards: daily, weekly (ISO week) and all-time, plus one per step challenge.
+ *
+ * Each board keeps userId -> score and an order-statistic treap ordered by (score desc, userId), so a
+ * score update, "my rank" and the top K are O(log n) (top K: O(log n + K)). A board is loaded on first
+ * read with one query (the day's steps, the week's rollups, the year rollups summed per user, or the
+ * challenge window summed per participant) and then kept current by the step write path: the write
+ * transaction collects each touched user's new absolute scores and they are applied after it commits.
+ * Absolute scores make a late or repeated update harmless, as for StepTimeSeriesStore.
+ *
+ * Every ecocredit.leaderboard.snapshot-ms the loaded boards are written to
+ * ecocredit.leaderboard.dir/leaderboards.bin. On start the snapshot is read back and only users with
+ * a day written since shortly before it was taken are re-read, instead of rescanning the steps table.
+ * Daily and weekly boards older than ecocredit.leaderboard.daily-days / weekly-weeks are dropped.
+ */
+@Service
+public class StepLeaderboardService {
+    
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final String SNAPSHOT_FILE = "leaderboards.bin";
+    private static final int USER_CHUNK = 500;
+    
+    public enum Kind { DAILY, WEEKLY, ALL_TIME, CHALLENGE }
+    
+    private final StepRepository stepRepository;
+    private final StepRollupRepository stepRollupRepository;
+    private final StepChallengeRepository stepChallengeRepository;
+    private final ChallengeParticipantRepository challengeParticipantRepository;
+    private final Path directory;
+    private final int dailyDays;
+    private final int weeklyWeeks;
+    private final long restoreMarginSeconds;
+    
+    private final Map<String, Board> boards = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    
+    public StepLeaderboardService(StepRepository stepRepository,
+                                  StepRollupRepository stepRollupRepository,
+                                  StepChallengeRepository stepChallengeRepository,
+                                  ChallengeParticipantRepository challengeParticipantRepository,
+                                  @Value("${ecocredit.leaderboard.dir:leaderboards}") String directory,
+                                  @Value("${ecocredit.leaderboard.daily-days:7}") int dailyDays,
+                                  @Value("${ecocredit.leaderboard.weekly-weeks:4}") int weeklyWeeks,
+                                  @Value("${ecocredit.leaderboard.restore-margin-seconds:300}") long restoreMarginSeconds) {
+        this.stepRepository = stepRepository;
+        this.stepRollupRepository = stepRollupRepository;
+        this.stepChallengeRepository = stepChallengeRepository;
+        this.challengeParticipantRepository = challengeParticipantRepository;
+        this.directory = Paths.get(directory);
+        this.dailyDays = Math.max(1, dailyDays);
+        this.weeklyWeeks = Math.max(1, weeklyWeeks);
+        this.restoreMarginSeconds = Math.max(0, restoreMarginSeconds);
+    }
+    
+    /**
+     * Restore boards from the last snapshot, re-reading the users whose steps changed since
+     */
+    @PostConstruct
+    public void restore() {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        long started = System.nanoTime();
+        LocalDateTime takenAt;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                System.err.println("Ignoring leaderboard snapshot with unknown version");
+                return;
+            }
+            takenAt = LocalDateTime.parse(in.readUTF());
+            int boardCount = in.readInt();
+            for (int b = 0; b < boardCount; b++) {
+                String key = in.readUTF();
+                int size = in.readInt();
+                Board board = new Board();
+                for (int i = 0; i < size; i++) {
+                    board.set(in.readLong(), in.readLong());
+                }
+                board.loaded = true;
+                boards.put(key, board);
+            }
+        } catch (IOException | RuntimeException e) {
+            // A damaged snapshot only costs a reload from the database
+            System.err.println("Failed to read leaderboard snapshot: " + e.getMessage());
+            boards.clear();
+            return;
+        }
+        
+        // Writes committed while (or just before) the snapshot was taken may be missing from it
+        List<Long> changed = stepRepository.findUserIdsChangedSince(takenAt.minusSeconds(restoreMarginSeconds));
+        evictExpired();
+        for (String key : new ArrayList<>(boards.keySet())) {
+            Board board = boards.get(key);
+            try {
+                for (int from = 0; from < changed.size(); from += USER_CHUNK) {
+                    List<Long> chunk = changed.subList(from, Math.min(changed.size(), from + USER_CHUNK));
+                    Map<Long, Long> scores = new HashMap<>();
+                    chunk.forEach(userId -> scores.put(userId, 0L));
+                    scores.putAll(readScores(key, chunk));
+                    scores.forEach(board::set);
+                }
+            } catch (RuntimeException e) {
+                // E.g. a deleted challenge
+                boards.remove(key);
+            }
+        }
+        System.out.printf("🏆 Restored %d leaderboards (%d users re-read) in %d ms%n",
+                          boards.size(), changed.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+    
+    /**
+     * Board key for the daily board of a day
+     */
+    public static String dailyKey(LocalDate day) {
+        return Kind.DAILY.name() + ":" + day;
+    }
+    
+    /**
+     * Board key for the weekly board of the ISO week containing a day
+     */
+    public static String weeklyKey(LocalDate day) {
+        return Kind.WEEKLY.name() + ":" + StepPeriod.WEEK.start(day);
+    }
+    
+    /**
+     * Board key for the all-time board
+     */
+    public static String allTimeKey() {
+        return Kind.ALL_TIME.name();
+    }
+    
+    /**
+     * Board key for a challenge's board
+     */
+    public static String challengeKey(Long challengeId) {
+        return Kind.CHALLENGE.name() + ":" + challengeId;
+    }
+    
+    /**
+     * Highest scores of a board (loaded on first use)
+     * @param key Board key (see dailyKey, weeklyKey, allTimeKey, challengeKey)
+     * @param limit Maximum number of entries
+     * @return Entries, best first; tied scores share a rank
+     */
+    public List<Standing> getTop(String key, int limit) {
+        Board board = load(key);
+        synchronized (board) {
+            return board.top(limit);
+        }
+    }
+    
+    /**
+     * Rank of a user on a board, or null if the user has no steps on it
+     */
+    public Standing getStanding(String key, Long userId) {
+        Board board = load(key);
+        synchronized (board) {
+            return board.standing(userId);
+        }
+    }
+    
+    /**
+     * Number of users with a score on a board
+     */
+    public int getSize(String key) {
+        Board board = load(key);
+        synchronized (board) {
+            return board.scores.size();
+        }
+    }
+    
+    /**
+     * New scores of the users and days touched by a step write, for every board they appear on.
+     * Must run in the transaction that wrote the changes, after user_stats and the rollups were updated.
+     * @param stats Locked stats rows (already moved by the changes)
+     * @param bucketTotals Totals of the touched rollup buckets (see StepRollupService.applyStepChanges)
+     * @param changes Days whose stored total changed
+     * @return Updates to apply once the transaction commits (see scheduleUpdates)
+     */
+    @Transactional
+    public List<ScoreUpdate> collectScores(Map<Long, UserStats> stats, Map<StepRollup.Key, Long> bucketTotals,
+                                           Collection<UserStatsService.StepChange> changes) {
+        List<ScoreUpdate> updates = new ArrayList<>();
+        if (changes.isEmpty()) {
+            return updates;
+        }
+        
+        Set<Long> userIds = new HashSet<>();
+        LocalDate first = LocalDate.MAX;
+        LocalDate last = LocalDate.MIN;
+        Set<String> weeks = new HashSet<>();
+        for (UserStatsService.StepChange change : changes) {
+            updates.add(new ScoreUpdate(dailyKey(change.date), change.userId, change.steps));
+            LocalDate weekStart = StepPeriod.WEEK.start(change.date);
+            if (weeks.add(change.userId + ":" + weekStart)) {
+                Long total = bucketTotals.get(new StepRollup.Key(change.userId, StepPeriod.WEEK, weekStart));
+                if (total != null) {
+                    updates.add(new ScoreUpdate(weeklyKey(change.date), change.userId, total));
+                }
+            }
+            if (userIds.add(change.userId)) {
+                updates.add(new ScoreUpdate(allTimeKey(), change.userId, stats.get(change.userId).getTotalSteps()));
+            }
+            first = change.date.isBefore(first) ? change.date : first;
+            last = change.date.isAfter(last) ? change.date : last;
+        }
+        
+        // Challenge totals span arbitrary windows, so they are summed for enrolled users only
+        Set<String> enrolled = new HashSet<>();
+        for (ChallengeParticipantRepository.Enrollment enrollment :
+                challengeParticipantRepository.findEnrollments(userIds, first, last)) {
+            boolean touched = false;
+            for (UserStatsService.StepChange change : changes) {
+                if (change.userId.equals(enrollment.getUserId()) && !change.date.isBefore(enrollment.getStartDate())
+                        && !change.date.isAfter(enrollment.getEndDate())) {
+                    touched = true;
+                    break;
+                }
+            }
+            if (touched && enrolled.add(enrollment.getChallengeId() + ":" + enrollment.getUserId())) {
+                updates.add(new ScoreUpdate(challengeKey(enrollment.getChallengeId()), enrollment.getUserId(),
+                    stepRepository.sumStepsBetween(enrollment.getUserId(), enrollment.getStartDate(),
+                                                   enrollment.getEndDate())));
+            }
+        }
+        return updates;
+    }
+    
+    /**
+     * Score of a user newly enrolled in a challenge.
+     * Must run in the transaction that enrolled the user.
+     */
+    @Transactional(readOnly = true)
+    public ScoreUpdate collectChallengeScore(StepChallenge challenge, Long userId) {
+        return new ScoreUpdate(challengeKey(challenge.getId()), userId,
+            stepRepository.sumStepsBetween(userId, challenge.getStartDate(), challenge.getEndDate()));
+    }
+    
+    /**
+     * Apply score updates once the current transaction commits (immediately if there is none)
+     */
+    public void scheduleUpdates(List<ScoreUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(updates);
+                }
+            });
+        } else {
+            apply(updates);
+        }
+    }
+    
+    /**
+     * Apply committed scores. Boards not currently held are skipped; their next read loads the committed rows.
+     */
+    public void apply(List<ScoreUpdate> updates) {
+        for (ScoreUpdate update : updates) {
+            Board board = boards.get(update.key);
+            if (board == null) {
+                continue;
+            }
+            synchronized (board) {
+                // Not loaded yet: the pending load runs after this commit and will read the score itself
+                if (board.loaded) {
+                    board.set(update.userId, update.score);
+                    dirty.set(true);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Drop every board (they are reloaded on the next read), e.g. after the rollups were rebuilt
+     */
+    public void clear() {
+        boards.clear();
+        dirty.set(true);
+    }
+    
+    /**
+     * Write the loaded boards to the snapshot file (scheduled; skipped if nothing changed)
+     */
+    @Scheduled(fixedDelayString = "${ecocredit.leaderboard.snapshot-ms:60000}")
+    public void snapshot() {
+        evictExpired();
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            writeSnapshot();
+        } catch (IOException | RuntimeException e) {
+            dirty.set(true);
+            System.err.println("Failed to write leaderboard snapshot: " + e.getMessage());
+        }
+    }
+    
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        snapshot();
+    }
+    
+    private synchronized void writeSnapshot() throws IOException {
+        long started = System.nanoTime();
+        Files.createDirectories(directory);
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        
+        // Taken before any board is copied: everything committed after this is re-read on restore
+        LocalDateTime takenAt = LocalDateTime.now();
+        List<String> keys = new ArrayList<>();
+        List<long[]> entries = new ArrayList<>();
+        boards.forEach((key, board) -> {
+            synchronized (board) {
+                if (board.loaded) {
+                    keys.add(key);
+                    entries.add(board.toArray());
+                }
+            }
+        });
+        
+        int written = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeUTF(takenAt.toString());
+            out.writeInt(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                long[] pairs = entries.get(i);
+                out.writeUTF(keys.get(i));
+                out.writeInt(pairs.length / 2);
+                for (long value : pairs) {
+                    out.writeLong(value);
+                }
+                written += pairs.length / 2;
+            }
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                   StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.printf("🏆 Leaderboard snapshot: %d boards, %d entries in %d ms%n",
+                          keys.size(), written, (System.nanoTime() - started) / 1_000_000);
+    }
+    
+    // Drop daily and weekly boards that fell out of their retention window
+    private void evictExpired() {
+        LocalDate today = LocalDate.now();
+        LocalDate firstDay = today.minusDays(dailyDays - 1L);
+        LocalDate firstWeek = StepPeriod.WEEK.start(today).minusWeeks(weeklyWeeks - 1L);
+        boards.keySet().removeIf(key -> {
+            String[] parts = key.split(":", 2);
+            Kind kind = Kind.valueOf(parts[0]);
+            if (kind == Kind.DAILY) {
+                return LocalDate.parse(parts[1]).isBefore(firstDay);
+            }
+            return kind == Kind.WEEKLY && LocalDate.parse(parts[1]).isBefore(firstWeek);
+        });
+    }
+    
+    private Board load(String key) {
+        Board board = boards.computeIfAbsent(key, k -> new Board());
+        synchronized (board) {
+            // Loaded under the board lock, so a commit reported meanwhile waits and is applied on top
+            if (!board.loaded) {
+                try {
+                    readScores(key, null).forEach(board::set);
+                } catch (RuntimeException e) {
+                    boards.remove(key, board);
+                    throw e;
+                }
+                board.loaded = true;
+                dirty.set(true);
+            }
+        }
+        return board;
+    }
+    
+    // Committed scores of a board, for every user or only some
+    private Map<Long, Long> readScores(String key, Collection<Long> userIds) {
+        String[] parts = key.split(":", 2);
+        List<StepRepository.UserTotal> totals;
+        switch (Kind.valueOf(parts[0])) {
+            case DAILY: {
+                LocalDate day = LocalDate.parse(parts[1]);
+                totals = userIds == null ? stepRepository.findUserTotalsOn(day)
+                                         : stepRepository.findUserTotalsOn(day, userIds);
+                break;
+            }
+            case WEEKLY: {
+                LocalDate start = LocalDate.parse(parts[1]);
+                totals = userIds == null ? stepRollupRepository.findUserTotals(StepPeriod.WEEK, start)
+                                         : stepRollupRepository.findUserTotals(StepPeriod.WEEK, start, userIds);
+                break;
+            }
+            case ALL_TIME:
+                totals = userIds == null ? stepRollupRepository.sumAllTimeTotals()
+                                         : stepRollupRepository.sumAllTimeTotals(userIds);
+                break;
+            default: {
+                StepChallenge challenge = stepChallengeRepository.findById(Long.valueOf(parts[1]))
+                    .orElseThrow(() -> new IllegalArgumentException("Challenge not found"));
+                totals = userIds == null
+                    ? stepRepository.sumChallengeSteps(challenge.getId(), challenge.getStartDate(), challenge.getEndDate())
+                    : stepRepository.sumChallengeSteps(challenge.getId(), challenge.getStartDate(), challenge.getEndDate(), userIds);
+            }
+        }
+        
+        Map<Long, Long> scores = new HashMap<>();
+        for (StepRepository.UserTotal total : totals) {
+            scores.put(total.getUserId(), total.getSteps().longValue());
+        }
+        return scores;
+    }
+    
+    // One leaderboard; guarded by its own monitor
+    private static final class Board {
+        boolean loaded;
+        final Map<Long, Long> scores = new HashMap<>();
+        final SplittableRandom random = new SplittableRandom();
+        Node root;
+        
+        // Set a user's score; users at zero leave the board
+        void set(long userId, long score) {
+            Long previous = scores.get(userId);
+            if (previous != null) {
+                if (previous == score) {
+                    return;
+                }
+                root = remove(root, previous, userId);
+                scores.remove(userId);
+            }
+            if (score > 0) {
+                root = insert(root, new Node(userId, score, random.nextInt()));
+                scores.put(userId, score);
+            }
+        }
+        
+        Standing standing(long userId) {
+            Long score = scores.get(userId);
+            if (score == null) {
+                return null;
+            }
+            // Rank = 1 + number of strictly higher scores (ties share a rank)
+            return new Standing(countBefore(score, Long.MIN_VALUE) + 1, userId, score);
+        }
+        
+        List<Standing> top(int limit) {
+            List<Standing> result = new ArrayList<>(Math.min(limit, scores.size()));
+            Deque<Node> stack = new ArrayDeque<>();
+            Node node = root;
+            int position = 0;
+            int rank = 0;
+            long previousScore = Long.MIN_VALUE;
+            while ((node != null || !stack.isEmpty()) && result.size() < limit) {
+                while (node != null) {
+                    stack.push(node);
+                    node = node.left;
+                }
+                node = stack.pop();
+                position++;
+                if (node.score != previousScore) {
+                    rank = position;
+                    previousScore = node.score;
+                }
+                result.add(new Standing(rank, node.userId, node.score));
+                node = node.right;
+            }
+            return result;
+        }
+        
+        // (userId, score) pairs, flattened
+        long[] toArray() {
+            long[] pairs = new long[scores.size() * 2];
+            int i = 0;
+            for (Map.Entry<Long, Long> entry : scores.entrySet()) {
+                pairs[i++] = entry.getKey();
+                pairs[i++] = entry.getValue();
+            }
+            return pairs;
+        }
+        
+        // Entries ordered before (score, userId)
+        private int countBefore(long score, long userId) {
+            int count = 0;
+            Node node = root;
+            while (node != null) {
+                if (compare(node.score, node.userId, score, userId) < 0) {
+                    count += size(node.left) + 1;
+                    node = node.right;
+                } else {
+                    node = node.left;
+                }
+            }
+            return count;
+        }
+        
+        // Higher scores first, then lower user ids
+        private static int compare(long scoreA, long userA, long scoreB, long userB) {
+            if (scoreA != scoreB) {
+                return scoreA > scoreB ? -1 : 1;
+            }
+            return Long.compare(userA, userB);
+        }
+        
+        private static Node insert(Node node, Node added) {
+            if (node == null) {
+                return added;
+            }
+            if (added.priority > node.priority) {
+                Node[] halves = split(node, added.score, added.userId);
+                added.left = halves[0];
+                added.right = halves[1];
+                return added.update();
+            }
+            if (compare(added.score, added.userId, node.score, node.userId) < 0) {
+                node.left = insert(node.left, added);
+            } else {
+                node.right = insert(node.right, added);
+            }
+            return node.update();
+        }
+        
+        private static Node remove(Node node, long score, long userId) {
+            if (node == null) {
+                return null;
+            }
+            int order = compare(score, userId, node.score, node.userId);
+            if (order == 0) {
+                return merge(node.left, node.right);
+            }
+            if (order < 0) {
+                node.left = remove(node.left, score, userId);
+            } else {
+                node.right = remove(node.right, score, userId);
+            }
+            return node.update();
+        }
+        
+        // [entries before (score, userId), the rest]
+        private static Node[] split(Node node, long score, long userId) {
+            if (node == null) {
+                return new Node[2];
+            }
+            if (compare(node.score, node.userId, score, userId) < 0) {
+                Node[] halves = split(node.right, score, userId);
+                node.right = halves[0];
+                halves[0] = node.update();
+                return halves;
+            }
+            Node[] halves = split(node.left, score, userId);
+            node.left = halves[1];
+            halves[1] = node.update();
+            return halves;
+        }
+        
+        private static Node merge(Node left, Node right) {
+            if (left == null) {
+                return right;
+            }
+            if (right == null) {
+                return left;
+            }
+            if (left.priority > right.priority) {
+                left.right = merge(left.right, right);
+                return left.update();
+            }
+            right.left = merge(left, right.left);
+            return right.update();
+        }
+        
+        private static int size(Node node) {
+            return node != null ? node.size : 0;
+        }
+        
+        // Treap node; size counts the subtree
+        private static final class Node {
+            final long userId;
+            final long score;
+            final int priority;
+            int size = 1;
+            Node left;
+            Node right;
+            
+            Node(long userId, long score, int priority) {
+                this.userId = userId;
+                this.score = score;
+                this.priority = priority;
+            }
+            
+            Node update() {
+                size = size(left) + size(right) + 1;
+                return this;
+            }
+        }
+    }
+    
+    public static class ScoreUpdate {
+        public final String key;
+        public final long userId;
+        public final long score;
+        
+        public ScoreUpdate(String key, long userId, long score) {
+            this.key = key;
+            this.userId = userId;
+            this.score = score;
+        }
+    }
+    
+    public static class Standing {
+        public final int rank;
+        public final long userId;
+        public final long score;
+        
+        public Standing(int rank, long userId, long score) {
+            this.rank = rank;
+            this.userId = userId;
+            this.score = score;
+        }
+    }
+}
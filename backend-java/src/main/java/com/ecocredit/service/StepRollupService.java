@@ -0,0 +1,180 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.StepPeriod;
+import com.ecocredit.model.StepRollup;
+import com.ecocredit.repository.StepRepository;
+import com.ecocredit.repository.StepRollupRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the week, month and year step rollups (step_rollups) in step with the daily step totals.
+ * Every daily change moves its three buckets by its delta in the transaction that wrote it, so a
+ * yearly chart reads 12 month rows or 53 week rows instead of 365 days.
+ */
+@Service
+public class StepRollupService {
+    
+    private static final int BACKFILL_FLUSH_EVERY = 500;
+    
+    private final StepRollupRepository stepRollupRepository;
+    private final StepRepository stepRepository;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    public StepRollupService(StepRollupRepository stepRollupRepository, StepRepository stepRepository) {
+        this.stepRollupRepository = stepRollupRepository;
+        this.stepRepository = stepRepository;
+    }
+    
+    /**
+     * Move the buckets of changed days by their deltas.
+     * Must run in the transaction that wrote the changes, after they were written, with the users'
+     * stats rows locked (see UserStatsService.lockStats) so bucket updates of a user don't interleave.
+     * @param changes Days whose stored total changed
+     * @return Bucket -> total steps after the changes, for every bucket touched
+     */
+    @Transactional
+    public Map<StepRollup.Key, Long> applyStepChanges(Collection<UserStatsService.StepChange> changes) {
+        Map<StepRollup.Key, BucketDelta> deltas = new LinkedHashMap<>();
+        for (UserStatsService.StepChange change : changes) {
+            for (StepPeriod period : StepPeriod.values()) {
+                StepRollup.Key key = new StepRollup.Key(change.userId, period, period.start(change.date));
+                deltas.computeIfAbsent(key, k -> new BucketDelta()).add(change);
+            }
+        }
+        
+        Map<StepRollup.Key, Long> totals = new HashMap<>();
+        for (Map.Entry<StepRollup.Key, BucketDelta> entry : deltas.entrySet()) {
+            StepRollup.Key key = entry.getKey();
+            BucketDelta delta = entry.getValue();
+            StepRollup bucket = entityManager.find(StepRollup.class, key);
+            if (bucket == null) {
+                entityManager.persist(new StepRollup(key.getUserId(), key.getPeriod(), key.getPeriodStart(),
+                                                     delta.steps, delta.days, delta.best));
+                totals.put(key, delta.steps);
+                continue;
+            }
+            
+            bucket.setTotalSteps(bucket.getTotalSteps() + delta.steps);
+            bucket.setDaysTracked(bucket.getDaysTracked() + delta.days);
+            if (delta.highestLowered >= bucket.getBestDaySteps()) {
+                // The best day went down; another day of the bucket may now be the best
+                LocalDate end = key.getPeriod().next(key.getPeriodStart()).minusDays(1);
+                bucket.setBestDaySteps(stepRepository.findMaxDailyStepsBetween(key.getUserId(), key.getPeriodStart(), end));
+            } else {
+                bucket.setBestDaySteps(Math.max(bucket.getBestDaySteps(), delta.best));
+            }
+            totals.put(key, bucket.getTotalSteps());
+        }
+        return totals;
+    }
+    
+    /**
+     * Rebuild the step rollups from the daily step totals with one pass over them.
+     * Meant for first deployment or repair; run it while no steps are being written.
+     * @return Number of buckets written
+     */
+    @Transactional
+    public int backfill() {
+        long started = System.nanoTime();
+        
+        Map<StepRollup.Key, BucketDelta> buckets = new LinkedHashMap<>();
+        for (StepRepository.UserDailySteps day : stepRepository.findAllDailySteps()) {
+            UserStatsService.StepChange change =
+                new UserStatsService.StepChange(day.getUserId(), day.getDate(), null, day.getSteps());
+            for (StepPeriod period : StepPeriod.values()) {
+                StepRollup.Key key = new StepRollup.Key(change.userId, period, period.start(change.date));
+                buckets.computeIfAbsent(key, k -> new BucketDelta()).add(change);
+            }
+        }
+        
+        stepRollupRepository.deleteAllInBatch();
+        
+        int written = 0;
+        for (Map.Entry<StepRollup.Key, BucketDelta> entry : buckets.entrySet()) {
+            StepRollup.Key key = entry.getKey();
+            BucketDelta bucket = entry.getValue();
+            entityManager.persist(new StepRollup(key.getUserId(), key.getPeriod(), key.getPeriodStart(),
+                                                 bucket.steps, bucket.days, bucket.best));
+            if (++written % BACKFILL_FLUSH_EVERY == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        
+        System.out.printf("📊 Step rollup backfill wrote %d buckets in %d ms%n",
+                          written, (System.nanoTime() - started) / 1_000_000);
+        return written;
+    }
+    
+    /**
+     * Step aggregates for a user, read from the rollups only.
+     * Every bucket overlapping [from, to] is present; buckets without tracked days are zero.
+     * @param userId User to chart
+     * @param period WEEK, MONTH or YEAR buckets
+     * @param from Any day of the first bucket
+     * @param to Any day of the last bucket
+     * @return Points: period, start, totalSteps, daysTracked, averageSteps, bestDaySteps
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAggregates(Long userId, StepPeriod period, LocalDate from, LocalDate to) {
+        LocalDate first = period.start(from);
+        LocalDate last = period.start(to);
+        Map<LocalDate, StepRollup> buckets = new HashMap<>();
+        for (StepRollup bucket :
+                stepRollupRepository.findByUserIdAndPeriodAndPeriodStartBetweenOrderByPeriodStart(userId, period, first, last)) {
+            buckets.put(bucket.getPeriodStart(), bucket);
+        }
+        
+        List<Map<String, Object>> series = new ArrayList<>();
+        for (LocalDate start = first; !start.isAfter(last); start = period.next(start)) {
+            StepRollup bucket = buckets.get(start);
+            long total = bucket != null ? bucket.getTotalSteps() : 0;
+            int days = bucket != null ? bucket.getDaysTracked() : 0;
+            
+            Map<String, Object> point = new HashMap<>();
+            point.put("period", period.label(start));
+            point.put("start", start.toString());
+            point.put("totalSteps", total);
+            point.put("daysTracked", days);
+            point.put("averageSteps", days > 0 ? Math.round((double) total / days) : 0);
+            point.put("bestDaySteps", bucket != null ? bucket.getBestDaySteps() : 0);
+            series.add(point);
+        }
+        return series;
+    }
+    
+    // Net change of one bucket from a set of daily changes
+    private static class BucketDelta {
+        long steps;
+        int days;
+        int best;
+        int highestLowered = -1; // Highest previous total of a day that went down
+        
+        void add(UserStatsService.StepChange change) {
+            int previous = change.previousSteps != null ? change.previousSteps : 0;
+            steps += change.steps - previous;
+            if (change.previousSteps == null) {
+                days++;
+            }
+            best = Math.max(best, change.steps);
+            if (change.steps < previous) {
+                highestLowered = Math.max(highestLowered, previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.ecocredit.service;
+
+import com.ecocredit.repository.StepRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of each user's daily step totals, so stats and range reads are plain array scans
+ * instead of JPA queries that materialize a Step per row.
+ *
+ * A user's days live in one int[] indexed by epoch day minus the first tracked day, -1 marking
+ * untracked days. It is loaded on first read with one (date, steps) projection query and then kept
+ * current by StepIngestService, which reports every write after it commits.
+ *
+ * Memory: about 100 bytes per user plus 4 bytes per day between the user's first and last tracked day
+ * (~1.5 KB per year of history). The array never spans more than ecocredit.steps.timeseries.max-span-days;
+ * stray days outside that window (a mistyped year) are kept in a small sorted map instead. At most
+ * ecocredit.steps.timeseries.max-users users are held; beyond that an arbitrary user is dropped and
+ * reloaded on its next read. Defaults (20,000 users, 10 years) bound the array part at ~290 MB worst
+ * case, and ~30 MB for 20,000 users with a year of history each.
+ */
+@Service
+public class StepTimeSeriesStore {
+    
+    private static final int UNTRACKED = -1;
+    private static final int INITIAL_CAPACITY = 32;
+    
+    private final StepRepository stepRepository;
+    private final int maxUsers;
+    private final int maxSpanDays;
+    
+    private final Map<Long, Series> seriesByUser = new ConcurrentHashMap<>();
+    
+    public StepTimeSeriesStore(StepRepository stepRepository,
+                               @Value("${ecocredit.steps.timeseries.max-users:20000}") int maxUsers,
+                               @Value("${ecocredit.steps.timeseries.max-span-days:3660}") int maxSpanDays) {
+        this.stepRepository = stepRepository;
+        this.maxUsers = Math.max(1, maxUsers);
+        this.maxSpanDays = Math.max(INITIAL_CAPACITY, maxSpanDays);
+    }
+    
+    /**
+     * Record a committed step total (called by the step write path after commit).
+     * Users not currently held are skipped; their next read loads the committed rows.
+     */
+    public void record(Long userId, LocalDate date, int steps) {
+        Series series = seriesByUser.get(userId);
+        if (series == null) {
+            return;
+        }
+        synchronized (series) {
+            // Not loaded yet: the pending load runs after this commit and will read the row itself
+            if (series.loaded) {
+                series.set(date.toEpochDay(), steps);
+            }
+        }
+    }
+    
+    /**
+     * All-time step stats for a user
+     */
+    public StepStats getStats(Long userId) {
+        Series series = load(userId);
+        synchronized (series) {
+            return series.stats(LocalDate.MIN.toEpochDay(), LocalDate.MAX.toEpochDay());
+        }
+    }
+    
+    /**
+     * Step stats over [from, to]
+     */
+    public StepStats getStats(Long userId, LocalDate from, LocalDate to) {
+        Series series = load(userId);
+        synchronized (series) {
+            return series.stats(from.toEpochDay(), to.toEpochDay());
+        }
+    }
+    
+    /**
+     * Daily totals over [from, to], index 0 being from; untracked days are -1
+     */
+    public int[] getDailySteps(Long userId, LocalDate from, LocalDate to) {
+        Series series = load(userId);
+        synchronized (series) {
+            return series.range(from.toEpochDay(), to.toEpochDay());
+        }
+    }
+    
+    /**
+     * Drop a user's series (it is reloaded on the next read)
+     */
+    public void evict(Long userId) {
+        seriesByUser.remove(userId);
+    }
+    
+    /**
+     * Number of users currently held in memory
+     */
+    public int getUserCount() {
+        return seriesByUser.size();
+    }
+    
+    private Series load(Long userId) {
+        Series series = seriesByUser.get(userId);
+        if (series == null) {
+            series = seriesByUser.computeIfAbsent(userId, id -> new Series(maxSpanDays));
+            evictOverflow(userId);
+        }
+        synchronized (series) {
+            // Loaded under the series lock, so a commit reported meanwhile waits and is applied on top
+            if (!series.loaded) {
+                for (StepRepository.DailySteps day : stepRepository.findDailyStepsByUserId(userId)) {
+                    series.set(day.getDate().toEpochDay(), day.getSteps());
+                }
+                series.loaded = true;
+            }
+        }
+        return series;
+    }
+    
+    private void evictOverflow(Long keepUserId) {
+        Iterator<Long> userIds = seriesByUser.keySet().iterator();
+        while (seriesByUser.size() > maxUsers && userIds.hasNext()) {
+            Long userId = userIds.next();
+            if (!userId.equals(keepUserId)) {
+                userIds.remove();
+            }
+        }
+    }
+    
+    // One user's days; guarded by its own monitor
+    private static final class Series {
+        final int maxSpanDays;
+        boolean loaded;
+        long firstDay;
+        int[] steps = new int[0];
+        // Days that would stretch the array past maxSpanDays
+        TreeMap<Long, Integer> outliers;
+        
+        Series(int maxSpanDays) {
+            this.maxSpanDays = maxSpanDays;
+        }
+        
+        void set(long day, int value) {
+            if (steps.length == 0) {
+                firstDay = day;
+                steps = new int[INITIAL_CAPACITY];
+                Arrays.fill(steps, UNTRACKED);
+            } else if (day < firstDay) {
+                int shift = (int) Math.min(Integer.MAX_VALUE, firstDay - day);
+                if ((long) lastUsedIndex() + 1 + shift > maxSpanDays) {
+                    setOutlier(day, value);
+                    return;
+                }
+                int length = Math.min(maxSpanDays, Math.max(steps.length + shift, steps.length * 3 / 2));
+                int[] grown = new int[length];
+                Arrays.fill(grown, UNTRACKED);
+                System.arraycopy(steps, 0, grown, shift, Math.min(steps.length, length - shift));
+                steps = grown;
+                firstDay = day;
+            } else if (day - firstDay >= steps.length) {
+                if (day - firstDay >= maxSpanDays) {
+                    setOutlier(day, value);
+                    return;
+                }
+                int length = (int) Math.min(maxSpanDays, Math.max(day - firstDay + 1, steps.length * 3L / 2));
+                int oldLength = steps.length;
+                steps = Arrays.copyOf(steps, length);
+                Arrays.fill(steps, oldLength, length, UNTRACKED);
+            }
+            if (outliers != null) {
+                outliers.remove(day);
+            }
+            steps[(int) (day - firstDay)] = value;
+        }
+        
+        StepStats stats(long fromDay, long toDay) {
+            long total = 0;
+            int days = 0;
+            int max = 0;
+            int from = (int) Math.max(0, Math.min(steps.length, fromDay - firstDay));
+            int to = (int) Math.max(-1, Math.min(steps.length - 1, toDay - firstDay));
+            for (int i = from; i <= to; i++) {
+                int value = steps[i];
+                if (value != UNTRACKED) {
+                    total += value;
+                    days++;
+                    if (value > max) {
+                        max = value;
+                    }
+                }
+            }
+            if (outliers != null) {
+                for (int value : outliers.subMap(fromDay, true, toDay, true).values()) {
+                    total += value;
+                    days++;
+                    max = Math.max(max, value);
+                }
+            }
+            return new StepStats(total, days, max);
+        }
+        
+        int[] range(long fromDay, long toDay) {
+            int[] result = new int[(int) (toDay - fromDay + 1)];
+            Arrays.fill(result, UNTRACKED);
+            long overlapFrom = Math.max(fromDay, firstDay);
+            long overlapTo = Math.min(toDay, firstDay + steps.length - 1);
+            if (overlapFrom <= overlapTo) {
+                System.arraycopy(steps, (int) (overlapFrom - firstDay), result, (int) (overlapFrom - fromDay),
+                                 (int) (overlapTo - overlapFrom + 1));
+            }
+            if (outliers != null) {
+                outliers.subMap(fromDay, true, toDay, true)
+                        .forEach((day, value) -> result[(int) (day - fromDay)] = value);
+            }
+            return result;
+        }
+        
+        private void setOutlier(long day, int value) {
+            if (outliers == null) {
+                outliers = new TreeMap<>();
+            }
+            outliers.put(day, value);
+        }
+        
+        private int lastUsedIndex() {
+            int last = steps.length - 1;
+            while (last > 0 && steps[last] == UNTRACKED) {
+                last--;
+            }
+            return last;
+        }
+    }
+    
+    public static class StepStats {
+        public final long totalSteps;
+        public final int daysTracked;
+        public final int maxDailySteps;
+        
+        public StepStats(long totalSteps, int daysTracked, int maxDailySteps) {
+            this.totalSteps = totalSteps;
+            this.daysTracked = daysTracked;
+            this.maxDailySteps = maxDailySteps;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.ecocredit.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer in front of StepIngestService.
+ * While a phone is tracking it pushes a fresh day total every few seconds; only the latest total per
+ * (user, date) is kept here and written in batches every ecocredit.steps.buffer.flush-ms, or sooner
+ * once ecocredit.steps.buffer.max-pending days are dirty. Entries are dropped only after the write
+ * that persisted them commits, and only if no newer total arrived meanwhile.
+ *
+ * Every flush (and every discard ahead of a direct write) runs under one lock, so a write can't
+ * carry a snapshot older than one written after it. A failed batch is retried per user, and a day
+ * total whose write failed ecocredit.steps.buffer.max-attempts times is dropped and logged, so one
+ * bad entry can't hold back the rest of the buffer forever.
+ */
+@Service
+public class StepWriteBuffer {
+    
+    private final StepIngestService stepIngestService;
+    private final int maxPending;
+    private final int maxAttempts;
+    
+    // userId -> (date -> latest step total not yet written)
+    private final Map<Long, Map<LocalDate, Integer>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // userId -> (date -> failed writes of the day's buffered total)
+    private final Map<Long, Map<LocalDate, Integer>> failures = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+    
+    public StepWriteBuffer(StepIngestService stepIngestService,
+                           @Value("${ecocredit.steps.buffer.max-pending:10000}") int maxPending,
+                           @Value("${ecocredit.steps.buffer.max-attempts:5}") int maxAttempts) {
+        this.stepIngestService = stepIngestService;
+        this.maxPending = Math.max(1, maxPending);
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+    
+    /**
+     * Record the latest step total for a user's day (replaces any buffered total for that day)
+     * @param userId User who walked
+     * @param date Day of the total
+     * @param steps Step total for the day
+     */
+    public void put(Long userId, LocalDate date, int steps) {
+        if (steps < 0) {
+            throw new IllegalArgumentException("Invalid steps count for " + date);
+        }
+        pending.compute(userId, (id, days) -> {
+            if (days == null) {
+                days = new ConcurrentHashMap<>();
+            }
+            if (days.put(date, steps) == null) {
+                pendingCount.incrementAndGet();
+            }
+            return days;
+        });
+        
+        // Size threshold: the writer that crosses it pays for the flush (unless one is already running)
+        if (pendingCount.get() >= maxPending && flushLock.tryLock()) {
+            try {
+                flushAll();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Forget buffered totals for these days (they are being written directly with newer values).
+     * Waits for a running flush, so no older snapshot of these days is written after the caller's write.
+     */
+    public void discard(Collection<StepIngestService.StepEntry> entries) {
+        flushLock.lock();
+        try {
+            for (StepIngestService.StepEntry entry : entries) {
+                pending.computeIfPresent(entry.userId, (id, days) -> {
+                    if (days.remove(entry.date) != null) {
+                        pendingCount.decrementAndGet();
+                    }
+                    return days.isEmpty() ? null : days;
+                });
+                clearFailures(entry);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    /**
+     * Buffered step total for a user's day, or null if nothing is pending
+     */
+    public Integer getPending(Long userId, LocalDate date) {
+        Map<LocalDate, Integer> days = pending.get(userId);
+        return days != null ? days.get(date) : null;
+    }
+    
+    /**
+     * Buffered step totals for a user, by date (a snapshot)
+     */
+    public Map<LocalDate, Integer> getPending(Long userId) {
+        Map<LocalDate, Integer> days = pending.get(userId);
+        return days != null ? new TreeMap<>(days) : Map.of();
+    }
+    
+    /**
+     * Write a user's buffered totals now (before reads that go straight to the steps table).
+     * Inside a transaction the entries leave the buffer when it commits; call it before the
+     * transaction takes any step locks, since it waits for a running flush.
+     */
+    public void flushUser(Long userId) {
+        flushLock.lock();
+        try {
+            List<StepIngestService.StepEntry> entries = new ArrayList<>();
+            Map<LocalDate, Integer> days = pending.get(userId);
+            if (days != null) {
+                days.forEach((date, steps) -> entries.add(new StepIngestService.StepEntry(userId, date, steps)));
+            }
+            if (entries.isEmpty()) {
+                return;
+            }
+            try {
+                write(entries);
+            } catch (RuntimeException e) {
+                // Entries stay buffered; the scheduled flush retries (and eventually drops) them
+                System.err.println("Failed to flush " + entries.size() + " buffered step totals of user " + userId + ": " + e.getMessage());
+                throw e;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    /**
+     * Write every buffered total (scheduled)
+     */
+    @Scheduled(fixedDelayString = "${ecocredit.steps.buffer.flush-ms:2000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+        if (pendingCount.get() > 0) {
+            System.err.println("Step buffer shut down with " + pendingCount.get() + " unwritten day totals");
+        }
+    }
+    
+    /**
+     * Number of (user, date) totals waiting to be written
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+    
+    /**
+     * Number of day totals dropped after ecocredit.steps.buffer.max-attempts failed writes
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+    
+    private List<StepIngestService.StepEntry> snapshotAll() {
+        List<StepIngestService.StepEntry> entries = new ArrayList<>(pendingCount.get());
+        pending.forEach((userId, days) ->
+            days.forEach((date, steps) -> entries.add(new StepIngestService.StepEntry(userId, date, steps))));
+        return entries;
+    }
+    
+    // Write the whole buffer in one batch; if that fails, user by user, so only the failing users stay behind
+    private void flushAll() {
+        List<StepIngestService.StepEntry> entries = snapshotAll();
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            write(entries);
+            return;
+        } catch (RuntimeException e) {
+            System.err.println("Failed to flush " + entries.size() + " buffered step totals, retrying per user: " + e.getMessage());
+        }
+        
+        Map<Long, List<StepIngestService.StepEntry>> byUser = new LinkedHashMap<>();
+        for (StepIngestService.StepEntry entry : entries) {
+            byUser.computeIfAbsent(entry.userId, id -> new ArrayList<>()).add(entry);
+        }
+        for (List<StepIngestService.StepEntry> userEntries : byUser.values()) {
+            try {
+                write(userEntries);
+            } catch (RuntimeException e) {
+                recordFailure(userEntries, e);
+            }
+        }
+    }
+    
+    private void write(List<StepIngestService.StepEntry> entries) {
+        stepIngestService.upsertSteps(entries);
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    release(entries);
+                }
+            });
+        } else {
+            release(entries);
+        }
+    }
+    
+    // Drop written entries, keeping any day whose total changed after the snapshot
+    private void release(List<StepIngestService.StepEntry> written) {
+        for (StepIngestService.StepEntry entry : written) {
+            remove(entry);
+            clearFailures(entry);
+        }
+    }
+    
+    // Count a failed write of these entries and drop those that failed too often (unless a newer total arrived)
+    private void recordFailure(List<StepIngestService.StepEntry> failed, RuntimeException e) {
+        for (StepIngestService.StepEntry entry : failed) {
+            Map<LocalDate, Integer> days = failures.computeIfAbsent(entry.userId, id -> new ConcurrentHashMap<>());
+            if (days.merge(entry.date, 1, Integer::sum) < maxAttempts) {
+                continue;
+            }
+            clearFailures(entry);
+            if (remove(entry)) {
+                dropped.incrementAndGet();
+                System.err.printf("Dropped buffered step total %d of user %d on %s after %d failed writes: %s%n",
+                                  entry.steps, entry.userId, entry.date, maxAttempts, e.getMessage());
+            }
+        }
+    }
+    
+    // Remove a buffered total only if it is still the given one
+    private boolean remove(StepIngestService.StepEntry entry) {
+        boolean[] removed = new boolean[1];
+        pending.computeIfPresent(entry.userId, (id, days) -> {
+            if (days.remove(entry.date, entry.steps)) {
+                pendingCount.decrementAndGet();
+                removed[0] = true;
+            }
+            return days.isEmpty() ? null : days;
+        });
+        return removed[0];
+    }
+    
+    private void clearFailures(StepIngestService.StepEntry entry) {
+        failures.computeIfPresent(entry.userId, (id, days) -> {
+            days.remove(entry.date);
+            return days.isEmpty() ? null : days;
+        });
+    }
+}
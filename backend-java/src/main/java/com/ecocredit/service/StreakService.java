@@ -0,0 +1,234 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.GoalStreakRun;
+import com.ecocredit.model.UserStats;
+import com.ecocredit.repository.GoalStreakRunRepository;
+import com.ecocredit.repository.StepRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Goal streaks: consecutive days with at least the daily goal (ecocredit.credits.goal-steps).
+ *
+ * Each user's goal days are stored as maximal runs (goal_streak_runs). A day crossing the goal
+ * joins the run ending the day before and/or the run starting the day after; a day dropping below
+ * it splits the run containing it. Either way a write touches at most two runs found by index
+ * lookups, however long the history, and back-filled days merge runs the same way as today's.
+ * user_stats carries the latest run (the current streak) and the longest one; the longest is
+ * re-read with one MAX query only when its run is split.
+ *
+ * Users whose stats row predates the runs get theirs built once from the stored days.
+ */
+@Service
+public class StreakService {
+    
+    private final GoalStreakRunRepository goalStreakRunRepository;
+    private final StepRepository stepRepository;
+    private final int goalSteps;
+    private final int[] milestones;
+    
+    public StreakService(GoalStreakRunRepository goalStreakRunRepository,
+                         StepRepository stepRepository,
+                         CreditRuleEngine creditRuleEngine,
+                         AchievementRuleEngine achievementRuleEngine) {
+        this.goalStreakRunRepository = goalStreakRunRepository;
+        this.stepRepository = stepRepository;
+        this.goalSteps = creditRuleEngine.getGoalSteps();
+        // Milestones are the thresholds of the streak achievement rules
+        this.milestones = Arrays.stream(achievementRuleEngine.getThresholds(AchievementRuleEngine.Metric.STREAK))
+            .mapToInt(Math::toIntExact)
+            .distinct()
+            .toArray();
+    }
+    
+    /**
+     * Move goal streaks for changed days.
+     * Must run in the transaction that wrote the changes, after they were written, with the users'
+     * stats rows locked (see UserStatsService.lockStats).
+     * @param locked Stats rows returned by lockStats
+     * @param changes Days whose stored total changed
+     * @return Streak milestones newly reached, at most once per user and milestone
+     */
+    @Transactional
+    public List<Milestone> applyStepChanges(Map<Long, UserStats> locked, Collection<UserStatsService.StepChange> changes) {
+        Map<Long, List<UserStatsService.StepChange>> byUser = new LinkedHashMap<>();
+        for (UserStatsService.StepChange change : changes) {
+            int previous = change.previousSteps != null ? change.previousSteps : 0;
+            if ((previous >= goalSteps) != (change.steps >= goalSteps)) {
+                byUser.computeIfAbsent(change.userId, id -> new ArrayList<>()).add(change);
+            }
+        }
+        
+        List<Milestone> reached = new ArrayList<>();
+        for (UserStats stats : locked.values()) {
+            if (!Boolean.TRUE.equals(stats.getGoalStreaksBuilt())) {
+                // The stored rows already hold this batch
+                rebuild(stats);
+            } else {
+                List<UserStatsService.StepChange> userChanges = byUser.get(stats.getUserId());
+                if (userChanges == null) {
+                    continue;
+                }
+                for (UserStatsService.StepChange change : userChanges) {
+                    if (change.steps >= goalSteps) {
+                        addGoalDay(stats, change.date);
+                    } else {
+                        removeGoalDay(stats, change.date);
+                    }
+                }
+            }
+            
+            for (int milestone : milestones) {
+                if (milestone > stats.getStreakMilestone() && milestone <= stats.getLongestGoalStreak()) {
+                    reached.add(new Milestone(stats.getUserId(), milestone));
+                    stats.setStreakMilestone(milestone);
+                }
+            }
+        }
+        return reached;
+    }
+    
+    /**
+     * Build the runs of stats rows that predate them, without checking milestones (the next step
+     * write does). Stats rows must be locked (see UserStatsService.lockStats).
+     * @param locked Stats rows returned by lockStats
+     */
+    @Transactional
+    public void buildRuns(Collection<UserStats> locked) {
+        for (UserStats stats : locked) {
+            if (!Boolean.TRUE.equals(stats.getGoalStreaksBuilt())) {
+                rebuild(stats);
+            }
+        }
+    }
+    
+    public int getGoalSteps() {
+        return goalSteps;
+    }
+    
+    // The day now meets the goal: extend or join the neighbouring runs
+    private void addGoalDay(UserStats stats, LocalDate date) {
+        Long userId = stats.getUserId();
+        GoalStreakRun before = goalStreakRunRepository.findByUserIdAndEndDate(userId, date.minusDays(1)).orElse(null);
+        GoalStreakRun after = goalStreakRunRepository.findByUserIdAndStartDate(userId, date.plusDays(1)).orElse(null);
+        
+        GoalStreakRun run;
+        if (before != null && after != null) {
+            goalStreakRunRepository.delete(after);
+            before.setRange(before.getStartDate(), after.getEndDate());
+            run = before;
+        } else if (before != null) {
+            before.setRange(before.getStartDate(), date);
+            run = before;
+        } else if (after != null) {
+            after.setRange(date, after.getEndDate());
+            run = after;
+        } else {
+            run = goalStreakRunRepository.save(new GoalStreakRun(userId, date, date));
+        }
+        
+        if (stats.getGoalStreakEnd() == null || !run.getEndDate().isBefore(stats.getGoalStreakEnd())) {
+            stats.setGoalStreakEnd(run.getEndDate());
+            stats.setGoalStreak(run.getDays());
+        }
+        stats.setLongestGoalStreak(Math.max(stats.getLongestGoalStreak(), run.getDays()));
+    }
+    
+    // The day no longer meets the goal: split the run containing it
+    private void removeGoalDay(UserStats stats, LocalDate date) {
+        Long userId = stats.getUserId();
+        GoalStreakRun run = goalStreakRunRepository
+            .findFirstByUserIdAndStartDateLessThanEqualOrderByStartDateDesc(userId, date).orElse(null);
+        if (run == null || run.getEndDate().isBefore(date)) {
+            return;
+        }
+        
+        LocalDate start = run.getStartDate();
+        LocalDate end = run.getEndDate();
+        int days = run.getDays();
+        boolean hasLeft = start.isBefore(date);
+        boolean hasRight = end.isAfter(date);
+        if (hasLeft) {
+            run.setRange(start, date.minusDays(1));
+            if (hasRight) {
+                goalStreakRunRepository.save(new GoalStreakRun(userId, date.plusDays(1), end));
+            }
+        } else if (hasRight) {
+            run.setRange(date.plusDays(1), end);
+        } else {
+            goalStreakRunRepository.delete(run);
+        }
+        
+        if (end.equals(stats.getGoalStreakEnd())) {
+            if (hasRight) {
+                stats.setGoalStreak((int) (end.toEpochDay() - date.toEpochDay()));
+            } else if (hasLeft) {
+                stats.setGoalStreakEnd(date.minusDays(1));
+                stats.setGoalStreak((int) (date.toEpochDay() - start.toEpochDay()));
+            } else {
+                GoalStreakRun latest = goalStreakRunRepository.findFirstByUserIdOrderByEndDateDesc(userId).orElse(null);
+                stats.setGoalStreakEnd(latest != null ? latest.getEndDate() : null);
+                stats.setGoalStreak(latest != null ? latest.getDays() : 0);
+            }
+        }
+        if (days == stats.getLongestGoalStreak()) {
+            stats.setLongestGoalStreak(goalStreakRunRepository.findLongestDays(userId));
+        }
+    }
+    
+    // Build a user's runs from the stored days (one pass, once per user)
+    private void rebuild(UserStats stats) {
+        Long userId = stats.getUserId();
+        goalStreakRunRepository.deleteByUserId(userId);
+        
+        List<LocalDate> goalDays = new ArrayList<>();
+        for (StepRepository.DailySteps day : stepRepository.findDailyStepsByUserId(userId)) {
+            if (day.getSteps() >= goalSteps) {
+                goalDays.add(day.getDate());
+            }
+        }
+        goalDays.sort(Comparator.naturalOrder());
+        
+        GoalStreakRun latest = null;
+        int longest = 0;
+        LocalDate runStart = null;
+        LocalDate runEnd = null;
+        for (int i = 0; i <= goalDays.size(); i++) {
+            LocalDate date = i < goalDays.size() ? goalDays.get(i) : null;
+            if (date != null && runEnd != null && date.equals(runEnd.plusDays(1))) {
+                runEnd = date;
+                continue;
+            }
+            if (runStart != null) {
+                latest = goalStreakRunRepository.save(new GoalStreakRun(userId, runStart, runEnd));
+                longest = Math.max(longest, latest.getDays());
+            }
+            runStart = date;
+            runEnd = date;
+        }
+        
+        stats.setGoalStreakEnd(latest != null ? latest.getEndDate() : null);
+        stats.setGoalStreak(latest != null ? latest.getDays() : 0);
+        stats.setLongestGoalStreak(longest);
+        stats.setGoalStreaksBuilt(true);
+    }
+    
+    public static class Milestone {
+        public final Long userId;
+        public final int days;
+        
+        public Milestone(Long userId, int days) {
+            this.userId = userId;
+            this.days = days;
+        }
+    }
+}
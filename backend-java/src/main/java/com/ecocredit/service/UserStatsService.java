@@ -0,0 +1,248 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.User;
+import com.ecocredit.model.UserStats;
+import com.ecocredit.repository.RedemptionRepository;
+import com.ecocredit.repository.StepRepository;
+import com.ecocredit.repository.UserRepository;
+import com.ecocredit.repository.UserStatsRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Maintains the user_stats row of each user from step upserts.
+ * Totals and days tracked move by each day's delta (negative when a day is overwritten with fewer
+ * steps). Max, streak and last active day move incrementally in the common cases (a new best, the
+ * next day of a streak) and are recomputed from the steps table only when a change can't be resolved
+ * locally: lowering the current max, deactivating the last active day, or filling the gap before
+ * the streak.
+ *
+ * The row also counts successful reward redemptions (see recordRedemption), under the same lock.
+ */
+@Service
+public class UserStatsService {
+    
+    private static final int STREAK_PAGE_SIZE = 64;
+    private static final LocalDate LAST_DATE = LocalDate.of(9999, 12, 31);
+    
+    private final UserStatsRepository userStatsRepository;
+    private final StepRepository stepRepository;
+    private final UserRepository userRepository;
+    private final RedemptionRepository redemptionRepository;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    public UserStatsService(UserStatsRepository userStatsRepository,
+                            StepRepository stepRepository,
+                            UserRepository userRepository,
+                            RedemptionRepository redemptionRepository) {
+        this.userStatsRepository = userStatsRepository;
+        this.stepRepository = stepRepository;
+        this.userRepository = userRepository;
+        this.redemptionRepository = redemptionRepository;
+    }
+    
+    /**
+     * Lock the stats rows of some users until the transaction ends, in ascending user id order so
+     * concurrent writers can't deadlock. A missing row is created from the user's stored steps.
+     * Must be called before the step rows (or, for recordRedemption, the redemption rows) are changed.
+     * @param userIds Users about to get step writes
+     * @return userId -> locked stats row
+     */
+    @Transactional
+    public Map<Long, UserStats> lockStats(Collection<Long> userIds) {
+        Map<Long, UserStats> locked = new LinkedHashMap<>();
+        for (Long userId : new TreeSet<>(userIds)) {
+            locked.put(userId, lockStats(userId));
+        }
+        return locked;
+    }
+    
+    /**
+     * Apply step changes to locked stats rows (see lockStats).
+     * Must run in the transaction that wrote the changes, after they were written.
+     * @param locked Stats rows returned by lockStats
+     * @param changes Days whose stored total changed
+     */
+    @Transactional
+    public void applyStepChanges(Map<Long, UserStats> locked, Collection<StepChange> changes) {
+        Set<Long> recomputeMax = new HashSet<>();
+        Set<Long> recomputeStreak = new HashSet<>();
+        
+        for (StepChange change : changes) {
+            UserStats stats = locked.get(change.userId);
+            int previous = change.previousSteps != null ? change.previousSteps : 0;
+            
+            stats.setTotalSteps(stats.getTotalSteps() + change.steps - previous);
+            if (change.previousSteps == null) {
+                stats.setDaysTracked(stats.getDaysTracked() + 1);
+            }
+            
+            if (change.steps >= stats.getMaxDailySteps()) {
+                stats.setMaxDailySteps(change.steps);
+            } else if (previous == stats.getMaxDailySteps()) {
+                // The best day went down; another day may now be the best
+                recomputeMax.add(change.userId);
+            }
+            
+            if (!applyActivityChange(stats, change.date, previous > 0, change.steps > 0)) {
+                recomputeStreak.add(change.userId);
+            }
+        }
+        
+        // Recomputed from the stored rows, which already hold every change of this batch
+        for (Long userId : recomputeMax) {
+            locked.get(userId).setMaxDailySteps(stepRepository.findMaxDailySteps(userId));
+        }
+        for (Long userId : recomputeStreak) {
+            recomputeStreak(locked.get(userId));
+        }
+    }
+    
+    /**
+     * Count a successful redemption on a stats row locked (see lockStats) before the redemption was written.
+     * Must run in the transaction that wrote the redemption.
+     * @param locked Stats row returned by lockStats
+     */
+    @Transactional
+    public void recordRedemption(UserStats locked) {
+        locked.setRedemptions(locked.getRedemptions() + 1);
+    }
+    
+    /**
+     * Successful redemptions of a user, from the user_stats counter.
+     * Users without a row, or whose row predates the counter, are counted from the redemptions table.
+     */
+    @Transactional(readOnly = true)
+    public long getRedemptionCount(Long userId) {
+        Integer counted = userStatsRepository.findById(userId).map(UserStats::getRedemptions).orElse(null);
+        return counted != null ? counted : redemptionRepository.countSuccessfulByUserId(userId);
+    }
+    
+    /**
+     * Stats of a user, read from the user_stats row.
+     * Users without a row yet (no step written since the table was introduced) are computed from
+     * the steps table instead, without being stored.
+     */
+    @Transactional(readOnly = true)
+    public UserStats getStats(Long userId) {
+        return userStatsRepository.findById(userId).orElseGet(() -> computeStats(userId));
+    }
+    
+    // Lock the user's stats row, creating it on first write (under the user row lock so two
+    // first writes don't race to insert it)
+    private UserStats lockStats(Long userId) {
+        UserStats stats = userStatsRepository.findForUpdate(userId).orElseGet(() -> {
+            entityManager.find(User.class, userId, LockModeType.PESSIMISTIC_WRITE);
+            return userStatsRepository.findForUpdate(userId).orElseGet(() ->
+                userStatsRepository.saveAndFlush(computeStats(userId)));
+        });
+        if (stats.getRedemptions() == null) {
+            // Row created before the counter; counted once, before the caller's redemption exists
+            stats.setRedemptions((int) redemptionRepository.countSuccessfulByUserId(userId));
+        }
+        return stats;
+    }
+    
+    private UserStats computeStats(Long userId) {
+        UserRepository.UserStatsProjection totals =
+            userRepository.getUserStats(entityManager.getReference(User.class, userId));
+        UserStats stats = new UserStats(userId);
+        stats.setTotalSteps(totals.getTotalSteps());
+        stats.setDaysTracked(totals.getDaysTracked().intValue());
+        stats.setMaxDailySteps(totals.getMaxDailySteps());
+        stats.setRedemptions((int) redemptionRepository.countSuccessfulByUserId(userId));
+        recomputeStreak(stats);
+        return stats;
+    }
+    
+    // Moves the streak for a day that became active or inactive; false if it needs a recompute
+    private boolean applyActivityChange(UserStats stats, LocalDate date, boolean wasActive, boolean active) {
+        if (wasActive == active) {
+            return true;
+        }
+        LocalDate last = stats.getLastActiveDate();
+        int streak = stats.getCurrentStreak();
+        
+        if (active) {
+            if (last == null || date.isAfter(last)) {
+                stats.setCurrentStreak(last != null && date.equals(last.plusDays(1)) ? streak + 1 : 1);
+                stats.setLastActiveDate(date);
+                return true;
+            }
+            // Only the day right before the streak can change it (and may join an earlier run)
+            return !date.equals(last.minusDays(streak));
+        }
+        
+        if (last == null || date.isAfter(last)) {
+            return true;
+        }
+        if (date.equals(last)) {
+            return false;
+        }
+        if (date.isAfter(last.minusDays(streak))) {
+            // The streak now starts the day after this one
+            stats.setCurrentStreak((int) ChronoUnit.DAYS.between(date, last));
+        }
+        return true;
+    }
+    
+    // Walks active days back from the latest one until the first gap
+    private void recomputeStreak(UserStats stats) {
+        LocalDate last = null;
+        LocalDate expected = null;
+        int streak = 0;
+        LocalDate through = LAST_DATE;
+        
+        boolean more = true;
+        while (more) {
+            List<LocalDate> dates = stepRepository.findActiveDatesThrough(
+                stats.getUserId(), through, PageRequest.of(0, STREAK_PAGE_SIZE));
+            more = dates.size() == STREAK_PAGE_SIZE;
+            for (LocalDate date : dates) {
+                if (expected != null && !date.equals(expected)) {
+                    more = false;
+                    break;
+                }
+                if (last == null) {
+                    last = date;
+                }
+                streak++;
+                expected = date.minusDays(1);
+            }
+            through = expected;
+        }
+        
+        stats.setLastActiveDate(last);
+        stats.setCurrentStreak(streak);
+    }
+    
+    public static class StepChange {
+        public final Long userId;
+        public final LocalDate date;
+        public final Integer previousSteps; // null if the day wasn't tracked before
+        public final int steps;
+        
+        public StepChange(Long userId, LocalDate date, Integer previousSteps, int steps) {
+            this.userId = userId;
+            this.date = date;
+            this.previousSteps = previousSteps;
+            this.steps = steps;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.Achievement;
+import com.ecocredit.model.AchievementBackfillJob;
+import com.ecocredit.model.User;
+import com.ecocredit.repository.AchievementRepository;
+import com.ecocredit.repository.UserRepository;
+import com.ecocredit.repository.UserStatsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:achievement-backfill-test;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false",
+    "ecocredit.achievements.backfill.chunk-size=2"
+})
+class AchievementBackfillServiceTest {
+
+    @Autowired
+    private AchievementBackfillService achievementBackfillService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserStatsRepository userStatsRepository;
+
+    @Autowired
+    private AchievementRepository achievementRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void grantsUsersWhoseStepsPredateTheirStatsRow() throws InterruptedException {
+        User legacy = userRepository.save(new User("legacy@test.ecocredit", "Legacy", true));
+        User idle = userRepository.save(new User("idle@test.ecocredit", "Idle", true));
+        // Written straight to the table, as before user_stats existed: no stats row, no streak runs
+        LocalDate start = LocalDate.now().minusDays(30);
+        for (int i = 0; i < 4; i++) {
+            jdbcTemplate.update("INSERT INTO steps (user_id, steps, date, converted_steps, created_at, updated_at) " +
+                                "VALUES (?, ?, ?, 0, ?, ?)",
+                                legacy.getId(), 12000, start.plusDays(i), LocalDateTime.now(), LocalDateTime.now());
+        }
+        assertThat(userStatsRepository.findById(legacy.getId())).isEmpty();
+
+        AchievementBackfillJob job = achievementBackfillService.start(List.of("goal_crusher", "goal_streak_3", "goal_streak_7"));
+
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (AchievementBackfillJob.RUNNING.equals(achievementBackfillService.getJob(job.getId()).orElseThrow().getStatus())
+               && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(achievementBackfillService.getJob(job.getId()).orElseThrow().getStatus())
+            .isEqualTo(AchievementBackfillJob.COMPLETED);
+        assertThat(achievementRepository.findByUserOrderByEarnedAtDesc(legacy))
+            .extracting(Achievement::getType)
+            .containsExactlyInAnyOrder("goal_crusher", "goal_streak_3");
+        assertThat(achievementRepository.findByUserOrderByEarnedAtDesc(idle)).isEmpty();
+        assertThat(userStatsRepository.findById(legacy.getId()).orElseThrow().getGoalStreaksBuilt()).isTrue();
+    }
+}
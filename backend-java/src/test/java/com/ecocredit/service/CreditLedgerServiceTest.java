@@ -0,0 +1,86 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.Credit;
+import com.ecocredit.model.CreditType;
+import com.ecocredit.model.User;
+import com.ecocredit.repository.CreditRepository;
+import com.ecocredit.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:credit-ledger-test;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false",
+    "ecocredit.ledger.enabled=true",
+    "ecocredit.ledger.segment-bytes=3200",
+    "ecocredit.ledger.snapshot-every=4"
+})
+class CreditLedgerServiceTest {
+
+    private static Path ledgerDir;
+
+    @DynamicPropertySource
+    static void ledgerProperties(DynamicPropertyRegistry registry) throws IOException {
+        ledgerDir = Files.createTempDirectory("credit-ledger-test");
+        registry.add("ecocredit.ledger.dir", ledgerDir::toString);
+    }
+
+    @Autowired
+    private CreditLedgerService creditLedgerService;
+
+    @Autowired
+    private CreditService creditService;
+
+    @Autowired
+    private CreditRepository creditRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void servesBalancesAndCatchesUpCreditsWhoseAppendWasLost() throws IOException {
+        User user = userRepository.save(new User("ledger@test.ecocredit", "Ledger", true));
+        for (int i = 0; i < 10; i++) {
+            creditService.awardCredits(user, 5, "Steps");
+        }
+        creditService.awardCreditsBulk(List.of(new CreditService.Award(user.getId(), 7, "Campaign payout")));
+        creditService.recordCredit(new Credit(user, -20, CreditType.REDEMPTION, "Reward redemption"));
+
+        CreditService.CreditBalance balance = creditService.getCreditBalance(user);
+        assertThat(balance.earned).isEqualTo(57);
+        assertThat(balance.spent).isEqualTo(20);
+        assertThat(creditLedgerService.getBalance(user.getId()).available).isEqualTo(37);
+
+        // Committed without reaching the ledger, as when the process dies before the after-commit append
+        creditRepository.save(new Credit(user, 3, CreditType.EARNED, "Lost append"));
+        // Written by the archiver; the events of the rows it summarizes are already in the ledger
+        creditRepository.save(new Credit(user, 100, CreditType.CARRY_FORWARD_EARNED, "Balance carried forward"));
+        long events = creditLedgerService.getEventCount();
+
+        CreditLedgerService reopened = open();
+        assertThat(reopened.getEventCount()).isEqualTo(events + 1);
+        assertThat(reopened.getBalance(user.getId()).earned).isEqualTo(60);
+        assertThat(reopened.getBalance(user.getId()).spent).isEqualTo(20);
+        reopened.close();
+
+        CreditLedgerService again = open();
+        assertThat(again.getEventCount()).isEqualTo(events + 1);
+        again.close();
+    }
+
+    private CreditLedgerService open() throws IOException {
+        CreditLedgerService ledger = new CreditLedgerService(creditRepository, ledgerDir.toString(), 3200, 4);
+        ledger.open();
+        return ledger;
+    }
+}
@@ -0,0 +1,78 @@
+package com.ecocredit.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-call and bulk paths of CreditRuleEngine over the same step counts, with the default tiers.
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Djmh.include=CreditRuleEngineBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreditRuleEngineBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private CreditRuleEngine engine;
+    private int[] steps;
+    private int[] credits;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        engine = new CreditRuleEngine(100, 10000, "10000:50,5000:25,1000:10");
+        // Fixed seed so runs compare the same mix of tiers (0 to 20000 steps a day)
+        Random random = new Random(42);
+        steps = new int[size];
+        for (int i = 0; i < size; i++) {
+            steps[i] = random.nextInt(20001);
+        }
+        credits = new int[size];
+    }
+
+    // One day at a time, as the conversion of a single submission does
+    @Benchmark
+    public int totalCredits() {
+        int day = steps[next];
+        next = next + 1 == size ? 0 : next + 1;
+        return engine.totalCredits(day);
+    }
+
+    // Every day through totalCredits in a caller loop
+    @Benchmark
+    public void totalCreditsLoop(Blackhole blackhole) {
+        for (int day : steps) {
+            blackhole.consume(engine.totalCredits(day));
+        }
+    }
+
+    @Benchmark
+    public int[] calculateAll() {
+        return engine.calculateAll(steps);
+    }
+
+    // Bulk path into a reused output array (no allocation)
+    @Benchmark
+    public int[] calculateAllInto() {
+        engine.calculateAll(steps, credits);
+        return credits;
+    }
+}
@@ -0,0 +1,91 @@
+package com.ecocredit.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CreditRuleEngineTest {
+    
+    private final CreditRuleEngine defaults = new CreditRuleEngine(100, 10000, "10000:50,5000:25,1000:10");
+    
+    @Test
+    void baseCreditsAreOnePerHundredSteps() {
+        assertThat(defaults.baseCredits(0)).isEqualTo(0);
+        assertThat(defaults.baseCredits(99)).isEqualTo(0);
+        assertThat(defaults.baseCredits(100)).isEqualTo(1);
+        assertThat(defaults.baseCredits(12345)).isEqualTo(123);
+    }
+    
+    @Test
+    void bonusIsTheHighestTierReached() {
+        assertThat(defaults.bonusCredits(999)).isEqualTo(0);
+        assertThat(defaults.bonusCredits(1000)).isEqualTo(10);
+        assertThat(defaults.bonusCredits(4999)).isEqualTo(10);
+        assertThat(defaults.bonusCredits(5000)).isEqualTo(25);
+        assertThat(defaults.bonusCredits(9999)).isEqualTo(25);
+        assertThat(defaults.bonusCredits(10000)).isEqualTo(50);
+        assertThat(defaults.bonusCredits(50000)).isEqualTo(50);
+    }
+    
+    @Test
+    void totalCreditsAddBaseAndBonus() {
+        assertThat(defaults.totalCredits(0)).isEqualTo(0);
+        assertThat(defaults.totalCredits(1000)).isEqualTo(20);
+        assertThat(defaults.totalCredits(5000)).isEqualTo(75);
+        assertThat(defaults.totalCredits(10000)).isEqualTo(150);
+    }
+    
+    @Test
+    void goalProgressIsCappedAtOneHundred() {
+        assertThat(defaults.goalProgress(0)).isEqualTo(0.0);
+        assertThat(defaults.goalProgress(2500)).isEqualTo(25.0);
+        assertThat(defaults.goalProgress(10000)).isEqualTo(100.0);
+        assertThat(defaults.goalProgress(25000)).isEqualTo(100.0);
+    }
+    
+    @Test
+    void tiersAreSortedWhateverTheConfiguredOrder() {
+        CreditRuleEngine engine = new CreditRuleEngine(100, 10000, " 1000:10 , 10000:50,5000:25");
+        
+        assertThat(engine.bonusCredits(1500)).isEqualTo(10);
+        assertThat(engine.bonusCredits(7000)).isEqualTo(25);
+        assertThat(engine.bonusCredits(12000)).isEqualTo(50);
+    }
+    
+    @Test
+    void noTiersMeansNoBonus() {
+        CreditRuleEngine engine = new CreditRuleEngine(50, 8000, "");
+        
+        assertThat(engine.bonusCredits(100000)).isEqualTo(0);
+        assertThat(engine.totalCredits(1000)).isEqualTo(20);
+        assertThat(engine.getGoalSteps()).isEqualTo(8000);
+    }
+    
+    @Test
+    void batchCalculationMatchesSingleCalculation() {
+        int[] steps = {0, 99, 1000, 4999, 5000, 10000, 23456};
+        
+        int[] credits = defaults.calculateAll(steps);
+        
+        for (int i = 0; i < steps.length; i++) {
+            assertThat(credits[i]).isEqualTo(defaults.totalCredits(steps[i]));
+        }
+    }
+    
+    @Test
+    void batchCalculationRejectsAShortOutputArray() {
+        assertThatThrownBy(() -> defaults.calculateAll(new int[3], new int[2]))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void invalidConfigurationIsRejected() {
+        assertThatThrownBy(() -> new CreditRuleEngine(0, 10000, "1000:10"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CreditRuleEngine(100, -1, "1000:10"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CreditRuleEngine(100, 10000, "1000-10"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,126 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.CreditDaily;
+import com.ecocredit.model.User;
+import com.ecocredit.repository.CreditDailyRepository;
+import com.ecocredit.repository.CreditRepository;
+import com.ecocredit.repository.UserBalanceRepository;
+import com.ecocredit.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:bulk-award-test;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false",
+    "ecocredit.credits.bulk-chunk-size=100"
+})
+class CreditServiceBulkAwardTest {
+    
+    @Autowired
+    private CreditService creditService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private CreditRepository creditRepository;
+    
+    @Autowired
+    private UserBalanceRepository userBalanceRepository;
+    
+    @Autowired
+    private CreditDailyRepository creditDailyRepository;
+    
+    @Test
+    void awardsEveryRowAndKeepsProjectionsInStep() {
+        List<User> users = createUsers("bulk", 5);
+        List<CreditService.Award> awards = new ArrayList<>();
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 1050; i++) {
+            Long userId = users.get(i % users.size()).getId();
+            int amount = 1 + i % 7;
+            awards.add(new CreditService.Award(userId, amount, "Campaign payout"));
+            expected.merge(userId, amount, Integer::sum);
+        }
+        long rowsBefore = creditRepository.count();
+        
+        CreditService.BulkAwardResult result = creditService.awardCreditsBulk(awards);
+        
+        assertThat(result.isComplete()).isTrue();
+        assertThat(result.awarded).isEqualTo(1050);
+        assertThat(result.error).isNull();
+        assertThat(creditRepository.count() - rowsBefore).isEqualTo(1050);
+        for (User user : users) {
+            int earned = expected.get(user.getId());
+            assertThat(userBalanceRepository.findById(user.getId()).orElseThrow().getEarned()).isEqualTo(earned);
+            assertThat(creditService.getCreditBalance(user).earned).isEqualTo(earned);
+            assertThat(creditDailyRepository.findById(new CreditDaily.Key(user.getId(), LocalDate.now()))
+                .orElseThrow().getEarned()).isEqualTo(earned);
+        }
+    }
+    
+    @Test
+    void keepsCommittedChunksWhenALaterChunkFails() {
+        User user = createUsers("partial", 1).get(0);
+        List<CreditService.Award> awards = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            awards.add(new CreditService.Award(user.getId(), 2, "Campaign payout"));
+        }
+        // No such user: the third chunk violates the foreign key
+        awards.add(new CreditService.Award(Long.MAX_VALUE, 2, "Campaign payout"));
+        awards.add(new CreditService.Award(user.getId(), 2, "Campaign payout"));
+        
+        CreditService.BulkAwardResult result = creditService.awardCreditsBulk(awards);
+        
+        assertThat(result.isComplete()).isFalse();
+        assertThat(result.awarded).isEqualTo(200);
+        assertThat(result.total).isEqualTo(252);
+        assertThat(result.error).isNotNull();
+        assertThat(userBalanceRepository.findById(user.getId()).orElseThrow().getEarned()).isEqualTo(400);
+        assertThat(creditService.getCreditBalance(user).earned).isEqualTo(400);
+    }
+    
+    @Test
+    void reportsRowsPerSecondAgainstSingleAwards() {
+        List<User> users = createUsers("bench", 50);
+        
+        int singleRows = 500;
+        long started = System.nanoTime();
+        for (int i = 0; i < singleRows; i++) {
+            creditService.awardCredits(users.get(i % users.size()), 3, "Campaign payout");
+        }
+        double singleRate = singleRows / ((System.nanoTime() - started) / 1_000_000_000.0);
+        
+        List<CreditService.Award> awards = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            awards.add(new CreditService.Award(users.get(i % users.size()).getId(), 3, "Campaign payout"));
+        }
+        started = System.nanoTime();
+        CreditService.BulkAwardResult result = creditService.awardCreditsBulk(awards);
+        double bulkRate = result.awarded / ((System.nanoTime() - started) / 1_000_000_000.0);
+        
+        System.out.printf("Single awards: %.0f rows/sec, bulk award: %.0f rows/sec (%.1fx)%n",
+                          singleRate, bulkRate, bulkRate / singleRate);
+        assertThat(result.isComplete()).isTrue();
+        for (User user : users) {
+            assertThat(creditService.getCreditBalance(user).earned).isEqualTo((singleRows + 5000) / users.size() * 3);
+        }
+    }
+    
+    private List<User> createUsers(String prefix, int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(userRepository.save(new User(prefix + i + "@test.ecocredit", prefix + " " + i, true)));
+        }
+        return users;
+    }
+}
@@ -0,0 +1,168 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.Credit;
+import com.ecocredit.model.CreditType;
+import com.ecocredit.model.Partner;
+import com.ecocredit.model.Redemption;
+import com.ecocredit.model.RewardCatalog;
+import com.ecocredit.model.User;
+import com.ecocredit.repository.CreditRepository;
+import com.ecocredit.repository.PartnerRepository;
+import com.ecocredit.repository.RedemptionRepository;
+import com.ecocredit.repository.RewardCatalogRepository;
+import com.ecocredit.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:ledger-archive-test;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false"
+})
+class LedgerArchiveServiceTest {
+
+    private static Path archiveDir;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) throws IOException {
+        archiveDir = Files.createTempDirectory("ledger-archive-test");
+        registry.add("ecocredit.archive.dir", archiveDir::toString);
+    }
+
+    @Autowired
+    private LedgerArchiveService ledgerArchiveService;
+
+    @Autowired
+    private CreditService creditService;
+
+    @Autowired
+    private RedemptionService redemptionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PartnerRepository partnerRepository;
+
+    @Autowired
+    private RewardCatalogRepository rewardCatalogRepository;
+
+    @Autowired
+    private RedemptionRepository redemptionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void pagesIntoTheArchiveOnlyForUsersWithArchivedCredits() throws IOException {
+        User archived = userRepository.save(new User("archived@test.ecocredit", "Archived", true));
+        User fresh = userRepository.save(new User("fresh@test.ecocredit", "Fresh", true));
+        List<Long> oldIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Credit credit = creditService.awardCredits(archived, 1 + i, "Old steps");
+            oldIds.add(credit.getId());
+            // Spread over two months so more than one archive file is read
+            jdbcTemplate.update("UPDATE credits SET created_at = ? WHERE id = ?",
+                                LocalDateTime.now().minusDays(500 + i * 2L), credit.getId());
+        }
+        for (int i = 0; i < 10; i++) {
+            creditService.awardCredits(archived, 2, "New steps");
+            creditService.awardCredits(fresh, 2, "New steps");
+        }
+
+        LedgerArchiveService.ArchiveResult result = ledgerArchiveService.archiveBefore(LocalDateTime.now().minusDays(365));
+
+        assertThat(result.credits).isEqualTo(20);
+        assertThat(creditService.getCreditBalance(archived).earned).isEqualTo(210 + 20);
+        assertThat(ledgerArchiveService.hasArchivedCredits(archived.getId())).isTrue();
+        assertThat(ledgerArchiveService.hasArchivedCredits(fresh.getId())).isFalse();
+
+        List<CreditRepository.CreditHistoryEntry> history = readHistory(archived, 7);
+        assertThat(history).hasSize(20 + 10);
+        assertThat(history).noneMatch(entry -> entry.getType().isCarryForward());
+        assertThat(history.subList(10, 30)).extracting(CreditRepository.CreditHistoryEntry::getId)
+            .containsExactlyElementsOf(oldIds);
+        assertThat(readHistory(fresh, 7)).hasSize(10);
+
+        // Archives written before the index existed are scanned whole
+        try (Stream<Path> files = Files.list(archiveDir)) {
+            for (Path index : files.filter(p -> p.toString().endsWith(".idx")).toList()) {
+                Files.delete(index);
+            }
+        }
+        assertThat(readHistory(archived, 7)).extracting(CreditRepository.CreditHistoryEntry::getId)
+            .containsExactlyElementsOf(history.stream().map(CreditRepository.CreditHistoryEntry::getId).toList());
+    }
+
+    @Test
+    void archivedRedemptionsStayInHistoryCountsAndStats() {
+        User user = userRepository.save(new User("redeemer@test.ecocredit", "Redeemer", true));
+        Partner partner = partnerRepository.save(new Partner("Archive Partner", "Test partner", "food"));
+        RewardCatalog reward = rewardCatalogRepository.save(
+            new RewardCatalog(partner, "Archive Coffee", "Test reward", 50, new BigDecimal("5.00")));
+
+        Redemption used = redeem(user, reward, Redemption.RedemptionStatus.USED, 600);
+        Redemption expired = redeem(user, reward, Redemption.RedemptionStatus.COMPLETED, 500);
+        Redemption failed = redeem(user, reward, Redemption.RedemptionStatus.FAILED, 400);
+        Redemption recent = redeem(user, reward, Redemption.RedemptionStatus.COMPLETED, 0);
+        Map<String, Object> statsBefore = redemptionService.getUserRedemptionStats(user);
+        long countBefore = redemptionRepository.countSuccessfulByUserId(user.getId());
+
+        ledgerArchiveService.archiveBefore(LocalDateTime.now().minusDays(365));
+
+        assertThat(redemptionRepository.findByUserOrderByRedeemedAtDesc(user)).extracting(Redemption::getId)
+            .containsExactly(recent.getId());
+        assertThat(ledgerArchiveService.hasArchivedRedemptions(user.getId())).isTrue();
+        assertThat(countBefore).isEqualTo(3);
+        assertThat(redemptionRepository.countSuccessfulByUserId(user.getId())).isEqualTo(countBefore);
+        assertThat(redemptionRepository.countSuccessfulBetween(user.getId(), user.getId()))
+            .singleElement()
+            .satisfies(metric -> assertThat(metric.getValue().longValue()).isEqualTo(countBefore));
+        assertThat(redemptionService.getUserRedemptionStats(user)).isEqualTo(statsBefore);
+
+        List<Redemption> history = redemptionService.getUserRedemptionHistory(user);
+        assertThat(history).extracting(Redemption::getId)
+            .containsExactly(recent.getId(), failed.getId(), expired.getId(), used.getId());
+        assertThat(history.get(3).getStatus()).isEqualTo(Redemption.RedemptionStatus.USED);
+        assertThat(history.get(3).getVoucherCode()).isEqualTo("VOUCHER-" + used.getId());
+        assertThat(history.get(3).getReward().getId()).isEqualTo(reward.getId());
+    }
+
+    private Redemption redeem(User user, RewardCatalog reward, Redemption.RedemptionStatus status, int daysAgo) {
+        Redemption redemption = new Redemption(user, reward, reward.getCreditCost());
+        redemption.setStatus(status);
+        redemption.setExpiryDate(LocalDateTime.now().minusDays(daysAgo).plusDays(30));
+        redemption = redemptionRepository.save(redemption);
+        redemption.setVoucherCode("VOUCHER-" + redemption.getId());
+        redemption = redemptionRepository.save(redemption);
+        jdbcTemplate.update("UPDATE redemptions SET redeemed_at = ? WHERE id = ?",
+                            LocalDateTime.now().minusDays(daysAgo), redemption.getId());
+        return redemption;
+    }
+
+    private List<CreditRepository.CreditHistoryEntry> readHistory(User user, int limit) {
+        List<CreditRepository.CreditHistoryEntry> entries = new ArrayList<>();
+        String cursor = null;
+        do {
+            CreditService.CreditHistoryPage page = creditService.getCreditHistory(user, cursor, limit);
+            entries.addAll(page.entries);
+            cursor = page.nextCursor;
+        } while (cursor != null);
+        return entries;
+    }
+}
@@ -0,0 +1,125 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.Step;
+import com.ecocredit.model.User;
+import com.ecocredit.repository.StepRepository;
+import com.ecocredit.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:step-ingest-concurrency-test;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+    "spring.jpa.show-sql=false"
+})
+class StepIngestConcurrencyTest {
+
+    private static final int THREADS = 4;
+    private static final int ROUNDS = 8;
+    private static final int DAYS = 7;
+    // How long each write transaction stays open after its upsert (a request's remaining round trips).
+    // Row locks are held for that long, so contention shows in wall time whatever the core count.
+    private static final long HOLD_MILLIS = 100;
+
+    @Autowired
+    private StepIngestService stepIngestService;
+
+    @Autowired
+    private StepRepository stepRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void distinctUsersWriteInParallelWhileOneSharedUserSerializes() throws Exception {
+        User shared = createUser("shared");
+        List<User> distinct = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            distinct.add(createUser("distinct-" + i));
+        }
+        LocalDate today = LocalDate.now();
+
+        long sharedNanos = run(List.of(shared, shared, shared, shared), today);
+        long distinctNanos = run(distinct, today);
+
+        int writes = THREADS * ROUNDS;
+        System.out.printf("👣 %d concurrent step writes: %.0f/s for one shared user, %.0f/s for %d distinct users%n",
+                          writes, writes * 1e9 / sharedNanos, writes * 1e9 / distinctNanos, THREADS);
+        // One user's writes queue on its (user_id, date) rows and stats row; distinct users' overlap
+        assertThat(sharedNanos).isGreaterThan(THREADS * ROUNDS * HOLD_MILLIS * 1_000_000);
+        assertThat(distinctNanos * 2).isLessThan(sharedNanos);
+
+        for (User user : distinct) {
+            List<Step> steps = stepRepository.findByUserOrderByDateDesc(user);
+            assertThat(steps).hasSize(DAYS);
+            assertThat(steps).allSatisfy(step -> assertThat(step.getSteps()).isEqualTo(stepsFor(ROUNDS - 1)));
+        }
+        assertThat(stepRepository.findByUserOrderByDateDesc(shared)).hasSize(DAYS);
+    }
+
+    private User createUser(String name) {
+        User user = userRepository.save(new User(name + "@test.ecocredit", name, true));
+        // Creates the stats row and warms up the write path outside the timed runs (the day is rewritten later)
+        stepIngestService.upsertSteps(user.getId(), LocalDate.now(), 1);
+        return user;
+    }
+
+    // One writer thread per entry of users, all started together; returns the wall time
+    private long run(List<User> users, LocalDate today) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService writers = Executors.newFixedThreadPool(users.size());
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (User user : users) {
+                results.add(writers.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        write(user.getId(), today, stepsFor(round));
+                    }
+                    return null;
+                }));
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+            return System.nanoTime() - started;
+        } finally {
+            writers.shutdown();
+        }
+    }
+
+    private void write(Long userId, LocalDate today, int steps) {
+        List<StepIngestService.StepEntry> week = new ArrayList<>();
+        for (int i = 0; i < DAYS; i++) {
+            week.add(new StepIngestService.StepEntry(userId, today.minusDays(i), steps));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            stepIngestService.upsertSteps(week);
+            try {
+                Thread.sleep(HOLD_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private static int stepsFor(int round) {
+        return 1000 + round * 100;
+    }
+}
@@ -0,0 +1,75 @@
+package com.ecocredit.service;
+
+import com.ecocredit.model.Step;
+import com.ecocredit.model.User;
+import com.ecocredit.repository.StepRepository;
+import com.ecocredit.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:step-ingest-test;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false"
+})
+class StepIngestServiceTest {
+
+    @Autowired
+    private StepIngestService stepIngestService;
+
+    @Autowired
+    private DeviceStepService deviceStepService;
+
+    @Autowired
+    private StepRepository stepRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void evictsOnlyTheWrittenStepsFromTheCallersContext() {
+        User saved = userRepository.save(new User("ingest@test.ecocredit", "Ingest", true));
+        LocalDate today = LocalDate.now();
+        stepIngestService.upsertSteps(saved.getId(), today, 5000);
+        stepIngestService.upsertSteps(saved.getId(), today.minusDays(1), 4000);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            User user = userRepository.findById(saved.getId()).orElseThrow();
+            Step written = stepRepository.findByUserAndDate(user, today).orElseThrow();
+            Step untouched = stepRepository.findByUserAndDate(user, today.minusDays(1)).orElseThrow();
+
+            stepIngestService.upsertSteps(saved.getId(), today, 8000);
+
+            assertThat(entityManager.contains(user)).isTrue();
+            assertThat(entityManager.contains(untouched)).isTrue();
+            assertThat(entityManager.contains(written)).isFalse();
+            assertThat(stepRepository.findByUserAndDate(user, today).orElseThrow().getSteps()).isEqualTo(8000);
+        });
+    }
+
+    @Test
+    void neverWritesADayBelowItsDeviceSync() {
+        User user = userRepository.save(new User("synced@test.ecocredit", "Synced", true));
+        LocalDate today = LocalDate.now();
+        deviceStepService.sync(user.getId(), "watch-1", Map.of(today, 7000));
+
+        stepIngestService.upsertSteps(user.getId(), today, 3000);
+        assertThat(stepRepository.findByUserAndDate(user, today).orElseThrow().getSteps()).isEqualTo(7000);
+
+        stepIngestService.upsertSteps(user.getId(), today, 9000);
+        assertThat(stepRepository.findByUserAndDate(user, today).orElseThrow().getSteps()).isEqualTo(9000);
+    }
+}
@@ -0,0 +1,57 @@
+package com.ecocredit.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class StepWriteBufferTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    private final StepIngestService stepIngestService = mock(StepIngestService.class);
+    private final StepWriteBuffer buffer = new StepWriteBuffer(stepIngestService, 1000, 3);
+
+    @Test
+    void dropsATotalThatKeepsFailingWithoutHoldingBackOtherUsers() {
+        doAnswer(invocation -> {
+            Collection<StepIngestService.StepEntry> entries = invocation.getArgument(0);
+            if (entries.stream().anyMatch(entry -> entry.userId == 2L)) {
+                throw new IllegalStateException("user 2 was deleted");
+            }
+            return entries.size();
+        }).when(stepIngestService).upsertSteps(anyCollection());
+
+        buffer.put(1L, DAY, 4000);
+        buffer.put(2L, DAY, 5000);
+
+        buffer.flush();
+        assertThat(buffer.getPending(1L, DAY)).isNull();
+        assertThat(buffer.getPending(2L, DAY)).isEqualTo(5000);
+
+        buffer.flush();
+        buffer.flush();
+        assertThat(buffer.getPendingCount()).isZero();
+        assertThat(buffer.getDroppedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsATotalThatChangedWhileItsSnapshotWasWritten() {
+        doAnswer(invocation -> {
+            // A newer total arrives while the flush is writing the old one
+            buffer.put(1L, DAY, 6000);
+            return 1;
+        }).when(stepIngestService).upsertSteps(anyCollection());
+
+        buffer.put(1L, DAY, 4000);
+        buffer.flush();
+
+        assertThat(buffer.getPending(1L, DAY)).isEqualTo(6000);
+        assertThat(buffer.getPendingCount()).isEqualTo(1);
+    }
+}
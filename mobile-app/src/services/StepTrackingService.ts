@@ -195,7 +195,11 @@ class StepTrackingService {
         deviceInfo: this.deviceInfo,
       };
 
-      const response = await axios.post(`${API_BASE_URL}/steps`, stepData);
+      // The server files steps under the user the token belongs to
+      const token = await SecureStore.getItemAsync('authToken');
+      const response = await axios.post(`${API_BASE_URL}/steps`, stepData, {
+        headers: token ? { Authorization: `Bearer ${token}` } : {},
+      });
       
       if (response.data.success) {
         this.lastStepCount = steps;